@@ -3,13 +3,15 @@ package com.wordcount;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
- * Word Count main application class, with Caching enabled.
+ * Word Count main application class, with Caching and Scheduling enabled.
  *
  */
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
 public class WordCountProjectApplication {
 
 	public static void main(String[] args) {
@@ -3,33 +3,71 @@ package com.wordcount.api;
 import static org.springframework.http.HttpStatus.OK;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.wordcount.api.utilities.CSVWriterUtils;
+import com.wordcount.api.utilities.CompactWriterUtils;
+import com.wordcount.api.utilities.ETagUtils;
+import com.wordcount.api.utilities.ExportWriterUtils;
+import com.wordcount.api.utilities.PrecompressedResponseCache;
+import com.wordcount.api.utilities.PrecompressedResponseCache.EncodedResponse;
+import com.wordcount.exception.AppApiError;
+import com.wordcount.exception.AppApiExceptionHandler;
 import com.wordcount.exception.ApplicationException;
+import com.wordcount.exception.IndexNotReadyException;
+import com.wordcount.service.CacheWarmupService;
+import com.wordcount.service.IndexState;
+import com.wordcount.service.RankedWordCounts;
 import com.wordcount.service.TextCountService;
+import com.wordcount.service.WordCountIndex;
+import com.wordcount.vo.CorpusReloadVO;
+import com.wordcount.vo.CorpusStatusVO;
+import com.wordcount.vo.DocumentFrequencyVO;
+import com.wordcount.vo.DocumentTermVO;
+import com.wordcount.vo.IndexStatusVO;
+import com.wordcount.vo.TopNFilterVO;
+import com.wordcount.vo.WordCountDiffVO;
 import com.wordcount.vo.WordCountRequestVO;
 import com.wordcount.vo.WordCountResultVO;
+import com.wordcount.vo.WordCountStatsVO;
+import com.wordcount.vo.WordCountUpdateVO;
+import com.wordcount.vo.WordSuggestionVO;
 
 /**
  * Rest API class for '/counter-api' that provides various text count URLs: 1.
- * /counter-api/search/ 2. /counter-api/top/{topN}
+ * /counter-api/search/ 2. /counter-api/top/{topN} 3. /counter-api/counts 4.
+ * /counter-api/stats 5. /counter-api/ready 6. /counter-api/export 7.
+ * /counter-api/documents/ 8. /counter-api/fuzzy 9. /counter-api/corpora 10.
+ * /counter-api/{corpus}/ 11. /counter-api/diff 12. /counter-api/reload
  *
  */
 @RestController
@@ -40,58 +78,171 @@ public class TextCounterApi {
 	@Autowired
 	private TextCountService textCountService;
 
+	@Autowired(required = false)
+	private PrecompressedResponseCache precompressedResponseCache;
+
+	@Autowired(required = false)
+	private CacheWarmupService cacheWarmupService;
+
+	/**
+	 * Number of bytes written at once by the export.
+	 */
+	@Value("${wordcount.export.chunk-size:65536}")
+	private int exportChunkSize = 64 * 1024;
+
+	/**
+	 * Registers the warm-up of the precompressed CSV topN responses, from the
+	 * lists replayed by the CacheWarmupService.
+	 */
+	@PostConstruct
+	public void init() {
+		if (this.cacheWarmupService != null && this.precompressedResponseCache != null) {
+			this.cacheWarmupService.addTopNWarmer(list -> {
+				String indexVersion = listVersion(list, this.textCountService.getGenerationVersion());
+				if (indexVersion != null) {
+					this.precompressTopN(list, "text/csv", indexVersion);
+				}
+			});
+		}
+	}
+
 	/**
 	 * Post method: /search that is used for finding counts of the provided list
 	 * of words.
 	 * 
+	 * The response carries a strong ETag derived from the index version and
+	 * the searched words. A matching If-None-Match header is answered with 304
+	 * Not Modified before any lookup, as the search is a safe read.
+	 * 
 	 * @param requestVO
 	 *            Represents the request body json that contains the list of
 	 *            words to be searched.
+	 * @param accept
+	 *            Accept request header.
+	 * @param ifNoneMatch
+	 *            If-None-Match request header.
 	 * @return WordCountSearchResultVO that contains the list of words searched
-	 *         and their counts. The result returned is in JSON format.
+	 *         and their counts. The result returned is in JSON format, or in
+	 *         the compact binary/columnar JSON format if accepted.
 	 */
-	@PostMapping(value = "/search/", consumes = "application/json", produces = "application/json")
-	@ResponseStatus(OK)
-	public @ResponseBody WordCountResultVO searchWordCounts(@RequestBody WordCountRequestVO requestVO) {
+	@PostMapping(value = "/search/", consumes = "application/json", produces = { "application/json",
+			CompactWriterUtils.BINARY_MEDIA_TYPE, CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE })
+	public ResponseEntity<WordCountResultVO> searchWordCounts(@RequestBody WordCountRequestVO requestVO,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Searching text counts");
 		}
+		List<String> searchText = requestVO != null ? requestVO.getSearchText() : null;
+		String indexVersion = this.textCountService.getIndexVersion();
+		String etag = indexVersion != null
+				? ETagUtils.etag(indexVersion, "search", ETagUtils.digest(searchText, accept)) : null;
+		if (ETagUtils.matches(ifNoneMatch, etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+					.build();
+		}
 		WordCountResultVO resultVO = new WordCountResultVO();
 
 		// Find the count of each requested word and populate the result.
-		if (requestVO != null && requestVO.getSearchText() != null) {
-			requestVO.getSearchText()
-					.forEach(word -> resultVO.addWordCount(word, this.textCountService.findTextCount(word)));
+		if (searchText != null) {
+			searchText.forEach(word -> resultVO.addWordCount(word, this.textCountService.findTextCount(word)));
 		}
-		return resultVO;
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(OK).header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+		return etag != null ? builder.eTag(etag).body(resultVO) : builder.body(resultVO);
 	}
 
 	/**
 	 * Get Method: /top/{topN} that is used for getting the topN list of
 	 * frequently occuring words and their counts. Returns the topN list of
-	 * word-counts in CSV format.
+	 * word-counts in CSV format, or in the compact binary/columnar JSON format
+	 * if requested by the Accept header.
 	 * 
 	 * In case of any CSV formatting error, Internal server error is raised.
 	 * 
+	 * The response carries a strong ETag derived from the index generation
+	 * version, topN, format and content coding: the live count updates only
+	 * change the point lookups, so they leave the ETag as is until they are
+	 * folded into a new generation. A matching If-None-Match header is
+	 * answered with 304 Not Modified before any lookup or serialization.
+	 * Clients accepting gzip (or deflate) get the encoding precompressed once
+	 * per index generation by the PrecompressedResponseCache.
+	 * 
+	 * Optional filter parameters restrict the words returned: exclude (words),
+	 * excludeList (names of server-side exclusion lists, e.g. stopwords),
+	 * minLength, maxLength, prefix and regex (full word match), e.g.
+	 * /top/20?excludeList=stopwords&amp;minLength=5. The top N words matching
+	 * all of them are returned. A regex is at most 64 characters long, may not
+	 * repeat a group containing a quantifier or alternation, and is only
+	 * tested against the 100,000 most frequent words.
+	 * 
 	 * @param topN
 	 *            The top N number of words to search.
+	 * @param filter
+	 *            Optional word filter parameters.
+	 * @param accept
+	 *            Accept request header.
+	 * @param acceptEncoding
+	 *            Accept-Encoding request header.
+	 * @param ifNoneMatch
+	 *            If-None-Match request header.
 	 * @param response
 	 *            HttpServlet Response
 	 * @throws IOException
 	 */
-	@GetMapping(value = "/top/{topN}", produces = "text/csv")
-	public void searchTopNWords(@PathVariable String topN, HttpServletResponse response) throws IOException {
+	@GetMapping(value = "/top/{topN}", produces = { "text/csv", CompactWriterUtils.BINARY_MEDIA_TYPE,
+			CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE })
+	public void searchTopNWords(@PathVariable String topN, TopNFilterVO filter,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			HttpServletResponse response) throws IOException {
 		if (logger.isDebugEnabled()) {
 			logger.debug("In API method for Searching top {} text counts", topN);
 		}
+		String compactMediaType = compactMediaType(accept);
+		String indexVersion = this.textCountService.getGenerationVersion();
+		String format = compactMediaType == null ? "csv"
+				: CompactWriterUtils.BINARY_MEDIA_TYPE.equals(compactMediaType) ? "binary" : "columnar";
+		boolean filtered = filter != null && !filter.isEmpty();
+		// Filtered lists are small and rarely repeated: not precompressed
+		String encoding = indexVersion != null && !filtered && this.precompressedResponseCache != null
+				? this.precompressedResponseCache.negotiate(acceptEncoding) : null;
+		String etag = topNETag(indexVersion, topN, format, filtered ? filter : null, encoding);
+		response.setHeader(HttpHeaders.VARY, "Accept, Accept-Encoding");
+		if (ETagUtils.matches(ifNoneMatch, etag)) {
+			response.setHeader(HttpHeaders.ETAG, etag);
+			response.setStatus(HttpStatus.NOT_MODIFIED.value());
+			return;
+		}
+		if (compactMediaType != null) {
+			this.searchTopNWordsCompact(topN, filtered ? filter : null, compactMediaType, format, indexVersion,
+					encoding, response);
+			return;
+		}
 		response.setContentType("text/csv");
 		try {
 			Integer topNum = Integer.parseInt(topN);
-			List<Entry<String, Long>> list = this.textCountService.findTopNWordCounts(topNum);
-			CSVWriterUtils.writeList(list, Entry.class, new String[] { "key", "value" }, response.getWriter());
+			List<Entry<String, Long>> list = this.findTopN(topNum, filtered ? filter : null);
+			String listVersion = listVersion(list, indexVersion);
+			etag = topNETag(listVersion, topN, format, filtered ? filter : null, encoding);
+			if (etag != null) {
+				response.setHeader(HttpHeaders.ETAG, etag);
+			}
+			if (encoding != null) {
+				this.writePrecompressed(list, "text/csv", listVersion, encoding, response);
+			} else {
+				CSVWriterUtils.writeList(list, Entry.class, new String[] { "key", "value" }, response.getWriter());
+			}
 			response.setStatus(HttpStatus.OK.value());
-
-			logger.info("In API Method: Top {} text counts found", topN);
+			if (logger.isDebugEnabled()) {
+				logger.debug("In API Method: Top {} text counts found", topN);
+			}
+		} catch (IndexNotReadyException ex) {
+			logger.warn("Top {} text counts requested while index not ready: {}", topN, ex.getMessage());
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, AppApiExceptionHandler.RETRY_AFTER_SECONDS);
+			CSVWriterUtils.writeOject(new ApplicationException(ex.getMessage()), new String[] { "message" },
+					response.getWriter());
 		} catch (NumberFormatException ex) {
 			logger.error("Requested TopN number: {} is invalid", topN);
 			response.setStatus(HttpStatus.BAD_REQUEST.value());
@@ -104,4 +255,482 @@ public class TextCounterApi {
 		}
 	}
 
+	/**
+	 * Get Method: /counts that is used for finding the words whose count is
+	 * within a range, e.g. /counts?min=50&amp;max=100. Returns the words and
+	 * their counts in descending count order.
+	 * 
+	 * @param min
+	 *            Inclusive minimum count, 1 if not provided.
+	 * @param max
+	 *            Inclusive maximum count, unbounded if not provided.
+	 * @param limit
+	 *            Maximum number of words returned, unbounded if not provided.
+	 * @return WordCountResultVO that contains the words and their counts.
+	 */
+	@GetMapping(value = "/counts", produces = { "application/json", CompactWriterUtils.BINARY_MEDIA_TYPE,
+			CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE })
+	@ResponseStatus(OK)
+	public @ResponseBody WordCountResultVO searchCountRange(@RequestParam(required = false) Long min,
+			@RequestParam(required = false) Long max, @RequestParam(required = false) Integer limit) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Searching text counts between {} and {}", min, max);
+		}
+		WordCountResultVO resultVO = new WordCountResultVO();
+		resultVO.setCounts(this.textCountService.findWordCountsInRange(min, max, limit));
+		return resultVO;
+	}
+
+	/**
+	 * Post Method: /counts that adds deltas to the counts of words, e.g.
+	 * {"deltas": {"lorem": 3, "ipsum": -1}}. The update is durable once
+	 * answered: it is written to the count log (wordcount.wal.enabled) and
+	 * recovered on restart. The new counts are served by /search straight
+	 * away, while /top, /counts, /stats, /export, /fuzzy and /diff serve the
+	 * counts of the last checkpoint until the next one
+	 * (wordcount.wal.checkpoint-interval-ms).
+	 * 
+	 * @param updateVO
+	 *            Represents the request body json that contains the count
+	 *            delta of each word.
+	 * @return WordCountResultVO that contains the updated words and their new
+	 *         counts.
+	 */
+	@PostMapping(value = "/counts", consumes = "application/json", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody WordCountResultVO updateWordCounts(@RequestBody WordCountUpdateVO updateVO) {
+		WordCountResultVO resultVO = new WordCountResultVO();
+		resultVO.setCounts(this.textCountService.updateTextCounts(updateVO != null ? updateVO.getDeltas() : null));
+		return resultVO;
+	}
+
+	/**
+	 * Get Method: /export that streams every word and its count, e.g.
+	 * /export?format=csv&amp;order=word. Formats: ndjson (default) or csv
+	 * (word|count lines); orders: rank (default, descending count) or word
+	 * (lexicographic). The words are written in fixed-size chunks straight
+	 * from an index snapshot, so the response is consistent even if the index
+	 * is rebuilt meanwhile and the memory used does not depend on the
+	 * vocabulary size. The counts exported are those of the index generation,
+	 * which the ETag is derived from.
+	 * 
+	 * @param format
+	 *            Export format: ndjson or csv.
+	 * @param order
+	 *            Export order: rank or word.
+	 * @param ifNoneMatch
+	 *            If-None-Match request header.
+	 * @param response
+	 *            HttpServlet Response
+	 * @throws IOException
+	 */
+	@GetMapping(value = "/export")
+	public void exportWordCounts(@RequestParam(defaultValue = "ndjson") String format,
+			@RequestParam(defaultValue = "rank") String order,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			HttpServletResponse response) throws IOException {
+		boolean ndjson = "ndjson".equalsIgnoreCase(format);
+		boolean lexicographic = "word".equalsIgnoreCase(order);
+		if ((!ndjson && !"csv".equalsIgnoreCase(format)) || (!lexicographic && !"rank".equalsIgnoreCase(order))) {
+			logger.error("Requested export format: {} / order: {} is invalid", format, order);
+			response.setStatus(HttpStatus.BAD_REQUEST.value());
+			response.setContentType("application/json;charset=UTF-8");
+			CompactWriterUtils.writeJsonError(new AppApiError("Requested export format / order is invalid",
+					HttpStatus.BAD_REQUEST.value(), "Bad Request"), response.getOutputStream());
+			return;
+		}
+		WordCountIndex index = this.textCountService.getWordCountIndex();
+		String extension = ndjson ? "ndjson" : "csv";
+		String etag = ETagUtils.etag(index.getGenerationVersion(), "export", extension,
+				lexicographic ? "word" : "rank");
+		response.setHeader(HttpHeaders.ETAG, etag);
+		if (ETagUtils.matches(ifNoneMatch, etag)) {
+			response.setStatus(HttpStatus.NOT_MODIFIED.value());
+			return;
+		}
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(ndjson ? ExportWriterUtils.NDJSON_MEDIA_TYPE + ";charset=UTF-8" : "text/csv");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, new StringBuilder("attachment; filename=\"word-counts-")
+				.append(index.getGenerationVersion()).append('.').append(extension).append('"').toString());
+		long start = System.nanoTime();
+		int words = ndjson ? ExportWriterUtils.writeNdjson(index, lexicographic, this.exportChunkSize,
+				response.getOutputStream())
+				: ExportWriterUtils.writeCsv(index, lexicographic, this.exportChunkSize, response.getOutputStream());
+		logger.info("In API Method: exported {} text counts in {} ms", words,
+				(System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Get Method: /fuzzy that returns the words of the corpus within an edit
+	 * distance of 1 or 2 of a possibly misspelled word and their counts,
+	 * closest first, then by descending count, e.g.
+	 * /fuzzy?text=lorme&amp;maxDistance=1&amp;limit=5.
+	 * 
+	 * @param text
+	 *            Word to search.
+	 * @param maxDistance
+	 *            Optional maximum edit distance.
+	 * @param limit
+	 *            Optional maximum number of words.
+	 * @return List of WordSuggestionVO in JSON format.
+	 */
+	@GetMapping(value = "/fuzzy", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody List<WordSuggestionVO> searchFuzzyWordCounts(@RequestParam String text,
+			@RequestParam(required = false) Integer maxDistance, @RequestParam(required = false) Integer limit) {
+		return this.textCountService.findFuzzyTextCounts(text, maxDistance, limit);
+	}
+
+	/**
+	 * Get Method: /documents/frequency that returns the number of documents a
+	 * word appears in, e.g. /documents/frequency?word=sed. Requires the
+	 * document index (wordcount.documents.enabled).
+	 * 
+	 * @param word
+	 *            Word to search.
+	 * @return DocumentFrequencyVO in JSON format.
+	 */
+	@GetMapping(value = "/documents/frequency", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody DocumentFrequencyVO documentFrequency(@RequestParam String word) {
+		return this.textCountService.findDocumentFrequency(word);
+	}
+
+	/**
+	 * Get Method: /documents/count that returns the count of a word in a
+	 * document, e.g. /documents/count?document=part-1.txt&amp;word=sed.
+	 * 
+	 * @param document
+	 *            Document name.
+	 * @param word
+	 *            Word to search.
+	 * @return DocumentTermVO in JSON format.
+	 */
+	@GetMapping(value = "/documents/count", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody DocumentTermVO documentTextCount(@RequestParam String document, @RequestParam String word) {
+		return this.textCountService.findDocumentTextCount(document, word);
+	}
+
+	/**
+	 * Get Method: /documents/top that returns the top N words of a document
+	 * ranked by TF-IDF, e.g. /documents/top?document=part-1.txt&amp;topN=10.
+	 * 
+	 * @param document
+	 *            Document name.
+	 * @param topN
+	 *            Number of words to return.
+	 * @return List of DocumentTermVO in JSON format.
+	 */
+	@GetMapping(value = "/documents/top", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody List<DocumentTermVO> documentTopTerms(@RequestParam String document,
+			@RequestParam Integer topN) {
+		return this.textCountService.findTopTfIdfTerms(document, topN);
+	}
+
+	/**
+	 * Get Method: /stats that returns the corpus statistics: total tokens,
+	 * distinct words, singletons and the log2 bucketed frequency histogram.
+	 * 
+	 * @return WordCountStatsVO in JSON format.
+	 */
+	@GetMapping(value = "/stats", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody WordCountStatsVO wordCountStats() {
+		return this.textCountService.getWordCountStats();
+	}
+
+	/**
+	 * Get Method: /diff that compares the previous and the current index
+	 * generation, e.g. after count updates are folded in by a checkpoint:
+	 * words with the largest absolute and relative count increase and
+	 * decrease, and the most frequent new and vanished words, e.g.
+	 * /diff?limit=20&amp;minCount=10.
+	 * 
+	 * @param limit
+	 *            Number of words returned in each category, 10 if not
+	 *            provided.
+	 * @param minCount
+	 *            Minimum count of a word for its relative change to be
+	 *            ranked, 1 if not provided.
+	 * @return WordCountDiffVO in JSON format.
+	 */
+	@GetMapping(value = "/diff", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody WordCountDiffVO wordCountDiff(@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) Long minCount) {
+		return this.textCountService.findWordCountDiff(limit, minCount);
+	}
+
+	/**
+	 * Post Method: /reload that reads the corpus again and, if it changed,
+	 * serves it as a new index generation, the replaced one being compared
+	 * with by /diff (wordcount.diff.retain-previous). Not supported with count
+	 * updates (wordcount.wal.enabled).
+	 * 
+	 * @return CorpusReloadVO with whether the corpus changed and the version
+	 *         of the index served.
+	 */
+	@PostMapping(value = "/reload", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody CorpusReloadVO reloadCorpus() {
+		boolean reloaded = this.textCountService.reloadCorpus();
+		return new CorpusReloadVO(reloaded, this.textCountService.getGenerationVersion());
+	}
+
+	/**
+	 * Get Method: /corpora that returns the status of the named corpora:
+	 * loaded or not, estimated size and number of loads.
+	 * 
+	 * @return List of CorpusStatusVO in JSON format.
+	 */
+	@GetMapping(value = "/corpora", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody List<CorpusStatusVO> corpora() {
+		return this.textCountService.getCorpora();
+	}
+
+	/**
+	 * Post method: /{corpus}/search/ that is used for finding counts of the
+	 * provided list of words in a named corpus. The corpus is loaded on first
+	 * access.
+	 * 
+	 * @param corpus
+	 *            Corpus name.
+	 * @param requestVO
+	 *            Represents the request body json that contains the list of
+	 *            words to be searched.
+	 * @return WordCountSearchResultVO that contains the list of words searched
+	 *         and their counts.
+	 */
+	@PostMapping(value = "/{corpus}/search/", consumes = "application/json", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody WordCountResultVO searchCorpusWordCounts(@PathVariable String corpus,
+			@RequestBody WordCountRequestVO requestVO) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Searching text counts in corpus {}", corpus);
+		}
+		WordCountResultVO resultVO = new WordCountResultVO();
+		List<String> searchText = requestVO != null ? requestVO.getSearchText() : null;
+		if (searchText != null) {
+			searchText.forEach(
+					word -> resultVO.addWordCount(word, this.textCountService.findCorpusTextCount(corpus, word)));
+		}
+		return resultVO;
+	}
+
+	/**
+	 * Get Method: /{corpus}/top/{topN} that is used for getting the topN list
+	 * of frequently occuring words of a named corpus and their counts, in CSV
+	 * format. The corpus is loaded on first access.
+	 * 
+	 * @param corpus
+	 *            Corpus name.
+	 * @param topN
+	 *            The top N number of words to search.
+	 * @param response
+	 *            HttpServlet Response
+	 * @throws IOException
+	 */
+	@GetMapping(value = "/{corpus}/top/{topN}", produces = "text/csv")
+	public void searchCorpusTopNWords(@PathVariable String corpus, @PathVariable String topN,
+			HttpServletResponse response) throws IOException {
+		response.setContentType("text/csv");
+		try {
+			List<Entry<String, Long>> list = this.textCountService.findCorpusTopNWordCounts(corpus,
+					Integer.parseInt(topN));
+			CSVWriterUtils.writeList(list, Entry.class, new String[] { "key", "value" }, response.getWriter());
+			response.setStatus(HttpStatus.OK.value());
+		} catch (NumberFormatException ex) {
+			logger.error("Requested TopN number: {} is invalid", topN);
+			response.setStatus(HttpStatus.BAD_REQUEST.value());
+			CSVWriterUtils.writeOject(new ApplicationException("Requested TopN number is invalid"),
+					new String[] { "message" }, response.getWriter());
+		} catch (Exception ex) {
+			logger.error("Error occured in finding TopN words of corpus {}", corpus, ex);
+			response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+			CSVWriterUtils.writeOject(ex, new String[] { "message" }, response.getWriter());
+		}
+	}
+
+	/**
+	 * Get Method: /{corpus}/stats that returns the statistics of a named
+	 * corpus. The corpus is loaded on first access.
+	 * 
+	 * @param corpus
+	 *            Corpus name.
+	 * @return WordCountStatsVO in JSON format.
+	 */
+	@GetMapping(value = "/{corpus}/stats", produces = "application/json")
+	@ResponseStatus(OK)
+	public @ResponseBody WordCountStatsVO corpusWordCountStats(@PathVariable String corpus) {
+		return this.textCountService.getCorpusWordCountStats(corpus);
+	}
+
+	/**
+	 * Writes the topN list of word-counts in the given compact format. Errors
+	 * are written as JSON AppApiError.
+	 */
+	private void searchTopNWordsCompact(String topN, TopNFilterVO filter, String mediaType, String format,
+			String indexVersion, String encoding, HttpServletResponse response) throws IOException {
+		AppApiError apiError;
+		try {
+			List<Entry<String, Long>> list = this.findTopN(Integer.parseInt(topN), filter);
+			String listVersion = listVersion(list, indexVersion);
+			String etag = topNETag(listVersion, topN, format, filter, encoding);
+			if (etag != null) {
+				response.setHeader(HttpHeaders.ETAG, etag);
+			}
+			response.setContentType(mediaType);
+			response.setStatus(HttpStatus.OK.value());
+			if (encoding != null) {
+				this.writePrecompressed(list, mediaType, listVersion, encoding, response);
+			} else {
+				this.writeTopN(list, mediaType, response.getOutputStream());
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("In API Method: Top {} text counts found", topN);
+			}
+			return;
+		} catch (IndexNotReadyException ex) {
+			logger.warn("Top {} text counts requested while index not ready: {}", topN, ex.getMessage());
+			response.setHeader(HttpHeaders.RETRY_AFTER, AppApiExceptionHandler.RETRY_AFTER_SECONDS);
+			apiError = new AppApiError(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable");
+		} catch (NumberFormatException ex) {
+			logger.error("Requested TopN number: {} is invalid", topN);
+			apiError = new AppApiError("Requested TopN number is invalid", HttpStatus.BAD_REQUEST.value(),
+					"Bad Request");
+		} catch (Exception ex) {
+			logger.error("Error occured in finding TopN words for topN", ex);
+			apiError = new AppApiError(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+					"Internal Application Error");
+		}
+		response.setStatus(apiError.getStatus());
+		response.setContentType("application/json;charset=UTF-8");
+		CompactWriterUtils.writeJsonError(apiError, response.getOutputStream());
+	}
+
+	/**
+	 * Returns the ETag of a topN response, null if the index version is not
+	 * known.
+	 */
+	private static String topNETag(String indexVersion, String topN, String format, TopNFilterVO filter,
+			String encoding) {
+		if (indexVersion == null) {
+			return null;
+		}
+		return filter != null
+				? ETagUtils.etag(indexVersion, "top", topN, format,
+						ETagUtils.digest(Collections.singletonList(filter.toString()), format))
+				: encoding != null ? ETagUtils.etag(indexVersion, "top", topN, format, encoding)
+						: ETagUtils.etag(indexVersion, "top", topN, format);
+	}
+
+	/**
+	 * Returns the version of the index generation the topN list was computed
+	 * from, which differs from the version read before the lookup if a new
+	 * generation was published meanwhile.
+	 */
+	private static String listVersion(List<Entry<String, Long>> list, String indexVersion) {
+		String listVersion = RankedWordCounts.generationVersionOf(list);
+		return listVersion != null ? listVersion : indexVersion;
+	}
+
+	/**
+	 * Finds the topN list, filtered if a filter is given. Unfiltered lists go
+	 * through the topN cache.
+	 */
+	private List<Entry<String, Long>> findTopN(Integer topN, TopNFilterVO filter) {
+		return filter != null ? this.textCountService.findTopNWordCounts(topN, filter)
+				: this.textCountService.findTopNWordCounts(topN);
+	}
+
+	/**
+	 * Writes the topN list from the precompressed response cache: rendered and
+	 * compressed once per index version and topN list size, then served as is.
+	 * Responses too small to be compressed are served uncompressed.
+	 */
+	private void writePrecompressed(List<Entry<String, Long>> list, String mediaType, String indexVersion,
+			String encoding, HttpServletResponse response) throws IOException {
+		EncodedResponse cached = this.precompressTopN(list, mediaType, indexVersion);
+		byte[] body = cached.get(encoding);
+		if (body != null) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+			this.precompressedResponseCache.recordHit(cached, encoding);
+		} else {
+			body = cached.get(null);
+		}
+		response.setContentType(mediaType);
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	/**
+	 * Returns the precompressed response of the topN list in the given format.
+	 */
+	private EncodedResponse precompressTopN(List<Entry<String, Long>> list, String mediaType, String indexVersion) {
+		// A topN list is a prefix of the ranking, its size identifies it.
+		return this.precompressedResponseCache.get(indexVersion,
+				new StringBuilder(mediaType).append(':').append(list.size()).toString(),
+				out -> this.writeTopN(list, mediaType, out));
+	}
+
+	/**
+	 * Writes the topN list in the given format: CSV, binary or columnar JSON.
+	 */
+	private void writeTopN(List<Entry<String, Long>> list, String mediaType, OutputStream out) throws IOException {
+		if (CompactWriterUtils.BINARY_MEDIA_TYPE.equals(mediaType)) {
+			CompactWriterUtils.writeBinary(list, out);
+		} else if (CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE.equals(mediaType)) {
+			CompactWriterUtils.writeColumnarJson(list, out);
+		} else {
+			Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+			CSVWriterUtils.writeList(list, Entry.class, new String[] { "key", "value" }, writer);
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Returns the compact media type preferred by the given Accept header, or
+	 * null if CSV is preferred or no compact type is explicitly accepted.
+	 */
+	private String compactMediaType(String accept) {
+		if (accept == null || accept.indexOf('/') < 0) {
+			return null;
+		}
+		try {
+			List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(mediaTypes);
+			for (MediaType mediaType : mediaTypes) {
+				String type = mediaType.getType() + "/" + mediaType.getSubtype();
+				if (CompactWriterUtils.BINARY_MEDIA_TYPE.equals(type)
+						|| CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE.equals(type)) {
+					return type;
+				}
+				if ("text/csv".equals(type)) {
+					return null;
+				}
+			}
+		} catch (InvalidMediaTypeException ex) {
+			logger.debug("Ignoring invalid Accept header: {}", accept);
+		}
+		return null;
+	}
+
+	/**
+	 * Get Method: /ready that reports whether the text count index is built
+	 * and counts can be served. Accessible without authentication so that it
+	 * can be used as a readiness probe.
+	 * 
+	 * @return IndexStatusVO with the index state and build progress, with OK
+	 *         status if ready otherwise Service Unavailable.
+	 */
+	@GetMapping(value = "/ready", produces = "application/json")
+	public ResponseEntity<IndexStatusVO> indexStatus() {
+		IndexState state = this.textCountService.getIndexState();
+		boolean ready = state == IndexState.READY;
+		IndexStatusVO statusVO = new IndexStatusVO(state.name(), ready, this.textCountService.getIndexProgress());
+		return new ResponseEntity<>(statusVO, ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+	}
 }
@@ -0,0 +1,59 @@
+package com.wordcount.api.utilities;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import com.wordcount.exception.AppApiError;
+import com.wordcount.vo.WordCountResultVO;
+
+/**
+ * HttpMessageConverter writing WordCountResultVO responses in the compact
+ * binary and columnar JSON formats of CompactWriterUtils, selected through
+ * the request's Accept header. API errors are written as JSON.
+ *
+ */
+public class CompactHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+	public CompactHttpMessageConverter() {
+		super(MediaType.parseMediaType(CompactWriterUtils.BINARY_MEDIA_TYPE),
+				MediaType.parseMediaType(CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE));
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return WordCountResultVO.class.isAssignableFrom(clazz) || AppApiError.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	protected boolean canRead(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected Object readInternal(Class<? extends Object> clazz, HttpInputMessage inputMessage)
+			throws IOException, HttpMessageNotReadableException {
+		throw new HttpMessageNotReadableException("Compact word-count formats are response only");
+	}
+
+	@Override
+	protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException {
+		if (object instanceof AppApiError) {
+			outputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON_UTF8);
+			CompactWriterUtils.writeJsonError((AppApiError) object, outputMessage.getBody());
+			return;
+		}
+		WordCountResultVO resultVO = (WordCountResultVO) object;
+		MediaType contentType = outputMessage.getHeaders().getContentType();
+		if (contentType != null && CompactWriterUtils.BINARY_MEDIA_TYPE
+				.equals(contentType.getType() + "/" + contentType.getSubtype())) {
+			CompactWriterUtils.writeBinary(resultVO.getCounts(), outputMessage.getBody());
+		} else {
+			CompactWriterUtils.writeColumnarJson(resultVO.getCounts(), outputMessage.getBody());
+		}
+	}
+}
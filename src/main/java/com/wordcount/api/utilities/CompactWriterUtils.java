@@ -0,0 +1,356 @@
+package com.wordcount.api.utilities;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.wordcount.exception.AppApiError;
+
+/**
+ * Utility class for writing word-count lists in compact formats, as an
+ * alternative to the bean based JSON/CSV formats:
+ * <ol>
+ * <li>Binary ({@value #BINARY_MEDIA_TYPE}): an unsigned varint entry count,
+ * followed by each entry as an unsigned varint byte length, the UTF-8 word
+ * bytes and an unsigned varint count.</li>
+ * <li>Columnar JSON ({@value #COLUMNAR_JSON_MEDIA_TYPE}):
+ * <code>{"words":[..],"counts":[..]}</code>.</li>
+ * </ol>
+ * Both writers stream the entries straight to the output through a small
+ * buffer, without any intermediate object tree.
+ */
+public class CompactWriterUtils {
+
+	/**
+	 * Media type of the length-prefixed UTF-8/varint binary format.
+	 */
+	public static final String BINARY_MEDIA_TYPE = "application/x-wordcount-binary";
+
+	/**
+	 * Media type of the columnar JSON format.
+	 */
+	public static final String COLUMNAR_JSON_MEDIA_TYPE = "application/vnd.wordcount.columnar+json";
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private CompactWriterUtils() {
+	}
+
+	/**
+	 * Writes the given word counts on the given stream in binary format.
+	 *
+	 * @param list
+	 *            Word-count entries to write.
+	 * @param out
+	 *            Stream to write on, flushed but not closed.
+	 * @throws IOException
+	 *             If the stream cannot be written.
+	 */
+	public static void writeBinary(List<Entry<String, Long>> list, OutputStream out) throws IOException {
+		ByteBuffer buffer = new ByteBuffer(out, bufferSize(list));
+		writeVarint(list.size(), buffer);
+		for (Entry<String, Long> entry : list) {
+			String word = entry.getKey();
+			if (isAscii(word)) {
+				// Corpus words are ASCII: copied without encoding
+				writeVarint(word.length(), buffer);
+				buffer.writeAscii(word, 0, word.length());
+			} else {
+				byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+				writeVarint(bytes.length, buffer);
+				buffer.write(bytes);
+			}
+			writeVarint(entry.getValue(), buffer);
+		}
+		buffer.flush();
+	}
+
+	/**
+	 * Reads word counts written in binary format.
+	 *
+	 * @param in
+	 *            Stream to read from.
+	 * @return List of word-count entries in written order.
+	 * @throws IOException
+	 *             If the stream cannot be read or is truncated.
+	 */
+	public static List<Entry<String, Long>> readBinary(InputStream in) throws IOException {
+		int size = (int) readVarint(in);
+		List<Entry<String, Long>> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			byte[] word = new byte[(int) readVarint(in)];
+			int read = 0;
+			while (read < word.length) {
+				int n = in.read(word, read, word.length - read);
+				if (n < 0) {
+					throw new EOFException("Truncated word-count binary stream");
+				}
+				read += n;
+			}
+			list.add(new SimpleImmutableEntry<>(new String(word, StandardCharsets.UTF_8), readVarint(in)));
+		}
+		return list;
+	}
+
+	/**
+	 * Writes the given word counts on the given stream in columnar JSON
+	 * format, UTF-8 encoded.
+	 *
+	 * @param list
+	 *            Word-count entries to write.
+	 * @param out
+	 *            Stream to write on, flushed but not closed.
+	 * @throws IOException
+	 *             If the stream cannot be written.
+	 */
+	public static void writeColumnarJson(List<Entry<String, Long>> list, OutputStream out) throws IOException {
+		ByteBuffer buffer = new ByteBuffer(out, bufferSize(list));
+		buffer.write('{');
+		writeAscii("\"words\":[", buffer);
+		for (int i = 0; i < list.size(); i++) {
+			if (i > 0) {
+				buffer.write(',');
+			}
+			writeJsonString(list.get(i).getKey(), buffer);
+		}
+		writeAscii("],\"counts\":[", buffer);
+		for (int i = 0; i < list.size(); i++) {
+			if (i > 0) {
+				buffer.write(',');
+			}
+			buffer.writeDecimal(list.get(i).getValue());
+		}
+		writeAscii("]}", buffer);
+		buffer.flush();
+	}
+
+	/**
+	 * Writes the given API error on the given stream as a JSON object, UTF-8
+	 * encoded. Error responses of the compact formats use this JSON body.
+	 *
+	 * @param error
+	 *            API error to write.
+	 * @param out
+	 *            Stream to write on, flushed but not closed.
+	 * @throws IOException
+	 *             If the stream cannot be written.
+	 */
+	public static void writeJsonError(AppApiError error, OutputStream out) throws IOException {
+		ByteBuffer buffer = new ByteBuffer(out);
+		writeAscii("{\"status\":", buffer);
+		writeAscii(Integer.toString(error.getStatus()), buffer);
+		writeAscii(",\"error\":", buffer);
+		writeJsonString(error.getError(), buffer);
+		writeAscii(",\"message\":", buffer);
+		writeJsonString(error.getMessage(), buffer);
+		buffer.write('}');
+		buffer.flush();
+	}
+
+	/**
+	 * Writes an unsigned LEB128 varint.
+	 */
+	static void writeVarint(long value, ByteBuffer out) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	/**
+	 * Reads an unsigned LEB128 varint.
+	 */
+	static long readVarint(InputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Truncated word-count binary stream");
+			}
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in word-count binary stream");
+	}
+
+	static void writeAscii(String str, ByteBuffer out) throws IOException {
+		out.writeAscii(str, 0, str.length());
+	}
+
+	/**
+	 * Sizes the buffer of a short list to its expected output.
+	 */
+	private static int bufferSize(List<Entry<String, Long>> list) {
+		return (int) Math.min(BUFFER_SIZE, 64 + 24L * list.size());
+	}
+
+	/**
+	 * Returns true if the string is ASCII with nothing to escape in JSON.
+	 */
+	private static boolean isPlainAscii(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < 0x20 || c >= 0x80 || c == '"' || c == '\\') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isAscii(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			if (str.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the given string as a quoted, escaped JSON string in UTF-8.
+	 */
+	static void writeJsonString(String str, ByteBuffer out) throws IOException {
+		if (str == null) {
+			writeAscii("null", out);
+			return;
+		}
+		out.write('"');
+		if (isPlainAscii(str)) {
+			out.writeAscii(str, 0, str.length());
+			out.write('"');
+			return;
+		}
+		int start = 0;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			writeUtf8(str, start, i, out);
+			out.write('\\');
+			if (c == '"' || c == '\\') {
+				out.write(c);
+			} else {
+				out.write('u');
+				out.write('0');
+				out.write('0');
+				out.write(HEX[c >> 4]);
+				out.write(HEX[c & 0xF]);
+			}
+			start = i + 1;
+		}
+		writeUtf8(str, start, str.length(), out);
+		out.write('"');
+	}
+
+	static void writeUtf8(String str, int start, int end, ByteBuffer out) throws IOException {
+		for (int i = start; i < end; i++) {
+			if (str.charAt(i) >= 0x80) {
+				out.write(str.substring(start, end).getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+		}
+		out.writeAscii(str, start, end);
+	}
+
+	/**
+	 * Unsynchronized byte buffer in front of the response stream.
+	 */
+	static final class ByteBuffer {
+		private final OutputStream out;
+		private final byte[] bytes;
+		private int position;
+
+		ByteBuffer(OutputStream out) {
+			this(out, BUFFER_SIZE);
+		}
+
+		ByteBuffer(OutputStream out, int size) {
+			this.out = out;
+			this.bytes = new byte[size];
+		}
+
+		void write(int b) throws IOException {
+			if (this.position == this.bytes.length) {
+				this.drain();
+			}
+			this.bytes[this.position++] = (byte) b;
+		}
+
+		void write(byte[] b) throws IOException {
+			if (b.length > this.bytes.length - this.position) {
+				this.drain();
+				if (b.length > this.bytes.length) {
+					this.out.write(b);
+					return;
+				}
+			}
+			System.arraycopy(b, 0, this.bytes, this.position, b.length);
+			this.position += b.length;
+		}
+
+		/**
+		 * Writes the ASCII characters of the given string range, copied
+		 * straight into the buffer.
+		 */
+		void writeAscii(String str, int start, int end) throws IOException {
+			int i = start;
+			while (i < end) {
+				if (this.position == this.bytes.length) {
+					this.drain();
+				}
+				int limit = Math.min(end, i + this.bytes.length - this.position);
+				while (i < limit) {
+					this.bytes[this.position++] = (byte) str.charAt(i++);
+				}
+			}
+		}
+
+		/**
+		 * Writes the decimal ASCII digits of a non negative value, without
+		 * allocating a string.
+		 */
+		void writeDecimal(long value) throws IOException {
+			if (value < 0) {
+				CompactWriterUtils.writeAscii(Long.toString(value), this);
+				return;
+			}
+			if (this.bytes.length - this.position < 20) {
+				this.drain();
+			}
+			int digits = 1;
+			for (long rest = value / 10; rest > 0; rest /= 10) {
+				digits++;
+			}
+			int end = this.position + digits;
+			for (int i = end - 1; i >= this.position; i--) {
+				this.bytes[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			this.position = end;
+		}
+
+		void flush() throws IOException {
+			this.drain();
+			this.out.flush();
+		}
+
+		private void drain() throws IOException {
+			if (this.position > 0) {
+				this.out.write(this.bytes, 0, this.position);
+				this.position = 0;
+			}
+		}
+	}
+}
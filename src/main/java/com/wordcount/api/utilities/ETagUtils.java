@@ -0,0 +1,103 @@
+package com.wordcount.api.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Utility class for building the strong ETags of the count responses and
+ * evaluating If-None-Match request headers against them. ETags are derived
+ * from the index content version, so they can be checked before any lookup.
+ *
+ */
+public class ETagUtils {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private ETagUtils() {
+	}
+
+	/**
+	 * Builds a strong ETag from the index version and the parts identifying
+	 * the response representation.
+	 *
+	 * @param indexVersion
+	 *            Content version of the index.
+	 * @param parts
+	 *            Request parts the response depends on, e.g. the topN and the
+	 *            response format.
+	 * @return Quoted ETag value.
+	 */
+	public static String etag(String indexVersion, Object... parts) {
+		StringBuilder etag = new StringBuilder("\"").append(indexVersion);
+		for (Object part : parts) {
+			etag.append('-').append(part);
+		}
+		return etag.append('"').toString();
+	}
+
+	/**
+	 * Returns a short digest of the given words, used to identify a search
+	 * request in its ETag.
+	 *
+	 * @param words
+	 *            Searched words.
+	 * @param format
+	 *            Requested format, e.g. the Accept header.
+	 * @return Hex digest.
+	 */
+	public static String digest(List<String> words, String format) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			if (words != null) {
+				for (String word : words) {
+					digest.update(String.valueOf(word).getBytes(StandardCharsets.UTF_8));
+					digest.update((byte) 0);
+				}
+			}
+			digest.update(String.valueOf(format).getBytes(StandardCharsets.UTF_8));
+			byte[] hash = digest.digest();
+			char[] hex = new char[32];
+			for (int i = 0; i < 16; i++) {
+				hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+				hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new ApplicationException("SHA-256 digest not available", ex);
+		}
+	}
+
+	/**
+	 * Evaluates an If-None-Match header against the current ETag, using the
+	 * weak comparison required for If-None-Match.
+	 *
+	 * @param ifNoneMatch
+	 *            If-None-Match request header, may be null.
+	 * @param etag
+	 *            Current quoted ETag of the response.
+	 * @return True if the client's representation is current, i.e. 304 Not
+	 *         Modified can be answered.
+	 */
+	public static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null || etag == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if (tag.equals("*")) {
+				return true;
+			}
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
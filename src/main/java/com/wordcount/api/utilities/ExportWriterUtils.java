@@ -0,0 +1,122 @@
+package com.wordcount.api.utilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.wordcount.service.WordCountIndex;
+
+/**
+ * Utility class for streaming every word and count of a word count index, in
+ * rank or lexicographic order:
+ * <ol>
+ * <li>NDJSON ({@value #NDJSON_MEDIA_TYPE}): one
+ * <code>{"word":"..","count":..}</code> object per line.</li>
+ * <li>CSV (text/csv): one <code>word|count</code> line per word, as the top
+ * N API.</li>
+ * </ol>
+ * Lines are encoded straight from the index into a fixed-size chunk, written
+ * to the stream whenever full: the memory used does not depend on the
+ * vocabulary size, and a slow reader blocks the writer.
+ */
+public class ExportWriterUtils {
+
+	/**
+	 * Media type of the newline delimited JSON format.
+	 */
+	public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+	private ExportWriterUtils() {
+	}
+
+	/**
+	 * Writes every word and count of the index as NDJSON.
+	 *
+	 * @param index
+	 *            Word count index to export.
+	 * @param lexicographic
+	 *            If true, words are written in lexicographic order, else in
+	 *            rank order.
+	 * @param chunkSize
+	 *            Number of bytes written to the stream at once.
+	 * @param out
+	 *            Stream to write on, flushed after each chunk but not closed.
+	 * @return Number of words written.
+	 * @throws IOException
+	 *             If the stream cannot be written.
+	 */
+	public static int writeNdjson(WordCountIndex index, boolean lexicographic, int chunkSize, OutputStream out)
+			throws IOException {
+		CompactWriterUtils.ByteBuffer buffer = new CompactWriterUtils.ByteBuffer(new FlushingStream(out), chunkSize);
+		for (int i = 0; i < index.size(); i++) {
+			int rank = lexicographic ? index.getLexicalRank(i) : i;
+			CompactWriterUtils.writeAscii("{\"word\":", buffer);
+			CompactWriterUtils.writeJsonString(index.getWord(rank), buffer);
+			CompactWriterUtils.writeAscii(",\"count\":", buffer);
+			buffer.writeDecimal(index.getCountAt(rank));
+			buffer.write('}');
+			buffer.write('\n');
+		}
+		buffer.flush();
+		return index.size();
+	}
+
+	/**
+	 * Writes every word and count of the index as <code>word|count</code>
+	 * lines.
+	 *
+	 * @param index
+	 *            Word count index to export.
+	 * @param lexicographic
+	 *            If true, words are written in lexicographic order, else in
+	 *            rank order.
+	 * @param chunkSize
+	 *            Number of bytes written to the stream at once.
+	 * @param out
+	 *            Stream to write on, flushed after each chunk but not closed.
+	 * @return Number of words written.
+	 * @throws IOException
+	 *             If the stream cannot be written.
+	 */
+	public static int writeCsv(WordCountIndex index, boolean lexicographic, int chunkSize, OutputStream out)
+			throws IOException {
+		CompactWriterUtils.ByteBuffer buffer = new CompactWriterUtils.ByteBuffer(new FlushingStream(out), chunkSize);
+		for (int i = 0; i < index.size(); i++) {
+			int rank = lexicographic ? index.getLexicalRank(i) : i;
+			String word = index.getWord(rank);
+			CompactWriterUtils.writeUtf8(word, 0, word.length(), buffer);
+			buffer.write('|');
+			buffer.writeDecimal(index.getCountAt(rank));
+			buffer.write('\n');
+		}
+		buffer.flush();
+		return index.size();
+	}
+
+	/**
+	 * Flushes the response after each chunk, so that it is sent to the
+	 * client rather than buffered by the container.
+	 */
+	private static final class FlushingStream extends OutputStream {
+		private final OutputStream out;
+
+		FlushingStream(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.out.flush();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.out.flush();
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package com.wordcount.api.utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wordcount.exception.ApplicationException;
+import com.wordcount.service.RequestCoalescer;
+
+/**
+ * Cache of fully rendered responses stored next to their gzip (and
+ * optionally deflate) encodings. Each response is rendered and compressed
+ * once per index version, then served as is to every client accepting the
+ * encoding, with no per-request compression. The cache is bounded in bytes
+ * and evicts the least recently used responses; it is cleared whenever the
+ * index version changes, and responses of a replaced version are no longer
+ * stored.
+ */
+@Component
+public class PrecompressedResponseCache {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * gzip content coding.
+	 */
+	public static final String GZIP = "gzip";
+
+	/**
+	 * deflate (zlib) content coding.
+	 */
+	public static final String DEFLATE = "deflate";
+
+	private static final int MAX_RETIRED_VERSIONS = 16;
+
+	@Value("${wordcount.precompressed.enabled:true}")
+	private boolean enabled = true;
+
+	/**
+	 * Responses smaller than this are cached but never compressed.
+	 */
+	@Value("${wordcount.precompressed.min-size:1024}")
+	private int minSize = 1024;
+
+	@Value("${wordcount.precompressed.max-bytes:33554432}")
+	private long maxBytes = 32L * 1024 * 1024;
+
+	@Value("${wordcount.precompressed.deflate:false}")
+	private boolean deflateEnabled;
+
+	private final Map<String, EncodedResponse> responses = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final RequestCoalescer<String, EncodedResponse> coalescer = new RequestCoalescer<>();
+
+	private String version;
+
+	/**
+	 * Most recent versions replaced by a newer one: responses rendered for
+	 * them by requests still in flight are not stored.
+	 */
+	private final Set<String> retiredVersions = Collections
+			.newSetFromMap(new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+					return this.size() > MAX_RETIRED_VERSIONS;
+				}
+			});
+
+	private long cachedBytes;
+
+	private final AtomicLong compressedHits = new AtomicLong();
+
+	private final AtomicLong savedCompressionNanos = new AtomicLong();
+
+	/**
+	 * Renders a response body.
+	 */
+	@FunctionalInterface
+	public interface ResponseRenderer {
+		void render(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Selects the precompressed content coding for the given Accept-Encoding
+	 * header.
+	 *
+	 * @param acceptEncoding
+	 *            Accept-Encoding request header, may be null.
+	 * @return gzip or deflate, or null if the response should be sent
+	 *         uncompressed or the cache is disabled.
+	 */
+	public String negotiate(String acceptEncoding) {
+		if (!this.enabled || acceptEncoding == null) {
+			return null;
+		}
+		boolean gzip = false;
+		boolean deflate = false;
+		boolean any = false;
+		Set<String> rejected = new HashSet<>();
+		for (String coding : acceptEncoding.split(",")) {
+			String[] params = coding.trim().split(";");
+			String name = params[0].trim().toLowerCase();
+			if ("x-gzip".equals(name)) {
+				name = GZIP;
+			}
+			if (params.length > 1 && params[1].trim().replace(" ", "").matches("q=0(\\.0*)?")) {
+				rejected.add(name);
+				continue;
+			}
+			gzip |= GZIP.equals(name);
+			deflate |= DEFLATE.equals(name);
+			any |= "*".equals(name);
+		}
+		// '*' only matches the codings not explicitly listed (RFC 7231 5.3.4)
+		if (gzip || any && !rejected.contains(GZIP)) {
+			return GZIP;
+		}
+		return this.deflateEnabled && (deflate || any && !rejected.contains(DEFLATE)) ? DEFLATE : null;
+	}
+
+	/**
+	 * Returns the cached response for the given key and index version,
+	 * rendering and compressing it first if needed. Concurrent requests for
+	 * the same missing response share one rendering.
+	 *
+	 * @param indexVersion
+	 *            Index version the response is computed from.
+	 * @param key
+	 *            Key identifying the response within the version.
+	 * @param renderer
+	 *            Renders the identity encoding of the response.
+	 * @return Cached response encodings.
+	 */
+	public EncodedResponse get(String indexVersion, String key, ResponseRenderer renderer) {
+		EncodedResponse response = this.lookup(indexVersion, key);
+		if (response != null) {
+			return response;
+		}
+		return this.coalescer.execute(indexVersion + '/' + key, () -> {
+			EncodedResponse rendered = this.lookup(indexVersion, key);
+			if (rendered == null) {
+				rendered = this.render(renderer);
+				this.store(indexVersion, key, rendered);
+			}
+			return rendered;
+		});
+	}
+
+	/**
+	 * Records a response served from its cached encoding, accounting the
+	 * compression time it saved.
+	 *
+	 * @param response
+	 *            Served response.
+	 * @param encoding
+	 *            Served content coding.
+	 */
+	public void recordHit(EncodedResponse response, String encoding) {
+		if (encoding != null && response.get(encoding) != null) {
+			this.compressedHits.incrementAndGet();
+			this.savedCompressionNanos.addAndGet(response.getCompressionNanos(encoding));
+		}
+	}
+
+	/**
+	 * @return Number of compressed responses served from the cache.
+	 */
+	public long getCompressedHits() {
+		return this.compressedHits.get();
+	}
+
+	/**
+	 * @return Compression CPU time saved by serving cached encodings, in
+	 *         milliseconds.
+	 */
+	public long getSavedCompressionMillis() {
+		return this.savedCompressionNanos.get() / 1_000_000;
+	}
+
+	private synchronized EncodedResponse lookup(String indexVersion, String key) {
+		return indexVersion.equals(this.version) ? this.responses.get(key) : null;
+	}
+
+	private synchronized void store(String indexVersion, String key, EncodedResponse response) {
+		if (!indexVersion.equals(this.version)) {
+			if (this.retiredVersions.contains(indexVersion)) {
+				// Rendered from a previous index by a request still in flight
+				return;
+			}
+			if (this.version != null) {
+				logger.info("Index version changed to {}: dropping {} precompressed response(s), saved {} ms so far",
+						indexVersion, this.responses.size(), this.getSavedCompressionMillis());
+				this.retiredVersions.add(this.version);
+			}
+			this.responses.clear();
+			this.cachedBytes = 0;
+			this.version = indexVersion;
+		}
+		if (response.size() > this.maxBytes) {
+			return;
+		}
+		EncodedResponse previous = this.responses.put(key, response);
+		this.cachedBytes += response.size() - (previous != null ? previous.size() : 0);
+		Iterator<EncodedResponse> eldest = this.responses.values().iterator();
+		while (this.cachedBytes > this.maxBytes && eldest.hasNext()) {
+			this.cachedBytes -= eldest.next().size();
+			eldest.remove();
+		}
+	}
+
+	private EncodedResponse render(ResponseRenderer renderer) {
+		try {
+			ByteArrayOutputStream identity = new ByteArrayOutputStream(8 * 1024);
+			renderer.render(identity);
+			byte[] identityBytes = identity.toByteArray();
+			if (identityBytes.length < this.minSize) {
+				return new EncodedResponse(identityBytes, null, 0, null, 0);
+			}
+
+			long start = System.nanoTime();
+			ByteArrayOutputStream gzip = new ByteArrayOutputStream(identityBytes.length / 4);
+			try (GZIPOutputStream out = new GZIPOutputStream(gzip, 8 * 1024)) {
+				out.write(identityBytes);
+			}
+			long gzipNanos = System.nanoTime() - start;
+
+			byte[] deflateBytes = null;
+			long deflateNanos = 0;
+			if (this.deflateEnabled) {
+				start = System.nanoTime();
+				ByteArrayOutputStream deflate = new ByteArrayOutputStream(identityBytes.length / 4);
+				try (DeflaterOutputStream out = new DeflaterOutputStream(deflate, new Deflater(), 8 * 1024)) {
+					out.write(identityBytes);
+				}
+				deflateBytes = deflate.toByteArray();
+				deflateNanos = System.nanoTime() - start;
+			}
+			EncodedResponse response = new EncodedResponse(identityBytes, gzip.toByteArray(), gzipNanos,
+					deflateBytes, deflateNanos);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Precompressed response of {} bytes to {} gzip bytes in {} us", identityBytes.length,
+						response.get(GZIP).length, gzipNanos / 1000);
+			}
+			return response;
+		} catch (IOException ex) {
+			throw new ApplicationException("Error occured in rendering precompressed response", ex);
+		}
+	}
+
+	/**
+	 * Rendered response with its available encodings.
+	 */
+	public static final class EncodedResponse {
+		private final byte[] identity;
+		private final byte[] gzip;
+		private final long gzipNanos;
+		private final byte[] deflate;
+		private final long deflateNanos;
+
+		EncodedResponse(byte[] identity, byte[] gzip, long gzipNanos, byte[] deflate, long deflateNanos) {
+			this.identity = identity;
+			this.gzip = gzip;
+			this.gzipNanos = gzipNanos;
+			this.deflate = deflate;
+			this.deflateNanos = deflateNanos;
+		}
+
+		/**
+		 * @param encoding
+		 *            gzip, deflate or null for identity.
+		 * @return Bytes of the given encoding, null if not available.
+		 */
+		public byte[] get(String encoding) {
+			if (GZIP.equals(encoding)) {
+				return this.gzip;
+			}
+			if (DEFLATE.equals(encoding)) {
+				return this.deflate;
+			}
+			return this.identity;
+		}
+
+		long getCompressionNanos(String encoding) {
+			return GZIP.equals(encoding) ? this.gzipNanos : DEFLATE.equals(encoding) ? this.deflateNanos : 0;
+		}
+
+		long size() {
+			return this.identity.length + (this.gzip != null ? this.gzip.length : 0)
+					+ (this.deflate != null ? this.deflate.length : 0);
+		}
+	}
+}
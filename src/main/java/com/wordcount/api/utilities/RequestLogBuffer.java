@@ -0,0 +1,170 @@
+package com.wordcount.api.utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free ring buffer of request log entries, written by any
+ * number of request threads and drained by a single writer thread.
+ * Producers claim a sequence number with a compare-and-set, fill the
+ * preallocated entry of its slot and publish it by writing the sequence
+ * number to the slot; the consumer reads the published slots in sequence
+ * order. When the buffer is full, entries are dropped and counted rather
+ * than blocking the request thread.
+ */
+public class RequestLogBuffer {
+
+	private final Entry[] slots;
+
+	private final int mask;
+
+	/**
+	 * Next sequence number to claim.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Next sequence number to drain, only written by the consumer.
+	 */
+	private volatile long tail;
+
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * @param capacity
+	 *            Number of entries, rounded up to a power of 2.
+	 */
+	public RequestLogBuffer(int capacity) {
+		int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		this.slots = new Entry[size];
+		this.mask = size - 1;
+		for (int i = 0; i < size; i++) {
+			this.slots[i] = new Entry();
+		}
+	}
+
+	/**
+	 * Adds an entry unless the buffer is full.
+	 *
+	 * @param timestamp
+	 *            Request end time, in milliseconds since the epoch.
+	 * @param method
+	 *            HTTP method.
+	 * @param endpoint
+	 *            Endpoint path pattern.
+	 * @param status
+	 *            HTTP status.
+	 * @param durationNanos
+	 *            Request duration.
+	 * @param sampleRate
+	 *            Rate the request was sampled at.
+	 * @return false if the entry was dropped.
+	 */
+	public boolean offer(long timestamp, String method, String endpoint, int status, long durationNanos,
+			double sampleRate) {
+		long sequence;
+		do {
+			sequence = this.head.get();
+			if (sequence - this.tail >= this.slots.length) {
+				this.dropped.increment();
+				return false;
+			}
+		} while (!this.head.compareAndSet(sequence, sequence + 1));
+		Entry entry = this.slots[(int) sequence & this.mask];
+		entry.timestamp = timestamp;
+		entry.method = method;
+		entry.endpoint = endpoint;
+		entry.status = status;
+		entry.durationNanos = durationNanos;
+		entry.sampleRate = sampleRate;
+		// Volatile write: publishes the fields above to the consumer
+		entry.sequence = sequence;
+		return true;
+	}
+
+	/**
+	 * Passes the published entries to the consumer in sequence order, up to
+	 * the given number, then frees their slots. Must only be called by one
+	 * thread at a time. The entries must not be retained by the consumer.
+	 *
+	 * @param consumer
+	 *            Consumer of the entries.
+	 * @param max
+	 *            Maximum number of entries drained.
+	 * @return Number of entries drained.
+	 */
+	public int drain(Consumer<Entry> consumer, int max) {
+		long sequence = this.tail;
+		int drained = 0;
+		while (drained < max) {
+			Entry entry = this.slots[(int) sequence & this.mask];
+			if (entry.sequence != sequence) {
+				break;
+			}
+			consumer.accept(entry);
+			sequence++;
+			drained++;
+		}
+		this.tail = sequence;
+		return drained;
+	}
+
+	/**
+	 * @return Number of entries waiting to be drained.
+	 */
+	public int size() {
+		return (int) Math.max(0, this.head.get() - this.tail);
+	}
+
+	/**
+	 * @return Capacity of the buffer.
+	 */
+	public int capacity() {
+		return this.slots.length;
+	}
+
+	/**
+	 * @return Number of entries dropped because the buffer was full.
+	 */
+	public long getDropped() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Request log entry, reused once drained.
+	 */
+	public static final class Entry {
+		private volatile long sequence = -1;
+		private long timestamp;
+		private String method;
+		private String endpoint;
+		private int status;
+		private long durationNanos;
+		private double sampleRate;
+
+		public long getTimestamp() {
+			return this.timestamp;
+		}
+
+		public String getMethod() {
+			return this.method;
+		}
+
+		public String getEndpoint() {
+			return this.endpoint;
+		}
+
+		public int getStatus() {
+			return this.status;
+		}
+
+		public long getDurationNanos() {
+			return this.durationNanos;
+		}
+
+		public double getSampleRate() {
+			return this.sampleRate;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.wordcount.api.utilities;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * High-throughput request log: a sample of the requests of each endpoint is
+ * recorded (time, method, endpoint pattern, status, duration and sample
+ * rate) into a lock-free RequestLogBuffer, and written to the
+ * wordcount.requests logger by a single background thread. Request threads
+ * never format log lines nor wait on the log appender; when the writer
+ * falls behind, entries are dropped and the number dropped is logged.
+ */
+@Component
+public class RequestLogInterceptor extends HandlerInterceptorAdapter {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private final Logger requestLogger = LoggerFactory.getLogger("wordcount.requests");
+
+	private static final String START_ATTRIBUTE = RequestLogInterceptor.class.getName() + ".start";
+
+	/**
+	 * If true, sampled requests are logged.
+	 */
+	@Value("${wordcount.request-log.enabled:false}")
+	private boolean enabled;
+
+	/**
+	 * Rate the requests are sampled at, between 0 and 1, for the endpoints
+	 * without their own rate.
+	 */
+	@Value("${wordcount.request-log.sample-rate:0.01}")
+	private double sampleRate = 0.01;
+
+	/**
+	 * Comma separated sample rates of endpoint path patterns, e.g.
+	 * /counter-api/search/=0.001,/counter-api/counts=1.
+	 */
+	@Value("${wordcount.request-log.endpoint-sample-rates:}")
+	private String endpointSampleRates = "";
+
+	@Value("${wordcount.request-log.buffer-size:65536}")
+	private int bufferSize = 65536;
+
+	private final Map<String, Double> sampleRates = new HashMap<>();
+
+	private volatile RequestLogBuffer buffer;
+
+	private volatile Thread writer;
+
+	private long reportedDropped;
+
+	/**
+	 * Parses the sample rates and starts the writer thread, if enabled.
+	 */
+	@PostConstruct
+	public void init() {
+		for (String endpointRate : StringUtils.commaDelimitedListToStringArray(this.endpointSampleRates)) {
+			int separator = endpointRate.lastIndexOf('=');
+			try {
+				this.sampleRates.put(endpointRate.substring(0, separator).trim(),
+						Double.parseDouble(endpointRate.substring(separator + 1).trim()));
+			} catch (RuntimeException ex) {
+				throw new ApplicationException(new StringBuilder("Request log sample rate: ").append(endpointRate)
+						.append(" is invalid").toString(), ex);
+			}
+		}
+		if (!this.enabled) {
+			return;
+		}
+		this.buffer = new RequestLogBuffer(this.bufferSize);
+		Thread thread = new Thread(this::write, "request-log-writer");
+		thread.setDaemon(true);
+		this.writer = thread;
+		thread.start();
+		logger.info("Request log enabled: sample rate {}, endpoint sample rates {}, buffer of {} entries",
+				this.sampleRate, this.sampleRates, this.buffer.capacity());
+	}
+
+	/**
+	 * @return true if sampled requests are logged.
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Samples the request, recording its start time if sampled.
+	 */
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (this.buffer != null && ThreadLocalRandom.current().nextDouble() < this.sampleRate(request)) {
+			request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the sampled request to the buffer.
+	 */
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception ex) {
+		Object start = request.getAttribute(START_ATTRIBUTE);
+		RequestLogBuffer logBuffer = this.buffer;
+		if (start instanceof Long && logBuffer != null) {
+			logBuffer.offer(System.currentTimeMillis(), request.getMethod(), endpoint(request),
+					ex != null && response.getStatus() < 400 ? 500 : response.getStatus(),
+					System.nanoTime() - (Long) start, this.sampleRate(request));
+		}
+	}
+
+	/**
+	 * Stops the writer thread once the buffer is drained.
+	 */
+	@PreDestroy
+	public void close() {
+		Thread thread = this.writer;
+		this.writer = null;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * @return Buffer of the sampled requests, null if not enabled.
+	 */
+	public RequestLogBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	private double sampleRate(HttpServletRequest request) {
+		Double rate = this.sampleRates.isEmpty() ? null : this.sampleRates.get(endpoint(request));
+		return rate != null ? rate : this.sampleRate;
+	}
+
+	/**
+	 * Returns the path pattern of the endpoint, e.g. /counter-api/top/{topN},
+	 * so that all the requests of an endpoint share one key.
+	 */
+	private static String endpoint(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return pattern != null ? pattern.toString() : request.getRequestURI();
+	}
+
+	/**
+	 * Writer thread loop: drains the buffer in batches, formatting each entry
+	 * on this thread only, and parks briefly when it is empty.
+	 */
+	private void write() {
+		StringBuilder line = new StringBuilder(128);
+		RequestLogBuffer logBuffer = this.buffer;
+		while (true) {
+			boolean running = this.writer != null;
+			int drained = logBuffer.drain(entry -> {
+				line.setLength(0);
+				line.append(entry.getTimestamp()).append(' ').append(entry.getMethod()).append(' ')
+						.append(entry.getEndpoint()).append(' ').append(entry.getStatus()).append(' ')
+						.append(TimeUnit.NANOSECONDS.toMicros(entry.getDurationNanos())).append("us 1/")
+						.append(Math.round(1 / entry.getSampleRate()));
+				this.requestLogger.info(line.toString());
+			}, 1024);
+			long dropped = logBuffer.getDropped();
+			if (dropped != this.reportedDropped) {
+				logger.warn("Request log buffer full: dropped {} entries", dropped - this.reportedDropped);
+				this.reportedDropped = dropped;
+			}
+			if (drained == 0) {
+				if (!running) {
+					return;
+				}
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+			}
+		}
+	}
+}
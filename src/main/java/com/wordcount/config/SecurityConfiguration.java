@@ -24,7 +24,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
 		http.csrf().disable()
-		.authorizeRequests().antMatchers("/counter-api/**").hasRole("USER")
+		.authorizeRequests().antMatchers("/counter-api/ready").permitAll()
+		.antMatchers("/counter-api/**").hasRole("USER")
 		.and()
 		.httpBasic().realmName(this.realmName).authenticationEntryPoint(authenticationEntryPoint)
 		.and()
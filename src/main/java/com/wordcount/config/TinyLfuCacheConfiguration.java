@@ -0,0 +1,31 @@
+package com.wordcount.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.wordcount.service.cache.TinyLfuCacheManager;
+
+/**
+ * Cache configuration replacing the ehcache JCache manager with the TinyLFU
+ * cache manager when wordcount.cache.provider is tinylfu. The caches keep
+ * their names, so the @CacheResult annotations are unchanged.
+ *
+ */
+@Configuration
+@ConditionalOnProperty(name = "wordcount.cache.provider", havingValue = "tinylfu")
+public class TinyLfuCacheConfiguration {
+
+	@Value("${wordcount.cache.tinylfu.max-bytes:1048576}")
+	private long maxBytes;
+
+	@Value("${wordcount.cache.tinylfu.tti-seconds:300}")
+	private long timeToIdleSeconds;
+
+	@Bean
+	public CacheManager cacheManager() {
+		return new TinyLfuCacheManager(this.maxBytes, this.timeToIdleSeconds);
+	}
+}
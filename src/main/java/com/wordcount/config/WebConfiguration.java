@@ -0,0 +1,37 @@
+package com.wordcount.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import com.wordcount.api.utilities.CompactHttpMessageConverter;
+import com.wordcount.api.utilities.RequestLogInterceptor;
+
+/**
+ * Web MVC configuration: registers the compact word-count response formats
+ * next to the default JSON converters, and the sampled request log of the
+ * counter API if enabled.
+ *
+ */
+@Configuration
+public class WebConfiguration extends WebMvcConfigurerAdapter {
+
+	@Autowired(required = false)
+	private RequestLogInterceptor requestLogInterceptor;
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new CompactHttpMessageConverter());
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		if (this.requestLogInterceptor != null && this.requestLogInterceptor.isEnabled()) {
+			registry.addInterceptor(this.requestLogInterceptor).addPathPatterns("/counter-api/**");
+		}
+	}
+}
@@ -2,6 +2,7 @@ package com.wordcount.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -17,11 +18,17 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
  * REST API Exception Handler. It defines exception handling for: 1. Internal
  * Server Error (500) - For any Application exceptions. 2. Bad Request Error
  * (400) - For HttpMessageNotReadableException, MethodArgumentNotValidException,
- * MethodArgumentTypeMismatchException
+ * MethodArgumentTypeMismatchException 3. Service Unavailable (503) - For
+ * IndexNotReadyException, while the text count index is being built.
  *
  */
 @ControllerAdvice
 public class AppApiExceptionHandler {
+	/**
+	 * Retry-After header value sent while the text count index is building.
+	 */
+	public static final String RETRY_AFTER_SECONDS = "5";
+
 	private Logger logger = LoggerFactory.getLogger(AppApiExceptionHandler.class);
 
 	@ExceptionHandler({ ApplicationException.class })
@@ -32,6 +39,15 @@ public class AppApiExceptionHandler {
 		return new ResponseEntity<AppApiError>(apiError, HttpStatus.INTERNAL_SERVER_ERROR);
 	}
 
+	@ExceptionHandler({ IndexNotReadyException.class })
+	public ResponseEntity<AppApiError> handleIndexNotReadyException(IndexNotReadyException ex, WebRequest request) {
+		logger.warn("Handling {}: {}", ex.getClass().getName(), ex.getMessage());
+		AppApiError apiError = new AppApiError(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE.value(),
+				"Service Unavailable");
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+				.body(apiError);
+	}
+
 	@ExceptionHandler({ HttpMessageNotReadableException.class, MethodArgumentNotValidException.class })
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	@ResponseBody
@@ -0,0 +1,24 @@
+package com.wordcount.exception;
+
+/**
+ * ApplicationException thrown when a count is requested while the text count
+ * index is still being built in the background.
+ *
+ */
+public class IndexNotReadyException extends ApplicationException {
+	private static final long serialVersionUID = -4172650218396602147L;
+
+	private final int progress;
+
+	public IndexNotReadyException(String message, int progress) {
+		super(message);
+		this.progress = progress;
+	}
+
+	/**
+	 * @return Index build progress percentage at the time of the request.
+	 */
+	public int getProgress() {
+		return progress;
+	}
+}
@@ -0,0 +1,264 @@
+package com.wordcount.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records a sample of the findTextCount words and topN values looked up, and
+ * periodically saves the hottest ones to a local file. On startup, once the
+ * text count index is ready, the saved keys are replayed on a background
+ * thread, hottest first, to prefill textCountCache and topNCountCache and
+ * the registered topN response warmers (e.g. precompressed responses),
+ * within a time and entry budget.
+ * <p>
+ * File format, one key per line: <code>word|top TAB key TAB hits</code>.
+ */
+@Service
+public class CacheWarmupService {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * Maximum number of distinct keys tracked per key type.
+	 */
+	private static final int MAX_TRACKED_KEYS = 10_000;
+
+	private static final String WORD = "word";
+
+	private static final String TOP = "top";
+
+	/**
+	 * Cached service, called directly so that replayed lookups are not
+	 * recorded again.
+	 */
+	@Autowired
+	@Qualifier("textCountServiceWordMapImpl")
+	private TextCountService textCountService;
+
+	@Value("${wordcount.cache.warmup.enabled:false}")
+	private boolean enabled;
+
+	@Value("${wordcount.cache.warmup.file:cache-warmup.tsv}")
+	private String file = "cache-warmup.tsv";
+
+	/**
+	 * One in sample-rate lookups is recorded.
+	 */
+	@Value("${wordcount.cache.warmup.sample-rate:16}")
+	private int sampleRate = 16;
+
+	/**
+	 * Maximum number of keys saved and replayed.
+	 */
+	@Value("${wordcount.cache.warmup.max-entries:500}")
+	private int maxEntries = 500;
+
+	/**
+	 * Maximum duration of the replay, including the wait for the index.
+	 */
+	@Value("${wordcount.cache.warmup.max-time-ms:10000}")
+	private long maxTimeMillis = 10_000;
+
+	private final Map<String, LongAdder> wordHits = new ConcurrentHashMap<>();
+
+	private final Map<String, LongAdder> topNHits = new ConcurrentHashMap<>();
+
+	private final List<Consumer<List<Entry<String, Long>>>> topNWarmers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Records a findTextCount lookup, if sampled.
+	 *
+	 * @param text
+	 *            Word looked up.
+	 */
+	public void recordTextCount(String text) {
+		// Texts are recorded as is: they are the textCountCache keys
+		if (this.enabled && text != null && text.indexOf('\t') < 0 && text.indexOf('\n') < 0
+				&& text.indexOf('\r') < 0 && this.sampled()) {
+			this.record(this.wordHits, text);
+		}
+	}
+
+	/**
+	 * Records a findTopNWordCounts lookup, if sampled.
+	 *
+	 * @param topN
+	 *            Number of words looked up.
+	 */
+	public void recordTopN(Integer topN) {
+		if (this.enabled && topN != null && topN > 0 && this.sampled()) {
+			this.record(this.topNHits, topN.toString());
+		}
+	}
+
+	/**
+	 * Registers a warmer called with each replayed topN list once it is
+	 * cached, to prefill responses built from it. The list is the one
+	 * replayed, so the warmer does not look it up again through the service
+	 * recording the hot keys.
+	 *
+	 * @param warmer
+	 *            TopN response warmer.
+	 */
+	public void addTopNWarmer(Consumer<List<Entry<String, Long>>> warmer) {
+		this.topNWarmers.add(warmer);
+	}
+
+	/**
+	 * Starts the replay of the saved keys in the background once the
+	 * application is ready.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (!this.enabled) {
+			return;
+		}
+		Thread warmer = new Thread(this::warmUp, "text-count-cache-warmer");
+		warmer.setDaemon(true);
+		warmer.start();
+	}
+
+	/**
+	 * Saves the hottest recorded keys to the warm-up file.
+	 */
+	@Scheduled(fixedDelayString = "${wordcount.cache.warmup.save-interval-ms:60000}",
+			initialDelayString = "${wordcount.cache.warmup.save-interval-ms:60000}")
+	@PreDestroy
+	public void save() {
+		if (!this.enabled || (this.wordHits.isEmpty() && this.topNHits.isEmpty())) {
+			return;
+		}
+		List<String[]> hottest = new ArrayList<>();
+		this.wordHits.forEach((key, hits) -> hottest.add(new String[] { WORD, key, Long.toString(hits.sum()) }));
+		this.topNHits.forEach((key, hits) -> hottest.add(new String[] { TOP, key, Long.toString(hits.sum()) }));
+		hottest.sort((a, b) -> Long.compare(Long.parseLong(b[2]), Long.parseLong(a[2])));
+		Path path = Paths.get(this.file);
+		Path tmp = Paths.get(this.file + ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				for (String[] entry : hottest.subList(0, Math.min(this.maxEntries, hottest.size()))) {
+					writer.write(String.join("\t", entry));
+					writer.newLine();
+				}
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			logger.warn("Error occurred in saving cache warm-up file: {}", path, ex);
+		}
+	}
+
+	/**
+	 * Replays the saved keys, hottest first, through the cached service and
+	 * the topN warmers. Returns the number of keys replayed.
+	 */
+	int warmUp() {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.maxTimeMillis);
+		List<String[]> entries = this.load();
+		if (entries.isEmpty()) {
+			return 0;
+		}
+		// Wait for the index, built in the background in async build mode
+		while (this.textCountService.getIndexState() != IndexState.READY) {
+			if (this.textCountService.getIndexState() == IndexState.FAILED || System.nanoTime() > deadline) {
+				logger.warn("Cache warm-up skipped: text count index is {}", this.textCountService.getIndexState());
+				return 0;
+			}
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return 0;
+			}
+		}
+		int replayed = 0;
+		long start = System.nanoTime();
+		for (String[] entry : entries) {
+			if (replayed >= this.maxEntries || System.nanoTime() > deadline) {
+				break;
+			}
+			try {
+				if (WORD.equals(entry[0])) {
+					this.textCountService.findTextCount(entry[1]);
+				} else {
+					List<Entry<String, Long>> list = this.textCountService
+							.findTopNWordCounts(Integer.valueOf(entry[1]));
+					for (Consumer<List<Entry<String, Long>>> warmer : this.topNWarmers) {
+						warmer.accept(list);
+					}
+				}
+				replayed++;
+			} catch (RuntimeException ex) {
+				logger.warn("Error occurred in replaying cache warm-up entry: {} {}", entry[0], entry[1], ex);
+			}
+		}
+		logger.info("Cache warm-up replayed {} of {} entries in {} ms", replayed, entries.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return replayed;
+	}
+
+	/**
+	 * Loads the saved keys, hottest first. Missing or malformed files yield
+	 * no keys.
+	 */
+	private List<String[]> load() {
+		List<String[]> entries = new ArrayList<>();
+		Path path = Paths.get(this.file);
+		if (!Files.isReadable(path)) {
+			return entries;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] entry = line.split("\t");
+				if (entry.length == 3 && (WORD.equals(entry[0]) || TOP.equals(entry[0]))) {
+					entries.add(entry);
+				}
+			}
+		} catch (IOException ex) {
+			logger.warn("Error occurred in loading cache warm-up file: {}", path, ex);
+		}
+		return entries;
+	}
+
+	private boolean sampled() {
+		return this.sampleRate <= 1 || ThreadLocalRandom.current().nextInt(this.sampleRate) == 0;
+	}
+
+	private void record(Map<String, LongAdder> hits, String key) {
+		LongAdder counter = hits.get(key);
+		if (counter == null) {
+			if (hits.size() >= MAX_TRACKED_KEYS) {
+				return;
+			}
+			counter = hits.computeIfAbsent(key, k -> new LongAdder());
+		}
+		counter.increment();
+	}
+}
@@ -0,0 +1,292 @@
+package com.wordcount.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.wordcount.vo.CorpusStatusVO;
+import com.wordcount.vo.DocumentFrequencyVO;
+import com.wordcount.vo.DocumentTermVO;
+import com.wordcount.vo.TopNFilterVO;
+import com.wordcount.vo.WordCountDiffVO;
+import com.wordcount.vo.WordCountStatsVO;
+import com.wordcount.vo.WordSuggestionVO;
+
+/**
+ * Text Count Service placed in front of the cached service implementation.
+ * Lookups found in the cache are answered straight from it; concurrent
+ * identical lookups missing the cache are coalesced into a single call, so
+ * that a burst of misses for the same key computes the value once. Optionally, hot
+ * keys are refreshed ahead of their cache expiry on a schedule.
+ */
+@Service
+@Primary
+public class CoalescingTextCountService implements TextCountService {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * Maximum number of distinct keys tracked for refresh-ahead per cache.
+	 */
+	private static final int MAX_TRACKED_KEYS = 10_000;
+
+	@Autowired
+	@Qualifier("textCountServiceWordMapImpl")
+	private TextCountService textCountService;
+
+	@Autowired(required = false)
+	private CacheManager cacheManager;
+
+	@Autowired(required = false)
+	private CacheWarmupService cacheWarmupService;
+
+	/**
+	 * If true, hot keys are recomputed before their cache entries expire.
+	 */
+	@Value("${wordcount.cache.refresh-ahead.enabled:false}")
+	private boolean refreshAheadEnabled;
+
+	/**
+	 * Minimum number of lookups within a refresh interval for a key to be
+	 * refreshed ahead.
+	 */
+	@Value("${wordcount.cache.refresh-ahead.min-hits:2}")
+	private int refreshAheadMinHits;
+
+	private final RequestCoalescer<String, Long> textCountCoalescer = new RequestCoalescer<>();
+
+	private final RequestCoalescer<Integer, List<Entry<String, Long>>> topNCoalescer = new RequestCoalescer<>();
+
+	private final Map<String, LongAdder> textCountHits = new ConcurrentHashMap<>();
+
+	private final Map<Integer, LongAdder> topNHits = new ConcurrentHashMap<>();
+
+	@Override
+	public Long findTextCount(String text) {
+		if (text == null) {
+			return this.textCountService.findTextCount(text);
+		}
+		this.recordHit(this.textCountHits, text);
+		if (this.cacheWarmupService != null) {
+			this.cacheWarmupService.recordTextCount(text);
+		}
+		return this.cachedOrCoalesced("textCountCache", text, this.textCountCoalescer,
+				() -> this.textCountService.findTextCount(text));
+	}
+
+	@Override
+	public List<Entry<String, Long>> findTopNWordCounts(Integer topN) {
+		if (topN == null) {
+			return this.textCountService.findTopNWordCounts(topN);
+		}
+		this.recordHit(this.topNHits, topN);
+		if (this.cacheWarmupService != null) {
+			this.cacheWarmupService.recordTopN(topN);
+		}
+		List<Entry<String, Long>> list = this.cachedOrCoalesced("topNCountCache", topN, this.topNCoalescer,
+				() -> this.textCountService.findTopNWordCounts(topN));
+		String listVersion = RankedWordCounts.generationVersionOf(list);
+		if (listVersion != null && !listVersion.equals(this.textCountService.getGenerationVersion())) {
+			// Cached by a lookup of the previous generation that completed
+			// after the caches were cleared for the new one
+			this.evict("topNCountCache", topN);
+			list = this.topNCoalescer.execute(topN, () -> this.textCountService.findTopNWordCounts(topN));
+		}
+		return list;
+	}
+
+	@Override
+	public List<WordSuggestionVO> findFuzzyTextCounts(String text, Integer maxDistance, Integer limit) {
+		return this.textCountService.findFuzzyTextCounts(text, maxDistance, limit);
+	}
+
+	@Override
+	public List<Entry<String, Long>> findTopNWordCounts(Integer topN, TopNFilterVO filter) {
+		return this.textCountService.findTopNWordCounts(topN, filter);
+	}
+
+	@Override
+	public List<Entry<String, Long>> updateTextCounts(Map<String, Long> deltas) {
+		return this.textCountService.updateTextCounts(deltas);
+	}
+
+	@Override
+	public void checkpoint() {
+		this.textCountService.checkpoint();
+	}
+
+	@Override
+	public boolean reloadCorpus() {
+		return this.textCountService.reloadCorpus();
+	}
+
+	@Override
+	public WordCountIndex getWordCountIndex() {
+		return this.textCountService.getWordCountIndex();
+	}
+
+	@Override
+	public DocumentFrequencyVO findDocumentFrequency(String text) {
+		return this.textCountService.findDocumentFrequency(text);
+	}
+
+	@Override
+	public DocumentTermVO findDocumentTextCount(String document, String text) {
+		return this.textCountService.findDocumentTextCount(document, text);
+	}
+
+	@Override
+	public List<DocumentTermVO> findTopTfIdfTerms(String document, Integer topN) {
+		return this.textCountService.findTopTfIdfTerms(document, topN);
+	}
+
+	@Override
+	public List<Entry<String, Long>> findWordCountsInRange(Long minCount, Long maxCount, Integer limit) {
+		return this.textCountService.findWordCountsInRange(minCount, maxCount, limit);
+	}
+
+	@Override
+	public WordCountStatsVO getWordCountStats() {
+		return this.textCountService.getWordCountStats();
+	}
+
+	@Override
+	public WordCountDiffVO findWordCountDiff(Integer limit, Long minCount) {
+		return this.textCountService.findWordCountDiff(limit, minCount);
+	}
+
+	@Override
+	public Long findCorpusTextCount(String corpus, String text) {
+		return this.textCountService.findCorpusTextCount(corpus, text);
+	}
+
+	@Override
+	public List<Entry<String, Long>> findCorpusTopNWordCounts(String corpus, Integer topN) {
+		return this.textCountService.findCorpusTopNWordCounts(corpus, topN);
+	}
+
+	@Override
+	public WordCountStatsVO getCorpusWordCountStats(String corpus) {
+		return this.textCountService.getCorpusWordCountStats(corpus);
+	}
+
+	@Override
+	public List<CorpusStatusVO> getCorpora() {
+		return this.textCountService.getCorpora();
+	}
+
+	@Override
+	public String getIndexVersion() {
+		return this.textCountService.getIndexVersion();
+	}
+
+	@Override
+	public String getGenerationVersion() {
+		return this.textCountService.getGenerationVersion();
+	}
+
+	@Override
+	public IndexState getIndexState() {
+		return this.textCountService.getIndexState();
+	}
+
+	@Override
+	public int getIndexProgress() {
+		return this.textCountService.getIndexProgress();
+	}
+
+	/**
+	 * Refreshes the cache entries of the keys looked up at least min-hits
+	 * times since the last run. The interval should be shorter than the cache
+	 * expiry. Each refresh goes through the coalescer, so lookups of a key
+	 * being refreshed wait for the refreshed value rather than recomputing it.
+	 */
+	@Scheduled(fixedDelayString = "${wordcount.cache.refresh-ahead.interval-ms:240000}",
+			initialDelayString = "${wordcount.cache.refresh-ahead.interval-ms:240000}")
+	public void refreshAhead() {
+		if (!this.refreshAheadEnabled || this.cacheManager == null
+				|| this.textCountService.getIndexState() != IndexState.READY) {
+			this.textCountHits.clear();
+			this.topNHits.clear();
+			return;
+		}
+		int refreshed = this.refreshHotKeys("textCountCache", this.textCountHits, this.textCountCoalescer,
+				this.textCountService::findTextCount);
+		refreshed += this.refreshHotKeys("topNCountCache", this.topNHits, this.topNCoalescer,
+				this.textCountService::findTopNWordCounts);
+		logger.info("Refreshed {} hot cache entries ahead of expiry", refreshed);
+	}
+
+	private <K, V> int refreshHotKeys(String cacheName, Map<K, LongAdder> hits, RequestCoalescer<K, V> coalescer,
+			Function<K, V> loader) {
+		Cache cache = this.cacheManager.getCache(cacheName);
+		int refreshed = 0;
+		for (Map.Entry<K, LongAdder> hit : hits.entrySet()) {
+			K key = hit.getKey();
+			if (cache == null || hit.getValue().sum() < this.refreshAheadMinHits) {
+				continue;
+			}
+			try {
+				coalescer.execute(key, () -> {
+					cache.evict(key);
+					return loader.apply(key);
+				});
+				refreshed++;
+			} catch (RuntimeException ex) {
+				logger.warn("Error occurred in refreshing {} entry: {}", cacheName, key, ex);
+			}
+		}
+		hits.clear();
+		return refreshed;
+	}
+
+	/**
+	 * Returns the cached value of the key if any, so that hits do not go
+	 * through the coalescer, else the value computed by the coalesced loader.
+	 */
+	@SuppressWarnings("unchecked")
+	private <K, V> V cachedOrCoalesced(String cacheName, K key, RequestCoalescer<K, V> coalescer,
+			Supplier<V> loader) {
+		Cache cache = this.cacheManager != null ? this.cacheManager.getCache(cacheName) : null;
+		Cache.ValueWrapper cached = cache != null ? cache.get(key) : null;
+		if (cached != null && cached.get() != null) {
+			return (V) cached.get();
+		}
+		return coalescer.execute(key, loader);
+	}
+
+	private void evict(String cacheName, Object key) {
+		Cache cache = this.cacheManager != null ? this.cacheManager.getCache(cacheName) : null;
+		if (cache != null) {
+			cache.evict(key);
+		}
+	}
+
+	private <K> void recordHit(Map<K, LongAdder> hits, K key) {
+		if (!this.refreshAheadEnabled) {
+			return;
+		}
+		LongAdder counter = hits.get(key);
+		if (counter == null) {
+			if (hits.size() >= MAX_TRACKED_KEYS) {
+				return;
+			}
+			counter = hits.computeIfAbsent(key, k -> new LongAdder());
+		}
+		counter.increment();
+	}
+}
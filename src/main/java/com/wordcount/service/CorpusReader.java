@@ -0,0 +1,383 @@
+package com.wordcount.service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Reads a corpus made of one or more text resources and counts the words it
+ * contains. Resources ending with '.gz' are decompressed on the fly. Each
+ * resource is decompressed and tokenized on its own worker thread, directly
+ * on its UTF-8 bytes by a Utf8WordCounter unless it is split into line
+ * documents, and its counts are merged into a single word count map, while
+ * progress and throughput are reported in the log. Optionally, the counts of
+ * each document (a resource, or each non empty line of a resource) are added
+ * to a DocumentIndex builder.
+ */
+public class CorpusReader {
+	private static final Logger logger = LoggerFactory.getLogger(CorpusReader.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Maximum number of line documents buffered before they are added to the
+	 * document index builder, which is shared by the reader threads.
+	 */
+	private static final int LINE_DOCUMENT_BATCH = 4096;
+
+	private static final Pattern NON_WORD_CHARS = Pattern.compile("[^a-z0-9\\s]");
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final int parallelism;
+
+	private final int progressInterval;
+
+	private final AtomicInteger totalSources = new AtomicInteger();
+
+	private final AtomicInteger completedSources = new AtomicInteger();
+
+	private final AtomicLong bytesRead = new AtomicLong();
+
+	private volatile long totalBytes;
+
+	private final AtomicLong contentHash = new AtomicLong();
+
+	private final DocumentIndex.Builder documents;
+
+	private final boolean lineDocuments;
+
+	/**
+	 * @param parallelism
+	 *            Number of resources read concurrently. Values less than 1
+	 *            mean one thread per available processor.
+	 * @param progressInterval
+	 *            Number of resources read between two progress log entries.
+	 *            Values less than 1 only log the final summary.
+	 */
+	public CorpusReader(int parallelism, int progressInterval) {
+		this(parallelism, progressInterval, null, false);
+	}
+
+	/**
+	 * @param parallelism
+	 *            Number of resources read concurrently. Values less than 1
+	 *            mean one thread per available processor.
+	 * @param progressInterval
+	 *            Number of resources read between two progress log entries.
+	 *            Values less than 1 only log the final summary.
+	 * @param documents
+	 *            Builder the document counts are added to, null for none.
+	 * @param lineDocuments
+	 *            If true, each non empty line is a document named
+	 *            <code>{document name}:{line number}</code>, else each
+	 *            resource is a document named by its document name.
+	 */
+	public CorpusReader(int parallelism, int progressInterval, DocumentIndex.Builder documents,
+			boolean lineDocuments) {
+		this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		this.progressInterval = progressInterval;
+		this.documents = documents;
+		this.lineDocuments = lineDocuments;
+	}
+
+	/**
+	 * Reads all the given resources and returns the merged word counts. The
+	 * documents are named by the file names of the resources.
+	 *
+	 * @param sources
+	 *            Text resources making up the corpus.
+	 * @return Unsorted map of word to its count across all the sources.
+	 * @throws ApplicationException
+	 *             If any of the sources cannot be read. The cause is the
+	 *             original I/O error.
+	 */
+	public Map<String, Long> read(Resource[] sources) {
+		String[] documentNames = new String[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			documentNames[i] = sources[i].getFilename() != null ? sources[i].getFilename()
+					: sources[i].getDescription();
+		}
+		return this.read(sources, documentNames);
+	}
+
+	/**
+	 * Reads all the given resources and returns the merged word counts.
+	 *
+	 * @param sources
+	 *            Text resources making up the corpus.
+	 * @param documentNames
+	 *            Document name of each resource, e.g. its path relative to
+	 *            the corpus location. Distinct names keep the documents apart
+	 *            whatever the order the resources are read in.
+	 * @return Unsorted map of word to its count across all the sources.
+	 * @throws ApplicationException
+	 *             If any of the sources cannot be read. The cause is the
+	 *             original I/O error.
+	 */
+	public Map<String, Long> read(Resource[] sources, String[] documentNames) {
+		this.totalSources.set(sources.length);
+		this.completedSources.set(0);
+		this.bytesRead.set(0);
+		this.contentHash.set(0);
+		this.totalBytes = totalLength(sources);
+
+		Map<String, Long> counts = new ConcurrentHashMap<>();
+		long startTime = System.nanoTime();
+		int threads = Math.max(1, Math.min(this.parallelism, sources.length));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>(sources.length);
+			for (int i = 0; i < sources.length; i++) {
+				Resource source = sources[i];
+				String documentName = documentNames[i];
+				futures.add(executor.submit(() -> {
+					Map<String, Long> sourceCounts = readSource(source, documentName);
+					sourceCounts.forEach((word, count) -> counts.merge(word, count, Long::sum));
+					reportProgress(startTime);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException ex) {
+			throw new ApplicationException("Error occurred in reading corpus source", ex.getCause());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ApplicationException("Interrupted while reading corpus", ex);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+		logger.info("Read {} corpus source(s), {} bytes in {} ms ({} MB/s) using {} thread(s)", sources.length,
+				this.bytesRead.get(), elapsedMillis, throughput(this.bytesRead.get(), elapsedMillis), threads);
+		return counts;
+	}
+
+	/**
+	 * @return Total number of sources of the current/last read.
+	 */
+	public int getTotalSources() {
+		return this.totalSources.get();
+	}
+
+	/**
+	 * @return Number of sources fully read so far.
+	 */
+	public int getCompletedSources() {
+		return this.completedSources.get();
+	}
+
+	/**
+	 * @return Number of (compressed) bytes read so far.
+	 */
+	public long getBytesRead() {
+		return this.bytesRead.get();
+	}
+
+	/**
+	 * Returns a hash of the content of all the sources read, independent of
+	 * the order they were read in: the sum of the mixed CRC32 of each source.
+	 * 
+	 * @return Content hash of the last read.
+	 */
+	public long getContentHash() {
+		return this.contentHash.get();
+	}
+
+	/**
+	 * Returns the read progress percentage: based on the bytes read when the
+	 * size of every source is known, otherwise on the number of sources read.
+	 * 
+	 * @return Progress percentage between 0 and 100.
+	 */
+	public int getProgress() {
+		int total = this.totalSources.get();
+		int completed = this.completedSources.get();
+		if (total == 0 || completed == total) {
+			return completed == total && total > 0 ? 100 : 0;
+		}
+		long bytesTotal = this.totalBytes;
+		if (bytesTotal > 0) {
+			return (int) Math.min(99, this.bytesRead.get() * 100 / bytesTotal);
+		}
+		return completed * 100 / total;
+	}
+
+	/**
+	 * Sums the length of all the sources, or returns -1 if any is unknown.
+	 */
+	private static long totalLength(Resource[] sources) {
+		long total = 0;
+		for (Resource source : sources) {
+			try {
+				long length = source.contentLength();
+				if (length <= 0) {
+					return -1;
+				}
+				total += length;
+			} catch (IOException ex) {
+				return -1;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Counts the words of a single source.
+	 */
+	private Map<String, Long> readSource(Resource source, String documentName) throws IOException {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Reading corpus source: {}", source.getDescription());
+		}
+		CRC32 crc = new CRC32();
+		Map<String, Long> sourceCounts;
+		if (this.documents == null || !this.lineDocuments) {
+			// Words counted straight from the UTF-8 bytes
+			Utf8WordCounter counter = new Utf8WordCounter();
+			try (InputStream in = openStream(source, crc)) {
+				counter.count(in);
+			}
+			sourceCounts = counter.toMap();
+		} else {
+			sourceCounts = this.readLineDocuments(source, documentName, crc);
+		}
+		if (this.documents != null && !this.lineDocuments) {
+			this.documents.addDocument(documentName, sourceCounts);
+		}
+		this.contentHash.addAndGet((crc.getValue() + 1) * 0x9E3779B97F4A7C15L);
+		return sourceCounts;
+	}
+
+	/**
+	 * Counts the words of a single source, adding each non empty line to the
+	 * document index as a document. The lines are buffered and added in
+	 * batches, so the reader threads rarely contend for the builder.
+	 */
+	private Map<String, Long> readLineDocuments(Resource source, String documentName, CRC32 crc)
+			throws IOException {
+		Map<String, Long> sourceCounts = new HashMap<>();
+		List<String> lineNames = new ArrayList<>();
+		List<Map<String, Long>> lineCounts = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(openStream(source, crc), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			String line;
+			int lineNumber = 0;
+			Map<String, Long> counts = new HashMap<>();
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				countWords(line, counts);
+				if (!counts.isEmpty()) {
+					counts.forEach((word, count) -> sourceCounts.merge(word, count, Long::sum));
+					lineNames.add(documentName + ':' + lineNumber);
+					lineCounts.add(counts);
+					counts = new HashMap<>();
+					if (lineNames.size() == LINE_DOCUMENT_BATCH) {
+						this.documents.addDocuments(lineNames, lineCounts);
+						lineNames.clear();
+						lineCounts.clear();
+					}
+				}
+			}
+		}
+		if (!lineNames.isEmpty()) {
+			this.documents.addDocuments(lineNames, lineCounts);
+		}
+		return sourceCounts;
+	}
+
+	/**
+	 * Opens the source stream, counting the bytes read, updating the given
+	 * checksum with them and decompressing the stream if it is gzip'd.
+	 */
+	private InputStream openStream(Resource source, Checksum checksum) throws IOException {
+		InputStream in = source.getInputStream();
+		if (in == null) {
+			throw new IOException("No content available for " + source.getDescription());
+		}
+		in = new FilterInputStream(new CheckedInputStream(in, checksum)) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b >= 0) {
+					bytesRead.incrementAndGet();
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+				if (n > 0) {
+					bytesRead.addAndGet(n);
+				}
+				return n;
+			}
+		};
+		String fileName = source.getFilename();
+		if (fileName != null && fileName.endsWith(".gz")) {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+		return in;
+	}
+
+	private void reportProgress(long startTime) {
+		int completed = this.completedSources.incrementAndGet();
+		if (this.progressInterval > 0 && completed % this.progressInterval == 0) {
+			long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+			logger.info("Corpus progress: {}/{} source(s), {} bytes, {} MB/s", completed, this.totalSources.get(),
+					this.bytesRead.get(), throughput(this.bytesRead.get(), elapsedMillis));
+		}
+	}
+
+	private static String throughput(long bytes, long elapsedMillis) {
+		return String.format("%.2f", bytes * 1000.0 / elapsedMillis / (1024 * 1024));
+	}
+
+	/**
+	 * Splits the given text into lower case words made of letters and digits
+	 * and adds them to the given count map. Any other character, including
+	 * tabs and line breaks, separates words, so the words at the end and start
+	 * of two consecutive lines are never joined.
+	 *
+	 * @param text
+	 *            Text to tokenize.
+	 * @param counts
+	 *            Word count map to update.
+	 */
+	static void countWords(String text, Map<String, Long> counts) {
+		String normalized = NON_WORD_CHARS.matcher(text.toLowerCase()).replaceAll(" ");
+		for (String word : WHITESPACE.split(normalized)) {
+			if (!word.isEmpty()) {
+				counts.merge(word, 1L, Long::sum);
+			}
+		}
+	}
+}
@@ -0,0 +1,302 @@
+package com.wordcount.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.wordcount.exception.ApplicationException;
+import com.wordcount.vo.CorpusStatusVO;
+
+/**
+ * Registry of the named corpora hosted next to the default one, each with
+ * its own word count index. Corpora are defined by name and resource
+ * locations, and loaded on first access. Every loaded index is charged its
+ * estimated size against a shared byte budget; when a load exceeds it, the
+ * least recently used corpora are unloaded, and spilled to a snapshot file
+ * if a spill directory is configured so that their next load does not read
+ * the corpus again.
+ * <p>
+ * Definitions format: <code>name=location[,location];name=...</code>, e.g.
+ * <code>news=file:/data/news/**&#47;*.txt.gz;legal=classpath:/legal.txt</code>.
+ */
+@Service
+public class CorpusRegistry {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private static final Pattern CORPUS_NAME = Pattern.compile("[a-zA-Z0-9_-]{1,64}");
+
+	/**
+	 * Names taken by the paths of the default corpus API.
+	 */
+	private static final Set<String> RESERVED_NAMES = new HashSet<>(Arrays.asList("search", "top", "counts",
+			"stats", "ready", "export", "documents", "fuzzy", "corpora", "diff"));
+
+	@Value("${wordcount.corpora.definitions:}")
+	private String definitions = "";
+
+	/**
+	 * Maximum estimated size of the loaded corpora.
+	 */
+	@Value("${wordcount.corpora.max-bytes:268435456}")
+	private long maxBytes = 256L * 1024 * 1024;
+
+	/**
+	 * Directory of the snapshots of the unloaded corpora, none if empty.
+	 */
+	@Value("${wordcount.corpora.spill-directory:}")
+	private String spillDirectory = "";
+
+	@Value("${wordcount.corpus.parallelism:0}")
+	private int corpusParallelism;
+
+	@Value("${wordcount.corpus.progress-interval:100}")
+	private int corpusProgressInterval = 100;
+
+	private final Map<String, Corpus> corpora = new ConcurrentHashMap<>();
+
+	private final RequestCoalescer<String, WordCountIndex> loads = new RequestCoalescer<>();
+
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Parses the corpus definitions and deletes the snapshots spilled by a
+	 * previous run, as their corpus may have changed since.
+	 */
+	@PostConstruct
+	public void init() {
+		for (String definition : StringUtils.delimitedListToStringArray(this.definitions, ";")) {
+			if (!StringUtils.hasText(definition)) {
+				continue;
+			}
+			int separator = definition.indexOf('=');
+			String name = separator > 0 ? definition.substring(0, separator).trim() : "";
+			if (!CORPUS_NAME.matcher(name).matches() || RESERVED_NAMES.contains(name) || separator == definition.length() - 1) {
+				throw new ApplicationException(
+						new StringBuilder("Corpus definition: ").append(definition).append(" is invalid").toString());
+			}
+			this.corpora.put(name, new Corpus(name, definition.substring(separator + 1).trim()));
+			this.deleteSnapshots(name);
+		}
+		if (!this.corpora.isEmpty()) {
+			logger.info("Hosting {} named corpora within {} bytes: {}", this.corpora.size(), this.maxBytes,
+					this.corpora.keySet());
+		}
+	}
+
+	/**
+	 * Returns the index of the given corpus, loading it on first access and
+	 * unloading least recently used corpora if the byte budget is exceeded.
+	 * Concurrent first accesses share a single load.
+	 *
+	 * @param name
+	 *            Corpus name.
+	 * @return Word count index of the corpus.
+	 * @throws ApplicationException
+	 *             If the corpus is unknown or cannot be loaded.
+	 */
+	public WordCountIndex getIndex(String name) {
+		Corpus corpus = name != null ? this.corpora.get(name) : null;
+		if (corpus == null) {
+			throw new ApplicationException(new StringBuilder("Corpus: ").append(name).append(" not found").toString());
+		}
+		corpus.lastAccess = System.nanoTime();
+		WordCountIndex index = corpus.index;
+		if (index != null) {
+			return index;
+		}
+		return this.loads.execute(name, () -> {
+			WordCountIndex loaded = corpus.index;
+			if (loaded == null) {
+				loaded = this.load(corpus);
+				corpus.index = loaded;
+				corpus.sizeBytes = loaded.estimatedSizeBytes();
+				corpus.loads++;
+				this.enforceBudget(corpus);
+			}
+			return loaded;
+		});
+	}
+
+	/**
+	 * @return Status of every named corpus, by name.
+	 */
+	public List<CorpusStatusVO> getCorpora() {
+		List<CorpusStatusVO> statuses = new ArrayList<>();
+		for (Corpus corpus : this.corpora.values()) {
+			WordCountIndex index = corpus.index;
+			statuses.add(new CorpusStatusVO(corpus.name, index != null, index != null ? index.size() : 0,
+					index != null ? corpus.sizeBytes : 0, corpus.loads, corpus.spilled));
+		}
+		statuses.sort((a, b) -> a.getName().compareTo(b.getName()));
+		return statuses;
+	}
+
+	/**
+	 * @return Estimated size of the loaded corpora.
+	 */
+	public long getLoadedBytes() {
+		long bytes = 0;
+		for (Corpus corpus : this.corpora.values()) {
+			if (corpus.index != null) {
+				bytes += corpus.sizeBytes;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Reads the corpus from its snapshot if spilled, else from its sources.
+	 */
+	private WordCountIndex load(Corpus corpus) {
+		long startTime = System.nanoTime();
+		try {
+			Map<String, Long> counts;
+			long contentHash;
+			CountCheckpoint snapshot = corpus.spilled ? CountCheckpoint.loadLatest(this.snapshotPath(corpus.name))
+					: null;
+			if (snapshot != null) {
+				counts = snapshot.getCounts();
+				contentHash = snapshot.getContentHash();
+			} else {
+				CorpusReader reader = new CorpusReader(this.corpusParallelism, this.corpusProgressInterval);
+				counts = reader.read(this.resolve(corpus));
+				contentHash = reader.getContentHash();
+			}
+			WordCountIndex index = new WordCountIndex(counts, new StringBuilder(Long.toHexString(contentHash))
+					.append('.').append(this.generation.incrementAndGet()).toString());
+			corpus.contentHash = contentHash;
+			logger.info("Loaded corpus {} from {}: {} words, ~{} bytes in {} ms", corpus.name,
+					snapshot != null ? "snapshot" : "sources", index.size(), index.estimatedSizeBytes(),
+					(System.nanoTime() - startTime) / 1_000_000);
+			return index;
+		} catch (ApplicationException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new ApplicationException(
+					new StringBuilder("Error occurred in loading corpus: ").append(corpus.name).toString(), ex);
+		}
+	}
+
+	/**
+	 * Unloads the least recently used corpora, other than the one just
+	 * loaded, until the loaded corpora fit in the byte budget.
+	 */
+	private synchronized void enforceBudget(Corpus loaded) {
+		long bytes = this.getLoadedBytes();
+		List<Corpus> candidates = new ArrayList<>();
+		for (Corpus corpus : this.corpora.values()) {
+			if (corpus != loaded && corpus.index != null) {
+				candidates.add(corpus);
+			}
+		}
+		candidates.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+		for (Corpus corpus : candidates) {
+			if (bytes <= this.maxBytes) {
+				break;
+			}
+			bytes -= corpus.sizeBytes;
+			this.unload(corpus);
+		}
+		if (bytes > this.maxBytes) {
+			logger.warn("Corpus {} alone exceeds the corpora byte budget: ~{} of {} bytes", loaded.name, bytes,
+					this.maxBytes);
+		}
+	}
+
+	/**
+	 * Drops the index of the corpus, spilling it to a snapshot first if
+	 * configured. Lookups holding the index complete normally.
+	 */
+	private void unload(Corpus corpus) {
+		WordCountIndex index = corpus.index;
+		if (StringUtils.hasText(this.spillDirectory) && !corpus.spilled) {
+			try {
+				CountCheckpoint.write(this.snapshotPath(corpus.name), 0, corpus.contentHash, index);
+				corpus.spilled = true;
+			} catch (IOException ex) {
+				logger.warn("Error occurred in spilling corpus {}, it will be read again", corpus.name, ex);
+			}
+		}
+		corpus.index = null;
+		logger.info("Unloaded corpus {} (~{} bytes){}", corpus.name, corpus.sizeBytes,
+				corpus.spilled ? " to snapshot" : "");
+	}
+
+	private void deleteSnapshots(String name) {
+		if (StringUtils.hasText(this.spillDirectory)) {
+			try {
+				CountCheckpoint.deleteOlder(this.snapshotPath(name), 0);
+			} catch (IOException ex) {
+				logger.warn("Error occurred in deleting the snapshots of corpus {}", name, ex);
+			}
+		}
+	}
+
+	private Path snapshotPath(String name) {
+		return Paths.get(this.spillDirectory, name);
+	}
+
+	private Resource[] resolve(Corpus corpus) throws IOException {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		List<Resource> sources = new ArrayList<>();
+		for (String location : StringUtils.commaDelimitedListToStringArray(corpus.locations)) {
+			for (Resource resource : resolver.getResources(location.trim())) {
+				if (resource.isReadable()) {
+					sources.add(resource);
+				}
+			}
+		}
+		if (sources.isEmpty()) {
+			throw new FileNotFoundException("No corpus files found at: " + corpus.locations);
+		}
+		return sources.toArray(new Resource[sources.size()]);
+	}
+
+	/**
+	 * @return Names of the corpora.
+	 */
+	public Collection<String> getNames() {
+		return Collections.unmodifiableSet(this.corpora.keySet());
+	}
+
+	/**
+	 * Named corpus and its index, null while not loaded.
+	 */
+	private static final class Corpus {
+		private final String name;
+		private final String locations;
+		private volatile WordCountIndex index;
+		private volatile long lastAccess;
+		private volatile long sizeBytes;
+		private volatile long contentHash;
+		private volatile boolean spilled;
+		private volatile int loads;
+
+		Corpus(String name, String locations) {
+			this.name = name;
+			this.locations = locations;
+		}
+	}
+}
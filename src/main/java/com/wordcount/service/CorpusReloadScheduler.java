@@ -0,0 +1,43 @@
+package com.wordcount.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Rescans the corpus of the text count service every reload interval, so
+ * that a changed corpus is published as a new index generation, keyed on
+ * the content hash of the corpus. Kept apart from the service, whose bean is
+ * an interface proxy, like the CountCheckpointScheduler.
+ */
+@Service
+public class CorpusReloadScheduler {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	@Autowired
+	private TextCountService textCountService;
+
+	@Value("${wordcount.corpus.reload.enabled:false}")
+	private boolean enabled;
+
+	/**
+	 * Reloads the corpus if it changed, once the index is built.
+	 */
+	@Scheduled(fixedDelayString = "${wordcount.corpus.reload.interval-ms:60000}",
+			initialDelayString = "${wordcount.corpus.reload.interval-ms:60000}")
+	public void reload() {
+		if (!this.enabled || this.textCountService.getIndexState() != IndexState.READY) {
+			return;
+		}
+		try {
+			this.textCountService.reloadCorpus();
+		} catch (ApplicationException ex) {
+			logger.warn("Error occurred in reloading corpus", ex);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.wordcount.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact snapshot of the word counts at a count log sequence number. The
+ * counts are written in rank order, each as the variable length difference
+ * with the previous (larger) count, and the file is deflated. Checkpoints
+ * are written to a temporary file, fsync'd and atomically renamed, so a
+ * checkpoint file is either complete or absent.
+ * <p>
+ * File format: <code>int magic, long sequence, long contentHash, int size,
+ * long top count, (UTF word, varlong count difference) * size, int
+ * magic</code>.
+ */
+public class CountCheckpoint {
+
+	private static final int MAGIC = 0x57434350;
+
+	private static final String PREFIX = "checkpoint-";
+
+	private static final String SUFFIX = ".ckpt";
+
+	private final long sequence;
+
+	private final long contentHash;
+
+	private final Map<String, Long> counts;
+
+	CountCheckpoint(long sequence, long contentHash, Map<String, Long> counts) {
+		this.sequence = sequence;
+		this.contentHash = contentHash;
+		this.counts = counts;
+	}
+
+	/**
+	 * @return Sequence number of the last count log record included.
+	 */
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	/**
+	 * @return Content hash of the corpus the counts were first read from.
+	 */
+	public long getContentHash() {
+		return this.contentHash;
+	}
+
+	/**
+	 * @return Map of word to count.
+	 */
+	public Map<String, Long> getCounts() {
+		return this.counts;
+	}
+
+	/**
+	 * Writes a checkpoint of the ranked counts of the given index.
+	 *
+	 * @param directory
+	 *            Checkpoint directory.
+	 * @param sequence
+	 *            Sequence number of the last count log record included.
+	 * @param contentHash
+	 *            Content hash of the corpus.
+	 * @param index
+	 *            Index whose ranked counts are written.
+	 * @return Path of the checkpoint.
+	 * @throws IOException
+	 *             If the checkpoint cannot be written.
+	 */
+	public static Path write(Path directory, long sequence, long contentHash, WordCountIndex index)
+			throws IOException {
+		Files.createDirectories(directory);
+		Path path = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+		Path tmp = directory.resolve(path.getFileName() + ".tmp");
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new DeflaterOutputStream(Files.newOutputStream(tmp), deflater, 65536), 65536))) {
+			out.writeInt(MAGIC);
+			out.writeLong(sequence);
+			out.writeLong(contentHash);
+			out.writeInt(index.size());
+			long previous = index.size() > 0 ? index.getCountAt(0) : 0;
+			out.writeLong(previous);
+			for (int rank = 0; rank < index.size(); rank++) {
+				out.writeUTF(index.getWord(rank));
+				writeVarLong(out, previous - index.getCountAt(rank));
+				previous = index.getCountAt(rank);
+			}
+			out.writeInt(MAGIC);
+		} finally {
+			deflater.end();
+		}
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return path;
+	}
+
+	/**
+	 * Loads the most recent readable checkpoint of the directory.
+	 *
+	 * @param directory
+	 *            Checkpoint directory.
+	 * @return Checkpoint, null if none.
+	 * @throws IOException
+	 *             If the directory cannot be listed.
+	 */
+	public static CountCheckpoint loadLatest(Path directory) throws IOException {
+		List<Path> checkpoints = list(directory);
+		for (int i = checkpoints.size() - 1; i >= 0; i--) {
+			try {
+				return read(checkpoints.get(i));
+			} catch (IOException ex) {
+				// Fall back to the previous checkpoint
+				continue;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Deletes all the checkpoints but the given number of most recent ones.
+	 *
+	 * @param directory
+	 *            Checkpoint directory.
+	 * @param retained
+	 *            Number of checkpoints kept.
+	 * @return Sequence number of the oldest checkpoint kept, 0 if none.
+	 * @throws IOException
+	 *             If the directory cannot be listed.
+	 */
+	public static long deleteOlder(Path directory, int retained) throws IOException {
+		List<Path> checkpoints = list(directory);
+		for (int i = 0; i < checkpoints.size() - retained; i++) {
+			Files.deleteIfExists(checkpoints.get(i));
+		}
+		int oldest = Math.max(0, checkpoints.size() - retained);
+		return oldest < checkpoints.size() ? sequence(checkpoints.get(oldest)) : 0;
+	}
+
+	private static CountCheckpoint read(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new InflaterInputStream(Files.newInputStream(path)), 65536))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a count checkpoint: " + path);
+			}
+			long sequence = in.readLong();
+			long contentHash = in.readLong();
+			int size = in.readInt();
+			Map<String, Long> counts = new HashMap<>(size * 4 / 3 + 1);
+			long count = in.readLong();
+			for (int i = 0; i < size; i++) {
+				String word = in.readUTF();
+				count -= readVarLong(in);
+				counts.put(word, count);
+			}
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Truncated count checkpoint: " + path);
+			}
+			return new CountCheckpoint(sequence, contentHash, counts);
+		}
+	}
+
+	/**
+	 * Returns the checkpoint files in sequence order.
+	 */
+	private static List<Path> list(Path directory) throws IOException {
+		List<Path> checkpoints = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return checkpoints;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+			stream.forEach(checkpoints::add);
+		}
+		checkpoints.sort((a, b) -> Long.compare(sequence(a), sequence(b)));
+		return checkpoints;
+	}
+
+	private static long sequence(Path checkpoint) {
+		String name = checkpoint.getFileName().toString();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+	}
+
+	private static void writeVarLong(OutputStream out, long value) throws IOException {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			out.write((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		out.write((int) remaining);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed count checkpoint");
+	}
+}
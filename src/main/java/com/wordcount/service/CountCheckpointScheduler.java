@@ -0,0 +1,30 @@
+package com.wordcount.service;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Triggers the count checkpoints of the text count service every
+ * checkpoint interval and on shutdown. Kept apart from the service, whose
+ * bean is an interface proxy, so that the triggers call the checkpoint
+ * method declared on the TextCountService interface.
+ */
+@Service
+public class CountCheckpointScheduler {
+
+	@Autowired
+	private TextCountService textCountService;
+
+	/**
+	 * Folds the count updates into a new index generation and checkpoint.
+	 */
+	@Scheduled(fixedDelayString = "${wordcount.wal.checkpoint-interval-ms:300000}",
+			initialDelayString = "${wordcount.wal.checkpoint-interval-ms:300000}")
+	@PreDestroy
+	public void checkpoint() {
+		this.textCountService.checkpoint();
+	}
+}
@@ -0,0 +1,490 @@
+package com.wordcount.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Append-only write-ahead log of word count deltas, split in segment files
+ * named after the sequence number of their first record. Appends are queued
+ * and written by a single writer thread, which writes every queued record in
+ * one batch followed by at most one fsync (group commit): callers waiting for
+ * durability share the cost of the fsync. The fsync policy trades
+ * durability for throughput:
+ * <ol>
+ * <li>ALWAYS: appends are acknowledged once written and fsync'd,</li>
+ * <li>INTERVAL: appends are acknowledged once written, and fsync'd every
+ * fsync interval,</li>
+ * <li>NONE: appends are acknowledged once written, the OS flushes them.</li>
+ * </ol>
+ * Record format: <code>int length, int crc32, payload</code> where payload is
+ * <code>long sequence, int size, (UTF word, long delta) * size</code>. A torn
+ * or corrupt record ends the replay of its segment.
+ */
+public class CountLog implements Closeable {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private static final String SEGMENT_PREFIX = "counts-";
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	/**
+	 * Upper bound of a record length, longer ones are corrupt.
+	 */
+	private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * Fsync policy of the log.
+	 */
+	public enum FsyncPolicy {
+		ALWAYS, INTERVAL, NONE
+	}
+
+	private final Path directory;
+
+	private final FsyncPolicy fsyncPolicy;
+
+	private final long fsyncIntervalNanos;
+
+	/**
+	 * Records and segment rotations queued for the writer, guarded by this.
+	 */
+	private List<Pending> pending = new ArrayList<>();
+
+	private long lastSequence;
+
+	private long acknowledgedSequence;
+
+	private IOException failure;
+
+	private boolean closed;
+
+	private Thread writer;
+
+	private FileChannel channel;
+
+	private long bytesWritten;
+
+	private long batches;
+
+	/**
+	 * @param directory
+	 *            Directory of the segment files, created if missing.
+	 * @param fsyncPolicy
+	 *            Fsync policy.
+	 * @param fsyncIntervalMillis
+	 *            Fsync interval of the INTERVAL policy.
+	 */
+	public CountLog(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+		this.directory = directory;
+		this.fsyncPolicy = fsyncPolicy;
+		this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+	}
+
+	/**
+	 * Replays the records of the log following the given sequence number, in
+	 * order. Must be called before open.
+	 *
+	 * @param afterSequence
+	 *            Sequence number of the last record already applied.
+	 * @param consumer
+	 *            Called with the sequence number and deltas of each record.
+	 * @return Sequence number of the last record of the log, or afterSequence
+	 *         if greater.
+	 * @throws IOException
+	 *             If a segment cannot be read.
+	 */
+	public long replay(long afterSequence, BiConsumer<Long, Map<String, Long>> consumer) throws IOException {
+		long last = afterSequence;
+		for (Path segment : this.segments()) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+				while (true) {
+					byte[] payload = readRecord(in);
+					if (payload == null) {
+						break;
+					}
+					DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+					long sequence = record.readLong();
+					int size = record.readInt();
+					Map<String, Long> deltas = new HashMap<>(size * 4 / 3 + 1);
+					for (int i = 0; i < size; i++) {
+						deltas.put(record.readUTF(), record.readLong());
+					}
+					if (sequence > afterSequence) {
+						consumer.accept(sequence, deltas);
+					}
+					last = Math.max(last, sequence);
+				}
+			} catch (CorruptRecordException ex) {
+				logger.warn("Count log segment {} ends with a torn or corrupt record, ignored", segment);
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Opens a new segment following the given sequence number and starts the
+	 * writer thread.
+	 *
+	 * @param sequence
+	 *            Sequence number of the last record of the log.
+	 * @throws IOException
+	 *             If the segment cannot be created.
+	 */
+	public synchronized void open(long sequence) throws IOException {
+		Files.createDirectories(this.directory);
+		this.lastSequence = sequence;
+		this.acknowledgedSequence = sequence;
+		this.channel = this.openSegment(sequence + 1);
+		this.writer = new Thread(this::write, "count-log-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Queues a record of the given deltas and returns its sequence number.
+	 * Records are written in sequence order; callers needing a global order
+	 * between appends and other state changes serialize their calls.
+	 *
+	 * @param deltas
+	 *            Map of word to count delta.
+	 * @return Sequence number of the record.
+	 * @throws ApplicationException
+	 *             If the log is closed or failed.
+	 */
+	public synchronized long append(Map<String, Long> deltas) {
+		this.checkWritable();
+		long sequence = ++this.lastSequence;
+		this.pending.add(new Pending(sequence, encode(sequence, deltas)));
+		this.notifyAll();
+		return sequence;
+	}
+
+	/**
+	 * Waits until the record of the given sequence number is acknowledged
+	 * according to the fsync policy.
+	 *
+	 * @param sequence
+	 *            Sequence number of the record.
+	 * @throws ApplicationException
+	 *             If the log failed or the wait was interrupted.
+	 */
+	public synchronized void awaitDurable(long sequence) {
+		while (this.acknowledgedSequence < sequence && this.failure == null) {
+			try {
+				this.wait();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new ApplicationException("Interrupted while writing count log", ex);
+			}
+		}
+		if (this.acknowledgedSequence < sequence) {
+			throw new ApplicationException("Error occurred in writing count log", this.failure);
+		}
+	}
+
+	/**
+	 * Queues the switch to a new segment starting after the last record
+	 * appended, so that the records appended so far can be deleted once
+	 * checkpointed.
+	 *
+	 * @return Sequence number of the last record of the previous segments.
+	 */
+	public synchronized long rotate() {
+		this.checkWritable();
+		this.pending.add(new Pending(this.lastSequence + 1, null));
+		this.notifyAll();
+		return this.lastSequence;
+	}
+
+	/**
+	 * Deletes the segments whose records all have a sequence number up to
+	 * the given one.
+	 *
+	 * @param sequence
+	 *            Sequence number of the last checkpointed record.
+	 * @return Number of segments deleted.
+	 * @throws IOException
+	 *             If the directory cannot be listed.
+	 */
+	public int deleteSegmentsUpTo(long sequence) throws IOException {
+		List<Path> segments = this.segments();
+		int deleted = 0;
+		for (int i = 0; i + 1 < segments.size(); i++) {
+			if (firstSequence(segments.get(i + 1)) <= sequence + 1 && Files.deleteIfExists(segments.get(i))) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	/**
+	 * @return Sequence number of the last record appended.
+	 */
+	public synchronized long getLastSequence() {
+		return this.lastSequence;
+	}
+
+	/**
+	 * @return Number of bytes written since the log was opened.
+	 */
+	public synchronized long getBytesWritten() {
+		return this.bytesWritten;
+	}
+
+	/**
+	 * @return Number of write batches since the log was opened.
+	 */
+	public synchronized long getBatches() {
+		return this.batches;
+	}
+
+	/**
+	 * Writes the queued records, fsyncs and stops the writer thread.
+	 */
+	@Override
+	public void close() throws IOException {
+		Thread thread;
+		synchronized (this) {
+			this.closed = true;
+			this.notifyAll();
+			thread = this.writer;
+		}
+		if (thread != null) {
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (this.channel != null && this.channel.isOpen()) {
+			this.channel.force(false);
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Writer loop: drains the queue, writes the records in one batch and
+	 * acknowledges them according to the fsync policy.
+	 */
+	private void write() {
+		long lastForce = System.nanoTime();
+		boolean unforced = false;
+		try {
+			while (true) {
+				List<Pending> batch;
+				synchronized (this) {
+					while (this.pending.isEmpty() && !this.closed) {
+						if (unforced && this.fsyncPolicy == FsyncPolicy.INTERVAL) {
+							long wait = this.fsyncIntervalNanos - (System.nanoTime() - lastForce);
+							if (wait <= 0) {
+								break;
+							}
+							TimeUnit.NANOSECONDS.timedWait(this, wait);
+						} else {
+							this.wait();
+						}
+					}
+					if (this.pending.isEmpty() && this.closed) {
+						return;
+					}
+					batch = this.pending;
+					this.pending = new ArrayList<>();
+				}
+				long acknowledged = -1;
+				long written = 0;
+				List<ByteBuffer> buffers = new ArrayList<>(batch.size());
+				for (Pending entry : batch) {
+					if (entry.record == null) {
+						written += this.writeBuffers(buffers);
+						this.channel.force(false);
+						this.channel.close();
+						this.channel = this.openSegment(entry.sequence);
+					} else {
+						buffers.add(ByteBuffer.wrap(entry.record));
+						acknowledged = entry.sequence;
+					}
+				}
+				written += this.writeBuffers(buffers);
+				unforced = unforced || written > 0;
+				if (unforced && (this.fsyncPolicy == FsyncPolicy.ALWAYS || this.fsyncPolicy == FsyncPolicy.INTERVAL
+						&& System.nanoTime() - lastForce >= this.fsyncIntervalNanos)) {
+					this.channel.force(false);
+					lastForce = System.nanoTime();
+					unforced = false;
+				}
+				synchronized (this) {
+					if (written > 0) {
+						this.bytesWritten += written;
+						this.batches++;
+					}
+					if (acknowledged > this.acknowledgedSequence) {
+						this.acknowledgedSequence = acknowledged;
+					}
+					this.notifyAll();
+				}
+			}
+		} catch (IOException ex) {
+			logger.error("Error occurred in writing count log, count updates disabled", ex);
+			synchronized (this) {
+				this.failure = ex;
+				this.notifyAll();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private long writeBuffers(List<ByteBuffer> buffers) throws IOException {
+		long written = 0;
+		if (!buffers.isEmpty()) {
+			ByteBuffer[] array = buffers.toArray(new ByteBuffer[buffers.size()]);
+			// Gathering write of the whole batch
+			for (int i = 0; i < array.length; i = nextRemaining(array, i)) {
+				written += this.channel.write(array, i, array.length - i);
+			}
+			buffers.clear();
+		}
+		return written;
+	}
+
+	private static int nextRemaining(ByteBuffer[] buffers, int from) {
+		int i = from;
+		while (i < buffers.length && !buffers[i].hasRemaining()) {
+			i++;
+		}
+		return i;
+	}
+
+	private void checkWritable() {
+		if (this.writer == null || this.closed) {
+			throw new ApplicationException("Count log is not open");
+		}
+		if (this.failure != null) {
+			throw new ApplicationException("Error occurred in writing count log", this.failure);
+		}
+	}
+
+	private FileChannel openSegment(long firstSequence) throws IOException {
+		Path segment = this.directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+		// A segment of the same name holds no valid record: it is the empty
+		// current segment or the torn tail of a crashed run
+		return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Returns the segment files in sequence order.
+	 */
+	private List<Path> segments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		if (!Files.isDirectory(this.directory)) {
+			return segments;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			stream.forEach(segments::add);
+		}
+		segments.sort((a, b) -> Long.compare(firstSequence(a), firstSequence(b)));
+		return segments;
+	}
+
+	private static long firstSequence(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static byte[] encode(long sequence, Map<String, Long> deltas) {
+		try {
+			ByteArrayOutputStream payload = new ByteArrayOutputStream(16 + deltas.size() * 24);
+			DataOutputStream out = new DataOutputStream(payload);
+			out.writeLong(sequence);
+			out.writeInt(deltas.size());
+			for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+				out.writeUTF(delta.getKey());
+				out.writeLong(delta.getValue());
+			}
+			CRC32 crc = new CRC32();
+			crc.update(payload.toByteArray());
+			ByteBuffer record = ByteBuffer.allocate(8 + payload.size());
+			record.putInt(payload.size()).putInt((int) crc.getValue()).put(payload.toByteArray());
+			return record.array();
+		} catch (IOException ex) {
+			throw new ApplicationException("Error occurred in encoding count log record", ex);
+		}
+	}
+
+	/**
+	 * Reads the payload of the next record, null at the end of the segment.
+	 *
+	 * @throws CorruptRecordException
+	 *             If the record is torn or its checksum does not match.
+	 */
+	private static byte[] readRecord(DataInputStream in) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException ex) {
+			return null;
+		}
+		try {
+			int checksum = in.readInt();
+			if (length < 12 || length > MAX_RECORD_BYTES) {
+				throw new CorruptRecordException();
+			}
+			byte[] payload = new byte[length];
+			in.readFully(payload);
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			if ((int) crc.getValue() != checksum) {
+				throw new CorruptRecordException();
+			}
+			return payload;
+		} catch (EOFException ex) {
+			throw new CorruptRecordException();
+		}
+	}
+
+	/**
+	 * Torn or corrupt record, ending the replay of its segment.
+	 */
+	private static final class CorruptRecordException extends IOException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Queued record, or segment rotation if the record is null.
+	 */
+	private static final class Pending {
+		private final long sequence;
+		private final byte[] record;
+
+		Pending(long sequence, byte[] record) {
+			this.sequence = sequence;
+			this.record = record;
+		}
+	}
+}
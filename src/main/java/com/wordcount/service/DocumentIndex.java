@@ -0,0 +1,324 @@
+package com.wordcount.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable document-aware index of a corpus made of many documents. Words
+ * get a numeric ID; each document keeps its terms as a slice of two packed
+ * arrays, word IDs sorted ascending with their counts alongside (compressed
+ * sparse row layout). The document frequency of every word is computed once
+ * at build time. Queries only touch the document asked for:
+ * <ol>
+ * <li>document frequency: a lexicon lookup,</li>
+ * <li>count of a word in a document: a binary search in its slice,</li>
+ * <li>top TF-IDF terms of a document: one pass over its slice with a bounded
+ * heap.</li>
+ * </ol>
+ */
+public class DocumentIndex {
+
+	private final String[] documentNames;
+
+	private final Map<String, Integer> documentIds;
+
+	private final String[] words;
+
+	private final Map<String, Integer> wordIds;
+
+	private final int[] documentFrequencies;
+
+	/**
+	 * Start offset of each document slice, with a trailing end offset.
+	 */
+	private final int[] offsets;
+
+	private final int[] termIds;
+
+	private final int[] termCounts;
+
+	private DocumentIndex(Builder builder) {
+		this.documentNames = builder.documentNames.toArray(new String[builder.documentNames.size()]);
+		this.documentIds = builder.documentIds;
+		this.words = builder.words.toArray(new String[builder.words.size()]);
+		this.wordIds = builder.wordIds;
+		this.offsets = Arrays.copyOf(builder.offsets.values, builder.offsets.size);
+		this.termIds = Arrays.copyOf(builder.termIds.values, builder.termIds.size);
+		this.termCounts = Arrays.copyOf(builder.termCounts.values, builder.termCounts.size);
+		this.documentFrequencies = new int[this.words.length];
+		for (int termId : this.termIds) {
+			this.documentFrequencies[termId]++;
+		}
+	}
+
+	/**
+	 * @return Number of documents.
+	 */
+	public int getDocumentCount() {
+		return this.documentNames.length;
+	}
+
+	/**
+	 * @return Number of distinct words.
+	 */
+	public int getWordCount() {
+		return this.words.length;
+	}
+
+	/**
+	 * @param document
+	 *            Document name.
+	 * @return true if the index contains the document.
+	 */
+	public boolean containsDocument(String document) {
+		return this.documentIds.containsKey(document);
+	}
+
+	/**
+	 * Returns the number of documents the given word appears in.
+	 *
+	 * @param word
+	 *            Lower case word.
+	 * @return Document frequency, 0 if the word is not in the corpus.
+	 */
+	public int getDocumentFrequency(String word) {
+		Integer wordId = this.wordIds.get(word);
+		return wordId != null ? this.documentFrequencies[wordId] : 0;
+	}
+
+	/**
+	 * Returns the count of the given word in the given document.
+	 *
+	 * @param document
+	 *            Document name.
+	 * @param word
+	 *            Lower case word.
+	 * @return Word count, 0 if the word is not in the document.
+	 * @throws IllegalArgumentException
+	 *             If the document is unknown.
+	 */
+	public long getCount(String document, String word) {
+		return this.getTerm(document, word).getCount();
+	}
+
+	/**
+	 * Returns the given word of the given document with its count, document
+	 * frequency and TF-IDF.
+	 *
+	 * @param document
+	 *            Document name.
+	 * @param word
+	 *            Lower case word.
+	 * @return Term, with a 0 count if the word is not in the document.
+	 * @throws IllegalArgumentException
+	 *             If the document is unknown.
+	 */
+	public Term getTerm(String document, String word) {
+		int documentId = this.documentId(document);
+		Integer wordId = this.wordIds.get(word);
+		if (wordId == null) {
+			return new Term(word, 0, 0, 0);
+		}
+		int position = Arrays.binarySearch(this.termIds, this.offsets[documentId], this.offsets[documentId + 1],
+				wordId);
+		int count = position >= 0 ? this.termCounts[position] : 0;
+		return new Term(word, count, this.documentFrequencies[wordId], this.tfIdf(count, wordId));
+	}
+
+	/**
+	 * Returns the top N terms of the given document ranked by TF-IDF: count
+	 * in the document times the smoothed inverse document frequency
+	 * <code>ln((1 + N) / (1 + df)) + 1</code>, ties by word.
+	 *
+	 * @param document
+	 *            Document name.
+	 * @param topN
+	 *            Number of terms to return.
+	 * @return Terms in descending TF-IDF order.
+	 * @throws IllegalArgumentException
+	 *             If the document is unknown.
+	 */
+	public List<Term> topTfIdf(String document, int topN) {
+		int documentId = this.documentId(document);
+		PriorityQueue<Term> heap = new PriorityQueue<>(Math.max(1, Math.min(topN, 1024)),
+				(a, b) -> a.tfIdf != b.tfIdf ? Double.compare(a.tfIdf, b.tfIdf) : b.word.compareTo(a.word));
+		for (int i = this.offsets[documentId]; i < this.offsets[documentId + 1]; i++) {
+			int documentFrequency = this.documentFrequencies[this.termIds[i]];
+			double tfIdf = this.tfIdf(this.termCounts[i], this.termIds[i]);
+			if (heap.size() < topN) {
+				heap.add(new Term(this.words[this.termIds[i]], this.termCounts[i], documentFrequency, tfIdf));
+			} else if (topN > 0 && (tfIdf > heap.peek().tfIdf || tfIdf == heap.peek().tfIdf
+					&& this.words[this.termIds[i]].compareTo(heap.peek().word) < 0)) {
+				heap.poll();
+				heap.add(new Term(this.words[this.termIds[i]], this.termCounts[i], documentFrequency, tfIdf));
+			}
+		}
+		List<Term> terms = new ArrayList<>(heap.size());
+		while (!heap.isEmpty()) {
+			terms.add(heap.poll());
+		}
+		Collections.reverse(terms);
+		return terms;
+	}
+
+	/**
+	 * @return Estimated size of the index arrays and lexicons, in bytes.
+	 */
+	public long estimatedSizeBytes() {
+		long size = 4L * (this.offsets.length + this.termIds.length + this.termCounts.length
+				+ this.documentFrequencies.length);
+		for (String word : this.words) {
+			size += 40 + 2L * word.length() + 48;
+		}
+		for (String name : this.documentNames) {
+			size += 40 + 2L * name.length() + 48;
+		}
+		return size;
+	}
+
+	private double tfIdf(int count, int wordId) {
+		return count * (Math.log((1.0 + this.documentNames.length) / (1 + this.documentFrequencies[wordId])) + 1);
+	}
+
+	private int documentId(String document) {
+		Integer documentId = this.documentIds.get(document);
+		if (documentId == null) {
+			throw new IllegalArgumentException("Unknown document: " + document);
+		}
+		return documentId;
+	}
+
+	/**
+	 * Term of a document with its statistics.
+	 */
+	public static final class Term {
+		private final String word;
+		private final long count;
+		private final int documentFrequency;
+		private final double tfIdf;
+
+		Term(String word, long count, int documentFrequency, double tfIdf) {
+			this.word = word;
+			this.count = count;
+			this.documentFrequency = documentFrequency;
+			this.tfIdf = tfIdf;
+		}
+
+		public String getWord() {
+			return this.word;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public int getDocumentFrequency() {
+			return this.documentFrequency;
+		}
+
+		public double getTfIdf() {
+			return this.tfIdf;
+		}
+	}
+
+	/**
+	 * Builder of a DocumentIndex, adding documents from concurrent corpus
+	 * reader threads.
+	 */
+	public static class Builder {
+		private final List<String> documentNames = new ArrayList<>();
+		private final Map<String, Integer> documentIds = new HashMap<>();
+		private final List<String> words = new ArrayList<>();
+		private final Map<String, Integer> wordIds = new HashMap<>();
+		private final IntList offsets = new IntList();
+		private final IntList termIds = new IntList();
+		private final IntList termCounts = new IntList();
+
+		public Builder() {
+			this.offsets.add(0);
+		}
+
+		/**
+		 * Adds a document. The counts are copied, so the map can be reused.
+		 *
+		 * @param name
+		 *            Document name, suffixed with #n if already used.
+		 * @param counts
+		 *            Word counts of the document.
+		 */
+		public synchronized void addDocument(String name, Map<String, Long> counts) {
+			this.add(name, counts);
+		}
+
+		/**
+		 * Adds documents at once, e.g. the lines of a source, taking the lock
+		 * of the builder once. The counts are copied, so the maps can be
+		 * reused.
+		 *
+		 * @param names
+		 *            Document names, suffixed with #n if already used.
+		 * @param counts
+		 *            Word counts of each document.
+		 */
+		public synchronized void addDocuments(List<String> names, List<Map<String, Long>> counts) {
+			for (int i = 0; i < names.size(); i++) {
+				this.add(names.get(i), counts.get(i));
+			}
+		}
+
+		private void add(String name, Map<String, Long> counts) {
+			long[] terms = new long[counts.size()];
+			int i = 0;
+			for (Map.Entry<String, Long> entry : counts.entrySet()) {
+				Integer wordId = this.wordIds.get(entry.getKey());
+				if (wordId == null) {
+					wordId = this.words.size();
+					this.words.add(entry.getKey());
+					this.wordIds.put(entry.getKey(), wordId);
+				}
+				// Pack word ID and count in a long to sort them together
+				terms[i++] = ((long) wordId << 32) | Math.min(Integer.MAX_VALUE, entry.getValue());
+			}
+			Arrays.sort(terms);
+			for (long term : terms) {
+				this.termIds.add((int) (term >>> 32));
+				this.termCounts.add((int) term);
+			}
+			this.offsets.add(this.termIds.size);
+
+			String documentName = name;
+			for (int n = 2; this.documentIds.containsKey(documentName); n++) {
+				documentName = name + '#' + n;
+			}
+			this.documentIds.put(documentName, this.documentNames.size());
+			this.documentNames.add(documentName);
+		}
+
+		/**
+		 * @return The built index.
+		 */
+		public synchronized DocumentIndex build() {
+			return new DocumentIndex(this);
+		}
+	}
+
+	/**
+	 * Growable int array.
+	 */
+	private static final class IntList {
+		private int[] values = new int[1024];
+		private int size;
+
+		void add(int value) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = value;
+		}
+	}
+}
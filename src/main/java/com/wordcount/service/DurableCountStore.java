@@ -0,0 +1,217 @@
+package com.wordcount.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Durability of the count updates made at runtime: each update is appended
+ * to the count write-ahead log before it is acknowledged, and checkpoints
+ * periodically write the folded counts so that the log can be truncated.
+ * Recovery loads the latest checkpoint and replays the tail of the log
+ * written after it. The two most recent checkpoints are kept, with the log
+ * records following the oldest one, so a damaged latest checkpoint falls
+ * back to the previous one.
+ */
+@Service
+public class DurableCountStore {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private static final int RETAINED_CHECKPOINTS = 2;
+
+	/**
+	 * If true, count updates are accepted and logged, and the counts are
+	 * recovered from the checkpoints and log on startup.
+	 */
+	@Value("${wordcount.wal.enabled:false}")
+	private boolean enabled;
+
+	@Value("${wordcount.wal.directory:wal}")
+	private String directory = "wal";
+
+	/**
+	 * Fsync policy of the log: always, interval or none.
+	 */
+	@Value("${wordcount.wal.fsync:always}")
+	private String fsync = "always";
+
+	@Value("${wordcount.wal.fsync-interval-ms:1000}")
+	private long fsyncIntervalMillis = 1000;
+
+	private volatile CountLog log;
+
+	/**
+	 * @return true if count updates are durable and accepted.
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Loads the latest checkpoint.
+	 *
+	 * @return Checkpoint, null if none.
+	 * @throws ApplicationException
+	 *             If the checkpoint directory cannot be read.
+	 */
+	public CountCheckpoint loadCheckpoint() {
+		try {
+			long startTime = System.nanoTime();
+			CountCheckpoint checkpoint = CountCheckpoint.loadLatest(this.path());
+			if (checkpoint != null) {
+				logger.info("Loaded count checkpoint {} of {} words in {} ms", checkpoint.getSequence(),
+						checkpoint.getCounts().size(), (System.nanoTime() - startTime) / 1_000_000);
+			}
+			return checkpoint;
+		} catch (IOException ex) {
+			throw new ApplicationException("Error occurred in loading count checkpoint", ex);
+		}
+	}
+
+	/**
+	 * Applies the log records following the given sequence number to the
+	 * given counts, then opens the log for appends. The deltas of the records
+	 * are summed per word and the sums applied once, clamping each count at 0
+	 * the way the live index does, so the counts recovered are the counts
+	 * acknowledged (e.g. 5, then -10, then +3 recovers 0, not 3).
+	 *
+	 * @param afterSequence
+	 *            Sequence number of the checkpoint the counts were loaded
+	 *            from, 0 for the corpus.
+	 * @param counts
+	 *            Mutable map of word to count.
+	 * @return Sequence number of the last record applied.
+	 * @throws ApplicationException
+	 *             If the log cannot be read or opened.
+	 */
+	public synchronized long recover(long afterSequence, Map<String, Long> counts) {
+		try {
+			long startTime = System.nanoTime();
+			CountLog countLog = new CountLog(this.path(), CountLog.FsyncPolicy.valueOf(this.fsync.toUpperCase()),
+					this.fsyncIntervalMillis);
+			long[] replayed = new long[1];
+			Map<String, Long> tail = new HashMap<>();
+			long sequence = countLog.replay(afterSequence, (recordSequence, deltas) -> {
+				deltas.forEach((word, delta) -> tail.merge(word, delta, Long::sum));
+				replayed[0]++;
+			});
+			applyDeltas(counts, tail);
+			countLog.open(sequence);
+			this.log = countLog;
+			logger.info("Replayed {} count log records up to {} in {} ms", replayed[0], sequence,
+					(System.nanoTime() - startTime) / 1_000_000);
+			return sequence;
+		} catch (IOException | IllegalArgumentException ex) {
+			throw new ApplicationException("Error occurred in recovering count log", ex);
+		}
+	}
+
+	/**
+	 * Appends an update to the log, see {@link CountLog#append(Map)}.
+	 *
+	 * @param deltas
+	 *            Map of word to count delta.
+	 * @return Sequence number of the update.
+	 */
+	public long append(Map<String, Long> deltas) {
+		return this.openLog().append(deltas);
+	}
+
+	/**
+	 * Waits for an update to be durable, see
+	 * {@link CountLog#awaitDurable(long)}.
+	 *
+	 * @param sequence
+	 *            Sequence number of the update.
+	 */
+	public void awaitDurable(long sequence) {
+		this.openLog().awaitDurable(sequence);
+	}
+
+	/**
+	 * Starts a new log segment, to be called with the updates serialized
+	 * when the state of a checkpoint is captured.
+	 */
+	public void rotate() {
+		this.openLog().rotate();
+	}
+
+	/**
+	 * Writes a checkpoint of the given folded index and deletes the
+	 * checkpoints and log segments no longer needed for recovery.
+	 *
+	 * @param sequence
+	 *            Sequence number of the last update folded in the index.
+	 * @param contentHash
+	 *            Content hash of the corpus.
+	 * @param index
+	 *            Index with all the updates up to the sequence number.
+	 * @throws ApplicationException
+	 *             If the checkpoint cannot be written.
+	 */
+	public void checkpoint(long sequence, long contentHash, WordCountIndex index) {
+		try {
+			long startTime = System.nanoTime();
+			Path checkpoint = CountCheckpoint.write(this.path(), sequence, contentHash, index);
+			long oldestSequence = CountCheckpoint.deleteOlder(this.path(), RETAINED_CHECKPOINTS);
+			int deleted = this.openLog().deleteSegmentsUpTo(oldestSequence);
+			logger.info("Wrote count checkpoint {} of {} words in {} ms, deleted {} log segments", checkpoint,
+					index.size(), (System.nanoTime() - startTime) / 1_000_000, deleted);
+		} catch (IOException ex) {
+			throw new ApplicationException("Error occurred in writing count checkpoint", ex);
+		}
+	}
+
+	/**
+	 * Flushes and closes the log.
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		CountLog countLog = this.log;
+		this.log = null;
+		if (countLog != null) {
+			try {
+				countLog.close();
+			} catch (IOException ex) {
+				logger.warn("Error occurred in closing count log", ex);
+			}
+		}
+	}
+
+	/**
+	 * Adds the deltas to the counts, removing the words whose count drops to
+	 * 0 or less.
+	 *
+	 * @param counts
+	 *            Mutable map of word to count.
+	 * @param deltas
+	 *            Map of word to count delta.
+	 */
+	static void applyDeltas(Map<String, Long> counts, Map<String, Long> deltas) {
+		deltas.forEach((word, delta) -> counts.merge(word, delta, (a, b) -> a + b > 0 ? a + b : null));
+		deltas.forEach((word, delta) -> counts.computeIfPresent(word, (w, count) -> count > 0 ? count : null));
+	}
+
+	private CountLog openLog() {
+		CountLog countLog = this.log;
+		if (countLog == null) {
+			throw new ApplicationException("Count log is not open");
+		}
+		return countLog;
+	}
+
+	private Path path() {
+		return Paths.get(this.directory);
+	}
+}
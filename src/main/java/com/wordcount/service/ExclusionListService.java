@@ -0,0 +1,84 @@
+package com.wordcount.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Named word exclusion lists (e.g. stopwords), loaded from
+ * <code>{location}/{name}.txt</code> on first use and kept compiled as hash
+ * sets of lower case words. Lines are words, blank lines and lines starting
+ * with # are ignored.
+ */
+@Service
+public class ExclusionListService {
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	private static final Pattern LIST_NAME = Pattern.compile("[a-zA-Z0-9_-]{1,64}");
+
+	@Value("${wordcount.exclusion-lists.location:classpath:/exclusions}")
+	private String location = "classpath:/exclusions";
+
+	private final ConcurrentMap<String, Set<String>> lists = new ConcurrentHashMap<>();
+
+	private final PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+	/**
+	 * Returns the compiled exclusion list of the given name.
+	 *
+	 * @param name
+	 *            List name.
+	 * @return Unmodifiable set of lower case words.
+	 * @throws ApplicationException
+	 *             If the list does not exist or cannot be read.
+	 */
+	public Set<String> getExclusionList(String name) {
+		if (name == null || !LIST_NAME.matcher(name).matches()) {
+			throw new ApplicationException(
+					new StringBuilder("Exclusion list name: ").append(name).append(" is invalid").toString());
+		}
+		Set<String> list = this.lists.get(name);
+		return list != null ? list : this.lists.computeIfAbsent(name, this::load);
+	}
+
+	private Set<String> load(String name) {
+		Resource resource = this.resolver.getResource(
+				new StringBuilder(this.location).append('/').append(name).append(".txt").toString());
+		if (!resource.exists()) {
+			throw new ApplicationException(
+					new StringBuilder("Exclusion list: ").append(name).append(" not found").toString());
+		}
+		Set<String> words = new HashSet<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String word = line.trim().toLowerCase();
+				if (!word.isEmpty() && word.charAt(0) != '#') {
+					words.add(word);
+				}
+			}
+		} catch (IOException ex) {
+			throw new ApplicationException(
+					new StringBuilder("Error occurred in loading exclusion list: ").append(name).toString(), ex);
+		}
+		logger.info("Loaded exclusion list {} of {} words", name, words.size());
+		return Collections.unmodifiableSet(words);
+	}
+}
@@ -0,0 +1,300 @@
+package com.wordcount.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable typo-tolerant lookup index over the words of a WordCountIndex,
+ * based on symmetric deletion (SymSpell): every word is indexed under all the
+ * strings obtained by deleting up to maxDistance of its characters. Two words
+ * within edit distance d share at least one of their deletes of up to d
+ * characters, so a lookup only generates the deletes of the searched word,
+ * finds the words indexed under them and verifies their exact distance.
+ * <p>
+ * Deletes are not stored: each one is hashed to 32 bits and packed with the
+ * rank of its word into one sorted array of (hash, rank) pairs. Hash
+ * collisions only add candidates, which the distance check rejects.
+ * <p>
+ * A word of length L has O(L^2) deletes of up to 2 characters, each hashed in
+ * O(L), so only the words of at most MAX_WORD_LENGTH characters are indexed:
+ * a single long token of the corpus would otherwise dominate the build time
+ * and size of the index.
+ */
+public class FuzzyWordIndex {
+
+	/**
+	 * Largest supported maximum edit distance.
+	 */
+	public static final int MAX_DISTANCE = 2;
+
+	/**
+	 * Length of the longest indexed words. Words longer than this plus the
+	 * maximum edit distance have no match.
+	 */
+	public static final int MAX_WORD_LENGTH = 32;
+
+	private final WordCountIndex index;
+
+	private final int maxDistance;
+
+	/**
+	 * Delete hashes, sorted.
+	 */
+	private final int[] hashes;
+
+	/**
+	 * Word ranks, aligned with the hashes.
+	 */
+	private final int[] ranks;
+
+	/**
+	 * Builds the deletion index of the words of the given index, skipping the
+	 * words longer than MAX_WORD_LENGTH.
+	 *
+	 * @param index
+	 *            Word count index.
+	 * @param maxDistance
+	 *            Maximum edit distance of the lookups, 1 or 2.
+	 */
+	public FuzzyWordIndex(WordCountIndex index, int maxDistance) {
+		if (maxDistance < 1 || maxDistance > MAX_DISTANCE) {
+			throw new IllegalArgumentException("Maximum edit distance must be 1 or 2: " + maxDistance);
+		}
+		this.index = index;
+		this.maxDistance = maxDistance;
+		long[] entries = new long[Math.max(16, index.size() * 8)];
+		int size = 0;
+		int[] deletes = new int[Math.toIntExact(deleteCount(MAX_WORD_LENGTH, maxDistance))];
+		for (int rank = 0; rank < index.size(); rank++) {
+			String word = index.getWord(rank);
+			if (word.length() > MAX_WORD_LENGTH) {
+				continue;
+			}
+			int count = deletes(word, maxDistance, deletes);
+			if (size + count > entries.length) {
+				entries = Arrays.copyOf(entries, Math.max(entries.length * 3 / 2, size + count));
+			}
+			for (int i = 0; i < count; i++) {
+				entries[size++] = ((long) deletes[i] << 32) | rank;
+			}
+		}
+		Arrays.parallelSort(entries, 0, size);
+
+		// Unpack the distinct (hash, rank) pairs
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || entries[i] != entries[i - 1]) {
+				entries[distinct++] = entries[i];
+			}
+		}
+		this.hashes = new int[distinct];
+		this.ranks = new int[distinct];
+		for (int i = 0; i < distinct; i++) {
+			this.hashes[i] = (int) (entries[i] >> 32);
+			this.ranks[i] = (int) entries[i];
+		}
+	}
+
+	/**
+	 * @return Word count index the words are looked up in.
+	 */
+	public WordCountIndex getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * @return Maximum edit distance of the lookups.
+	 */
+	public int getMaxDistance() {
+		return this.maxDistance;
+	}
+
+	/**
+	 * @return Estimated size of the deletion index, in bytes.
+	 */
+	public long estimatedSizeBytes() {
+		return 4L * (this.hashes.length + this.ranks.length);
+	}
+
+	/**
+	 * Returns the words within the given edit distance of the given word
+	 * (insertions, deletions, substitutions and transpositions of adjacent
+	 * characters), closest first, then by descending count.
+	 *
+	 * @param word
+	 *            Lower case word.
+	 * @param maxDistance
+	 *            Maximum edit distance, at most the one of the index.
+	 * @param limit
+	 *            Maximum number of words to return.
+	 * @return Matches, the word itself first if in the corpus.
+	 */
+	public List<Match> lookup(String word, int maxDistance, int limit) {
+		int distance = Math.min(maxDistance, this.maxDistance);
+		if (word.length() > MAX_WORD_LENGTH + distance) {
+			// Too long to be within the distance of any word
+			return new ArrayList<>();
+		}
+		int[] deletes = new int[Math.toIntExact(deleteCount(word.length(), distance))];
+		int count = deletes(word, distance, deletes);
+		// Matches by distance, each in rank (descending count) order
+		List<List<Integer>> matches = new ArrayList<>(distance + 1);
+		for (int d = 0; d <= distance; d++) {
+			matches.add(new ArrayList<>());
+		}
+		Set<Integer> candidates = new HashSet<>();
+		for (int i = 0; i < count; i++) {
+			int from = this.firstIndexOf(deletes[i]);
+			for (int j = from; j < this.hashes.length && this.hashes[j] == deletes[i]; j++) {
+				int rank = this.ranks[j];
+				String candidate = this.index.getWord(rank);
+				if (Math.abs(candidate.length() - word.length()) > distance || !candidates.add(rank)) {
+					continue;
+				}
+				int d = distance(word, candidate, distance);
+				if (d <= distance) {
+					matches.get(d).add(rank);
+				}
+			}
+		}
+		List<Match> result = new ArrayList<>();
+		for (int d = 0; d <= distance && result.size() < limit; d++) {
+			List<Integer> byRank = matches.get(d);
+			byRank.sort(null);
+			for (int k = 0; k < byRank.size() && result.size() < limit; k++) {
+				int rank = byRank.get(k);
+				result.add(new Match(this.index.getWord(rank), this.index.getCountAt(rank), d));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the position of the first entry of the given hash, or of the
+	 * next hash if absent.
+	 */
+	private int firstIndexOf(int hash) {
+		int low = 0;
+		int high = this.hashes.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.hashes[mid] < hash) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the number of deletes of up to maxDistance characters of a word
+	 * of the given length, the word itself included.
+	 */
+	private static long deleteCount(int length, int maxDistance) {
+		return 1L + length + (maxDistance > 1 ? (long) length * (length - 1) / 2 : 0);
+	}
+
+	/**
+	 * Writes the hashes of the word and of its deletes of up to maxDistance
+	 * characters to the given array and returns their number. Repeated
+	 * letters yield duplicate hashes.
+	 */
+	private static int deletes(String word, int maxDistance, int[] hashes) {
+		int length = word.length();
+		int count = 0;
+		hashes[count++] = hash(word, -1, -1);
+		for (int i = 0; i < length; i++) {
+			hashes[count++] = hash(word, i, -1);
+			if (maxDistance > 1) {
+				for (int j = i + 1; j < length; j++) {
+					hashes[count++] = hash(word, i, j);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * FNV-1a hash of the word without the characters at the given positions
+	 * (-1 for none), seeded with the length of the delete so that deletes of
+	 * different lengths rarely collide.
+	 */
+	private static int hash(String word, int skip1, int skip2) {
+		int length = word.length() - (skip1 >= 0 ? 1 : 0) - (skip2 >= 0 ? 1 : 0);
+		int hash = 0x811C9DC5 ^ length;
+		for (int i = 0; i < word.length(); i++) {
+			if (i != skip1 && i != skip2) {
+				hash = (hash ^ word.charAt(i)) * 0x01000193;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Optimal string alignment distance of the two words, or maxDistance + 1
+	 * as soon as it exceeds maxDistance.
+	 */
+	static int distance(String a, String b, int maxDistance) {
+		if (Math.abs(a.length() - b.length()) > maxDistance) {
+			return maxDistance + 1;
+		}
+		int[] previous2 = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				int d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d = Math.min(d, previous2[j - 2] + 1);
+				}
+				current[j] = d;
+				rowMin = Math.min(rowMin, d);
+			}
+			if (rowMin > maxDistance) {
+				return maxDistance + 1;
+			}
+			int[] rotated = previous2;
+			previous2 = previous;
+			previous = current;
+			current = rotated;
+		}
+		return Math.min(previous[b.length()], maxDistance + 1);
+	}
+
+	/**
+	 * Word of the corpus matching a lookup, with its count and edit distance.
+	 */
+	public static final class Match {
+		private final String word;
+		private final long count;
+		private final int distance;
+
+		Match(String word, long count, int distance) {
+			this.word = word;
+			this.count = count;
+			this.distance = distance;
+		}
+
+		public String getWord() {
+			return this.word;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public int getDistance() {
+			return this.distance;
+		}
+	}
+}
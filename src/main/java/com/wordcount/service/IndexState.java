@@ -0,0 +1,22 @@
+package com.wordcount.service;
+
+/**
+ * Build state of the text count index.
+ *
+ */
+public enum IndexState {
+	/**
+	 * The index is being built, counts are not available yet.
+	 */
+	BUILDING,
+
+	/**
+	 * The index is built and counts can be served.
+	 */
+	READY,
+
+	/**
+	 * The index build failed, counts will not be available.
+	 */
+	FAILED
+}
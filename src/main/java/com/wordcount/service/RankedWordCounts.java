@@ -0,0 +1,49 @@
+package com.wordcount.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * List of word-count entries taken from the ranking of one generation of the
+ * word count index, carrying the version of that generation. A list served
+ * from a cache may have been computed from a generation other than the
+ * current one: responses rendered from it are labelled with the version it
+ * carries, so their ETag always matches their content.
+ */
+public class RankedWordCounts extends ArrayList<Entry<String, Long>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String generationVersion;
+
+	/**
+	 * @param initialCapacity
+	 *            Initial capacity of the list.
+	 * @param generationVersion
+	 *            Version of the index generation the entries are taken from.
+	 */
+	public RankedWordCounts(int initialCapacity, String generationVersion) {
+		super(initialCapacity);
+		this.generationVersion = generationVersion;
+	}
+
+	/**
+	 * @return Version of the index generation the entries are taken from.
+	 */
+	public String getGenerationVersion() {
+		return this.generationVersion;
+	}
+
+	/**
+	 * Returns the version of the index generation the given list is taken
+	 * from.
+	 *
+	 * @param list
+	 *            List of word-count entries.
+	 * @return Index generation version, null if the list does not carry it.
+	 */
+	public static String generationVersionOf(List<?> list) {
+		return list instanceof RankedWordCounts ? ((RankedWordCounts) list).getGenerationVersion() : null;
+	}
+}
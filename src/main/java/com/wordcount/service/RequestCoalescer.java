@@ -0,0 +1,81 @@
+package com.wordcount.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Single-flight request coalescer: concurrent calls for the same key share a
+ * single in-flight computation instead of each computing the same value.
+ * Nothing is kept once the computation completes, so a later call for the
+ * key computes again.
+ *
+ * @param <K>
+ *            Key type.
+ * @param <V>
+ *            Value type.
+ */
+public class RequestCoalescer<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the value for the given key, computing it with the given
+	 * supplier unless a computation for the same key is already in flight, in
+	 * which case its result is awaited and shared.
+	 *
+	 * @param key
+	 *            Key of the computation.
+	 * @param supplier
+	 *            Computes the value, run by the first caller only.
+	 * @return Computed value.
+	 * @throws RuntimeException
+	 *             Thrown by the supplier, rethrown to every waiting caller.
+	 */
+	public V execute(K key, Supplier<V> supplier) {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			return await(existing);
+		}
+		try {
+			V value = supplier.get();
+			future.complete(value);
+			return value;
+		} catch (RuntimeException | Error ex) {
+			future.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			this.inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * @return Number of computations currently in flight.
+	 */
+	public int inFlightCount() {
+		return this.inFlight.size();
+	}
+
+	private static <V> V await(CompletableFuture<V> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ApplicationException("Interrupted while waiting for an in-flight request", ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ApplicationException(cause);
+		}
+	}
+}
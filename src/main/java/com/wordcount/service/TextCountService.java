@@ -1,9 +1,18 @@
 package com.wordcount.service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.wordcount.exception.ApplicationException;
+import com.wordcount.exception.IndexNotReadyException;
+import com.wordcount.vo.CorpusStatusVO;
+import com.wordcount.vo.DocumentFrequencyVO;
+import com.wordcount.vo.DocumentTermVO;
+import com.wordcount.vo.TopNFilterVO;
+import com.wordcount.vo.WordCountDiffVO;
+import com.wordcount.vo.WordCountStatsVO;
+import com.wordcount.vo.WordSuggestionVO;
 
 /**
  * Interface for the Text Count Service. It includes different methods for
@@ -20,9 +29,32 @@ public interface TextCountService {
 	 * @return Count of text.
 	 * @throws ApplicationException
 	 *             If provided text is null or empty.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
 	 */
 	Long findTextCount(String text);
 
+	/**
+	 * Finds the words of the corpus within the given edit distance of a text,
+	 * e.g. its correct spelling, and their counts. Insertions, deletions,
+	 * substitutions and transpositions of adjacent characters count as one
+	 * edit.
+	 * 
+	 * @param text
+	 *            Text whose close words are to be found.
+	 * @param maxDistance
+	 *            Maximum edit distance, the configured maximum if null.
+	 * @param limit
+	 *            Maximum number of words to return, 10 if null.
+	 * @return Words closest first, then by descending count.
+	 * @throws ApplicationException
+	 *             If provided text is null or empty, the distance or limit is
+	 *             invalid, or the fuzzy index is not enabled.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	List<WordSuggestionVO> findFuzzyTextCounts(String text, Integer maxDistance, Integer limit);
+
 	/**
 	 * Returns the top N Words and their counts.
 	 * 
@@ -32,6 +64,274 @@ public interface TextCountService {
 	 *         count as its value.
 	 * @throws ApplicationException
 	 *             If provided topN search is null or less than 1.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
 	 */
 	List<Entry<String, Long>> findTopNWordCounts(Integer topN);
+
+	/**
+	 * Returns the top N Words matching the given filter and their counts. The
+	 * ranking is walked until N words match, or, with a regex, until
+	 * {@link WordFilter#MAX_REGEX_WORDS} words were tested.
+	 * 
+	 * @param topN
+	 *            Represents the top N word counts to search.
+	 * @param filter
+	 *            Exclusions, length bounds, prefix and regex the words must
+	 *            satisfy.
+	 * @return List of Map entries, where each entry represents the word with
+	 *         count as its value.
+	 * @throws ApplicationException
+	 *             If provided topN search is null or less than 1, or the
+	 *             filter is invalid, or its regex too long or complex.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	List<Entry<String, Long>> findTopNWordCounts(Integer topN, TopNFilterVO filter);
+
+	/**
+	 * Adds the given deltas to the counts of the words. The update is written
+	 * to the count log and applied once it is durable, so that no lookup sees
+	 * a count that a restart could lose. Only
+	 * the point lookups of single words (findTextCount and the returned
+	 * counts) reflect it straight away. Every view of the ranking (top N,
+	 * filtered top N, count ranges, statistics, export, fuzzy lookup and
+	 * diff) keeps serving the counts of the last folded index until the next
+	 * checkpoint folds the update into a new index, see
+	 * {@link #checkpoint()}.
+	 * 
+	 * @param deltas
+	 *            Map of word to count delta, which may be negative. Words are
+	 *            matched in lower case and made of letters a-z and digits
+	 *            only, like the words of the corpus. Counts do not go below
+	 *            0.
+	 * @return List of Map entries, where each entry represents the updated
+	 *         word with its new count as value.
+	 * @throws ApplicationException
+	 *             If updates are not enabled, a word or delta is invalid or
+	 *             the update cannot be logged.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	List<Entry<String, Long>> updateTextCounts(Map<String, Long> deltas);
+
+	/**
+	 * Folds the count updates applied since the last checkpoint into a new
+	 * index generation and writes it as a checkpoint, so that the count log
+	 * can be truncated. Does nothing if updates are not enabled or there is
+	 * no new update.
+	 * 
+	 * @throws ApplicationException
+	 *             If the checkpoint cannot be written.
+	 */
+	void checkpoint();
+
+	/**
+	 * Reads the corpus again and, if its content hash changed, publishes its
+	 * counts as a new index generation, retaining the current one for the
+	 * count diff. The current index keeps being served while the corpus is
+	 * read.
+	 * 
+	 * @return true if a new index generation was published, false if the
+	 *         corpus is unchanged.
+	 * @throws ApplicationException
+	 *             If count updates are enabled, their checkpoints replacing
+	 *             the corpus counts, or the corpus cannot be read.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	boolean reloadCorpus();
+
+	/**
+	 * Returns the current word count index, an immutable snapshot that can be
+	 * walked without copying, e.g. to export every word and count.
+	 * 
+	 * @return Word count index.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	WordCountIndex getWordCountIndex();
+
+	/**
+	 * Returns the number of documents of the corpus the given word appears
+	 * in.
+	 * 
+	 * @param text
+	 *            Word to search.
+	 * @return Document frequency of the word and number of documents.
+	 * @throws ApplicationException
+	 *             If the text is null or empty or the document index is not
+	 *             enabled.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	DocumentFrequencyVO findDocumentFrequency(String text);
+
+	/**
+	 * Returns the count of the given word in the given document, with its
+	 * document frequency and TF-IDF.
+	 * 
+	 * @param document
+	 *            Document name.
+	 * @param text
+	 *            Word to search.
+	 * @return Word of the document, with a 0 count if not in the document.
+	 * @throws ApplicationException
+	 *             If the text is null or empty, the document is unknown or
+	 *             the document index is not enabled.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	DocumentTermVO findDocumentTextCount(String document, String text);
+
+	/**
+	 * Returns the top N words of the given document ranked by TF-IDF.
+	 * 
+	 * @param document
+	 *            Document name.
+	 * @param topN
+	 *            Number of words to return.
+	 * @return Words of the document in descending TF-IDF order.
+	 * @throws ApplicationException
+	 *             If topN is null or less than 1, the document is unknown or
+	 *             the document index is not enabled.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	List<DocumentTermVO> findTopTfIdfTerms(String document, Integer topN);
+
+	/**
+	 * Returns the words whose count is within the given range, in descending
+	 * count order.
+	 * 
+	 * @param minCount
+	 *            Inclusive minimum count, 1 if null.
+	 * @param maxCount
+	 *            Inclusive maximum count, unbounded if null.
+	 * @param limit
+	 *            Maximum number of words to return, unbounded if null.
+	 * @return List of Map entries, where each entry represents the word with
+	 *         count as its value.
+	 * @throws ApplicationException
+	 *             If minCount is greater than maxCount or limit is less than
+	 *             1.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	List<Entry<String, Long>> findWordCountsInRange(Long minCount, Long maxCount, Integer limit);
+
+	/**
+	 * Returns the precomputed statistics of the corpus: total tokens, distinct
+	 * words, singletons and a log2 bucketed frequency histogram.
+	 * 
+	 * @return Corpus statistics.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	WordCountStatsVO getWordCountStats();
+
+	/**
+	 * Compares the counts of the previous and the current index generation:
+	 * words with the largest absolute and relative count increase and
+	 * decrease, and the most frequent new and vanished words. A new
+	 * generation is built by each count checkpoint and each reload of a
+	 * changed corpus; the first index built has none before it.
+	 * 
+	 * @param limit
+	 *            Number of words returned in each category, 10 if null.
+	 * @param minCount
+	 *            Minimum count of a word in either generation for its
+	 *            relative change to be ranked, 1 if null.
+	 * @return Difference between the two generations.
+	 * @throws ApplicationException
+	 *             If limit is less than 1, or no previous generation is
+	 *             retained.
+	 * @throws IndexNotReadyException
+	 *             If the index is still being built.
+	 */
+	WordCountDiffVO findWordCountDiff(Integer limit, Long minCount);
+
+	/**
+	 * Finds the count of a text in the given named corpus, loading the corpus
+	 * on first access.
+	 * 
+	 * @param corpus
+	 *            Corpus name.
+	 * @param text
+	 *            Text whose count is to be found.
+	 * @return Count of text.
+	 * @throws ApplicationException
+	 *             If provided text is null or empty, or the corpus is unknown
+	 *             or cannot be loaded.
+	 */
+	Long findCorpusTextCount(String corpus, String text);
+
+	/**
+	 * Returns the top N Words of the given named corpus and their counts,
+	 * loading the corpus on first access.
+	 * 
+	 * @param corpus
+	 *            Corpus name.
+	 * @param topN
+	 *            Represents the top N word counts to search.
+	 * @return List of Map entries, where each entry represents the word with
+	 *         count as its value.
+	 * @throws ApplicationException
+	 *             If topN is null or less than 1, or the corpus is unknown or
+	 *             cannot be loaded.
+	 */
+	List<Entry<String, Long>> findCorpusTopNWordCounts(String corpus, Integer topN);
+
+	/**
+	 * Returns the statistics of the given named corpus, loading it on first
+	 * access.
+	 * 
+	 * @param corpus
+	 *            Corpus name.
+	 * @return Corpus statistics.
+	 * @throws ApplicationException
+	 *             If the corpus is unknown or cannot be loaded.
+	 */
+	WordCountStatsVO getCorpusWordCountStats(String corpus);
+
+	/**
+	 * Returns the status of the named corpora: loaded or not, size and
+	 * number of loads.
+	 * 
+	 * @return Status of each named corpus, by name.
+	 */
+	List<CorpusStatusVO> getCorpora();
+
+	/**
+	 * Returns the content version of the index the counts are served from: a
+	 * hash of the corpus source plus the index build generation. Responses
+	 * computed from the same version are identical.
+	 * 
+	 * @return Index version, null if the index is not ready.
+	 */
+	String getIndexVersion();
+
+	/**
+	 * Returns the version of the index generation the ranking is served
+	 * from: the index version without the sequence number of the live count
+	 * updates, which only the point lookups see. The topN lists, statistics
+	 * and exports computed from the same generation are identical.
+	 * 
+	 * @return Index generation version, null if the index is not ready.
+	 */
+	String getGenerationVersion();
+
+	/**
+	 * Returns the build state of the index the counts are served from.
+	 * 
+	 * @return Current index state.
+	 */
+	IndexState getIndexState();
+
+	/**
+	 * Returns the build progress of the index the counts are served from.
+	 * 
+	 * @return Progress percentage between 0 and 100.
+	 */
+	int getIndexProgress();
 }
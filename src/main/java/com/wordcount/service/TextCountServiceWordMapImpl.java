@@ -1,28 +1,47 @@
 package com.wordcount.service;
 
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.AbstractMap.SimpleEntry;
-import java.util.Arrays;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
 import javax.cache.annotation.CacheResult;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.StringUtils;
 import org.springframework.stereotype.Service;
 
 import com.wordcount.exception.ApplicationException;
+import com.wordcount.exception.IndexNotReadyException;
+import com.wordcount.vo.CorpusStatusVO;
+import com.wordcount.vo.DocumentFrequencyVO;
+import com.wordcount.vo.DocumentTermVO;
+import com.wordcount.vo.TopNFilterVO;
+import com.wordcount.vo.WordChangeVO;
+import com.wordcount.vo.WordCountDiffVO;
+import com.wordcount.vo.WordCountStatsVO;
+import com.wordcount.vo.WordSuggestionVO;
 
 /**
  * Implementation class for the Text Count Service based on internal word map it
@@ -33,33 +52,268 @@ public class TextCountServiceWordMapImpl implements TextCountService {
 	private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
 	/**
-	 * Map of text count sorted by count, initialized after reading the srcFile.
+	 * Text count index (map of text count sorted by count, count buckets and
+	 * statistics), initialized after reading the corpus.
 	 */
-	private Map<String, Long> textCountMap = new LinkedHashMap<>();
+	private volatile WordCountIndex index = WordCountIndex.EMPTY;
 
 	/**
-	 * Source Text file resource available on the classpath.
+	 * Index generation replaced by the current one, null if none or not
+	 * retained.
 	 */
-	@Value("classpath:/paragraph.txt")
+	private volatile WordCountIndex previousIndex;
+
+	/**
+	 * Document-aware index of the corpus, null unless enabled.
+	 */
+	private volatile DocumentIndex documentIndex;
+
+	/**
+	 * Typo-tolerant lookup index over the words of the text count index, null
+	 * unless enabled.
+	 */
+	private volatile FuzzyWordIndex fuzzyIndex;
+
+	/**
+	 * Build state of the index.
+	 */
+	private volatile IndexState indexState = IndexState.BUILDING;
+
+	/**
+	 * Reader of the corpus currently/last loaded, used for build progress.
+	 */
+	private volatile CorpusReader corpusReader;
+
+	/**
+	 * Number of index builds, part of the index content version.
+	 */
+	private final AtomicLong indexGeneration = new AtomicLong();
+
+	/**
+	 * Content hash of the corpus the counts were read from.
+	 */
+	private volatile long contentHash;
+
+	/**
+	 * Sequence number of the last count update written to a checkpoint.
+	 */
+	private long checkpointSequence;
+
+	/**
+	 * Serializes the count updates with the capture and publication of
+	 * checkpointed indexes.
+	 */
+	private final Object updateLock = new Object();
+
+	/**
+	 * Count updates logged but not yet applied to the index, by sequence
+	 * number. Guarded by the updateLock.
+	 */
+	private final TreeMap<Long, Map<String, Long>> pendingUpdates = new TreeMap<>();
+
+	/**
+	 * Maximum number of words of a count update.
+	 */
+	private static final int MAX_UPDATE_WORDS = 10_000;
+
+	/**
+	 * Words of a count update, as tokenized from the corpus.
+	 */
+	private static final Pattern UPDATE_WORD = Pattern.compile("[a-z0-9]+");
+
+	/**
+	 * Write-ahead log and checkpoints of the count updates.
+	 */
+	@Autowired
+	private DurableCountStore durableCountStore;
+
+	/**
+	 * Caches cleared when counts are updated, if caching is configured.
+	 */
+	@Autowired(required = false)
+	private CacheManager cacheManager;
+
+	/**
+	 * Named corpora hosted next to the default one.
+	 */
+	@Autowired(required = false)
+	private CorpusRegistry corpusRegistry;
+
+	/**
+	 * Named exclusion lists of the filtered top N searches.
+	 */
+	@Autowired
+	private ExclusionListService exclusionListService;
+
+	/**
+	 * Source Text file resource, used when no corpus location is configured.
+	 */
+	@Value("${wordcount.corpus.source:classpath:/paragraph.txt}")
 	private Resource srcFile;
 
 	/**
-	 * Initializes the text count map after reading from the srcFile:
-	 * paragraph.txt on classpath.
+	 * Comma separated list of corpus resource locations/patterns, e.g.
+	 * file:/data/corpus/**&#47;*.txt.gz. Overrides the srcFile when set.
+	 */
+	@Value("${wordcount.corpus.location:}")
+	private String corpusLocation;
+
+	/**
+	 * Number of corpus files read in parallel, 0 for one per processor.
+	 */
+	@Value("${wordcount.corpus.parallelism:0}")
+	private int corpusParallelism;
+
+	/**
+	 * Number of corpus files read between two progress log entries.
+	 */
+	@Value("${wordcount.corpus.progress-interval:100}")
+	private int corpusProgressInterval;
+
+	/**
+	 * If true, the text count map is built on a background thread and the
+	 * bean initialization returns straight away.
+	 */
+	@Value("${wordcount.index.async-build:false}")
+	private boolean asyncIndexBuild;
+
+	/**
+	 * If true, a document-aware index of the corpus is built next to the text
+	 * count index, for document frequencies, per document counts and TF-IDF.
+	 */
+	@Value("${wordcount.documents.enabled:false}")
+	private boolean documentsEnabled;
+
+	/**
+	 * If true, each non empty line of a corpus file is a document, else each
+	 * file is a document.
+	 */
+	@Value("${wordcount.documents.line-documents:false}")
+	private boolean lineDocuments;
+
+	/**
+	 * If true, the index generation replaced by a new one is kept for the
+	 * count diff, at the cost of the memory of a second index. A generation
+	 * is replaced by a checkpoint folding count updates, or by a reload of
+	 * the corpus whose content hash changed. The first index built has no
+	 * previous generation.
+	 */
+	@Value("${wordcount.diff.retain-previous:true}")
+	private boolean retainPreviousIndex = true;
+
+	/**
+	 * If true, a deletion index of the words is built with the text count
+	 * index for the typo-tolerant lookups. Opt-in, as it adds the build of
+	 * the index to startup and every checkpoint.
+	 */
+	@Value("${wordcount.fuzzy.enabled:false}")
+	private boolean fuzzyEnabled;
+
+	/**
+	 * Maximum edit distance of the typo-tolerant lookups, 1 or 2. The size of
+	 * the deletion index grows with it.
+	 */
+	@Value("${wordcount.fuzzy.max-distance:2}")
+	private int fuzzyMaxDistance = 2;
+
+	/**
+	 * Initializes the text count map after reading the corpus: either the
+	 * configured corpus location or the srcFile (paragraph.txt on classpath).
+	 * In async build mode, the map is built on a background thread and counts
+	 * are unavailable until it completes.
 	 */
 	@PostConstruct
 	public void init() {
+		this.indexState = IndexState.BUILDING;
+		if (!this.asyncIndexBuild) {
+			this.buildIndex();
+			return;
+		}
+		Thread builder = new Thread(() -> {
+			try {
+				this.buildIndex();
+			} catch (Exception ex) {
+				logger.error("Background text count index build failed", ex);
+			}
+		}, "text-count-index-builder");
+		builder.setDaemon(true);
+		builder.start();
+		logger.info("{} bean Initialized, text count index building in background", this.getClass().getName());
+	}
+
+	@Override
+	public IndexState getIndexState() {
+		return this.indexState;
+	}
+
+	@Override
+	public int getIndexProgress() {
+		if (this.indexState == IndexState.READY) {
+			return 100;
+		}
+		CorpusReader reader = this.corpusReader;
+		return reader != null ? reader.getProgress() : 0;
+	}
+
+	/**
+	 * Reads the corpus and builds the text count map, updating the index
+	 * state accordingly.
+	 */
+	private void buildIndex() {
 		if (logger.isDebugEnabled()) {
-			logger.info("Loading Paragraph text");
+			logger.debug("Loading corpus text");
 		}
-		// Read the src text file
-		String fileText = this.readFile();
-		
-		// Initialize Text Count Map.
-		initializedTextCountMap(fileText);
+		try {
+			if (this.durableCountStore != null && this.durableCountStore.isEnabled()) {
+				this.recoverIndex();
+			} else {
+				// Read the corpus source files
+				Map<String, Long> corpusCounts = this.readCorpus();
+
+				// Initialize Text Count Map.
+				initializedTextCountMap(corpusCounts);
+			}
+		} catch (RuntimeException ex) {
+			this.indexState = IndexState.FAILED;
+			throw ex;
+		}
+		this.indexState = IndexState.READY;
 		logger.info("{} bean Initialized", this.getClass().getName());
 	}
 
+	/**
+	 * Builds the text count map from the latest count checkpoint, or the
+	 * corpus if none, plus the count updates logged after it. The corpus is
+	 * still read for the document index if enabled.
+	 */
+	private void recoverIndex() {
+		CountCheckpoint checkpoint = this.durableCountStore.loadCheckpoint();
+		Map<String, Long> counts = null;
+		if (checkpoint == null || this.documentsEnabled) {
+			counts = this.readCorpus();
+		}
+		if (checkpoint != null) {
+			counts = new HashMap<>(checkpoint.getCounts());
+			this.contentHash = checkpoint.getContentHash();
+			this.checkpointSequence = checkpoint.getSequence();
+		}
+		long sequence = this.durableCountStore.recover(this.checkpointSequence, counts);
+		initializedTextCountMap(counts);
+		this.index.applyDeltas(Collections.<String, Long>emptyMap(), sequence);
+	}
+
+	/**
+	 * Throws IndexNotReadyException if the text count map is not built yet.
+	 */
+	private void checkIndexReady() {
+		IndexState state = this.indexState;
+		if (state != IndexState.READY) {
+			throw new IndexNotReadyException(
+					new StringBuilder("Text count index is not available: ").append(state).toString(),
+					this.getIndexProgress());
+		}
+	}
+
 	@Override
 	@CacheResult(cacheName = "textCountCache")
 	public Long findTextCount(String text) {
@@ -77,11 +331,38 @@ public class TextCountServiceWordMapImpl implements TextCountService {
 					new StringBuilder("Text to be searched: ").append(text).append(" is Invalid").toString());
 		}
 
+		checkIndexReady();
+
 		// Get the word count if the word is available otherwise return count 0.
-		Long count = this.textCountMap.get(searchText.toLowerCase());
-		count = count != null ? count : 0L;
-		logger.info("Searched count for text: {} : {}", text, count);
-		return count;
+		return this.index.getCount(searchText.toLowerCase());
+	}
+
+	@Override
+	public List<WordSuggestionVO> findFuzzyTextCounts(String text, Integer maxDistance, Integer limit) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Search fuzzy text counts for: {}", text);
+		}
+		String word = searchWord(text);
+		if ((maxDistance != null && (maxDistance < 0 || maxDistance > this.fuzzyMaxDistance))
+				|| (limit != null && limit <= 0)) {
+			throw new ApplicationException(new StringBuilder("Requested edit distance: ").append(maxDistance)
+					.append(" / limit ").append(limit).append(" is invalid").toString());
+		}
+		checkIndexReady();
+		FuzzyWordIndex fuzzy = this.fuzzyIndex;
+		if (fuzzy == null) {
+			throw new ApplicationException("Fuzzy index is not enabled");
+		}
+		// Bounds the deletes generated for the word, quadratic in its length
+		if (word.length() > FuzzyWordIndex.MAX_WORD_LENGTH + fuzzy.getMaxDistance()) {
+			throw new ApplicationException(new StringBuilder("Requested fuzzy text of length: ")
+					.append(word.length()).append(" is too long").toString());
+		}
+		List<WordSuggestionVO> suggestions = new ArrayList<>();
+		fuzzy.lookup(word, maxDistance != null ? maxDistance : this.fuzzyMaxDistance, limit != null ? limit : 10)
+				.forEach(match -> suggestions
+						.add(new WordSuggestionVO(match.getWord(), match.getCount(), match.getDistance())));
+		return suggestions;
 	}
 
 	@Override
@@ -96,62 +377,506 @@ public class TextCountServiceWordMapImpl implements TextCountService {
 			throw new ApplicationException(
 					new StringBuilder("Requested TopN number: ").append(topN).append(" is invalid").toString());
 		}
-		if (topN > this.textCountMap.size()) {
+		checkIndexReady();
+		WordCountIndex wordIndex = this.index;
+		if (topN > wordIndex.size()) {
 			logger.warn("Requested top {} text exceeded the Total available text count of {}", topN,
-					this.textCountMap.size());
+					wordIndex.size());
 		}
 
-		// Get the topN word counts from the textMap and return a list of word
+		// Get the topN word counts from the index and return a list of word
 		// count entries.
-		logger.info("Got Top {} text-count list", topN);
-		return this.textCountMap.entrySet().stream().limit(topN).collect(Collectors.toList());
+		return wordIndex.topN(topN);
+	}
+
+	@Override
+	public List<Entry<String, Long>> findTopNWordCounts(Integer topN, TopNFilterVO filter) {
+		if (filter == null || filter.isEmpty()) {
+			return this.findTopNWordCounts(topN);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Searching top {} text counts with filter: {}", topN, filter);
+		}
+		if (topN == null || topN <= 0) {
+			throw new ApplicationException(
+					new StringBuilder("Requested TopN number: ").append(topN).append(" is invalid").toString());
+		}
+		WordFilter wordFilter = new WordFilter(filter, this.exclusionListService);
+		checkIndexReady();
+		return this.index.topN(topN, wordFilter, wordFilter.getMaxExaminedWords());
+	}
+
+	@Override
+	public List<Entry<String, Long>> updateTextCounts(Map<String, Long> deltas) {
+		if (this.durableCountStore == null || !this.durableCountStore.isEnabled()) {
+			throw new ApplicationException("Count updates are not enabled");
+		}
+		if (deltas == null || deltas.isEmpty() || deltas.size() > MAX_UPDATE_WORDS) {
+			throw new ApplicationException(new StringBuilder("Count update of ")
+					.append(deltas != null ? deltas.size() : 0).append(" words is invalid").toString());
+		}
+		Map<String, Long> words = new LinkedHashMap<>();
+		deltas.forEach((text, delta) -> {
+			String word = searchWord(text);
+			if (delta == null || !UPDATE_WORD.matcher(word).matches()) {
+				throw new ApplicationException(new StringBuilder("Count update of: ").append(text).append(" by ")
+						.append(delta).append(" is invalid").toString());
+			}
+			words.merge(word, delta, Long::sum);
+		});
+		checkIndexReady();
+
+		long sequence;
+		synchronized (this.updateLock) {
+			sequence = this.durableCountStore.append(words);
+			this.pendingUpdates.put(sequence, words);
+		}
+		try {
+			this.durableCountStore.awaitDurable(sequence);
+		} catch (ApplicationException ex) {
+			synchronized (this.updateLock) {
+				this.pendingUpdates.remove(sequence);
+			}
+			throw ex;
+		}
+
+		// Only the point lookups are live: the cached top N lists stay those
+		// of the folded ranking until the next checkpoint clears them
+		this.clearCache("textCountCache");
+		synchronized (this.updateLock) {
+			// Apply the durable updates in the order of the log, so that the
+			// live sequence of the index never skips an unapplied update
+			NavigableMap<Long, Map<String, Long>> durable = this.pendingUpdates.headMap(sequence, true);
+			durable.forEach((durableSequence, durableWords) -> this.index.applyDeltas(durableWords,
+					durableSequence));
+			durable.clear();
+		}
+		this.clearCache("textCountCache");
+
+		WordCountIndex wordIndex = this.index;
+		List<Entry<String, Long>> counts = new ArrayList<>(words.size());
+		words.keySet().forEach(word -> counts.add(new SimpleImmutableEntry<>(word, wordIndex.getCount(word))));
+		return counts;
+	}
+
+	/**
+	 * Updates keep being accepted while the new index is built. Triggered by
+	 * the CountCheckpointScheduler.
+	 */
+	@Override
+	public synchronized void checkpoint() {
+		if (this.durableCountStore == null || !this.durableCountStore.isEnabled()
+				|| this.indexState != IndexState.READY) {
+			return;
+		}
+		WordCountIndex base;
+		Map<String, Long> folded;
+		long sequence;
+		synchronized (this.updateLock) {
+			base = this.index;
+			sequence = base.getLiveSequence();
+			if (sequence == this.checkpointSequence) {
+				return;
+			}
+			folded = base.getLiveDeltas();
+			this.durableCountStore.rotate();
+		}
+		Map<String, Long> counts = new HashMap<>(base.getCountMap());
+		DurableCountStore.applyDeltas(counts, folded);
+		WordCountIndex next = new WordCountIndex(counts, this.nextVersion());
+		FuzzyWordIndex fuzzy = this.buildFuzzyIndex(next);
+		this.durableCountStore.checkpoint(sequence, this.contentHash, next);
+
+		this.clearIndexCaches();
+		synchronized (this.updateLock) {
+			// Carry over the updates applied while the index was built
+			Map<String, Long> remaining = this.index.getLiveDeltas();
+			folded.forEach((word, delta) -> remaining.merge(word, -delta, (a, b) -> a + b == 0 ? null : a + b));
+			next.applyDeltas(remaining, this.index.getLiveSequence());
+			this.previousIndex = this.retainPreviousIndex ? this.index : null;
+			this.index = next;
+			this.fuzzyIndex = fuzzy;
+			this.checkpointSequence = sequence;
+		}
+		this.clearIndexCaches();
+		logger.info("Folded count updates up to {} into index {}", sequence, next.getVersion());
+	}
+
+	/**
+	 * Not supported with count updates: the checkpoints hold the corpus
+	 * counts plus the updates, which can not be told apart to rebase the
+	 * updates on a changed corpus. Serialized with the checkpoints.
+	 */
+	@Override
+	public synchronized boolean reloadCorpus() {
+		if (this.durableCountStore != null && this.durableCountStore.isEnabled()) {
+			throw new ApplicationException("Corpus reload is not supported with count updates enabled");
+		}
+		checkIndexReady();
+		long previousContentHash = this.contentHash;
+		Map<String, Long> counts = this.readCorpus();
+		if (this.contentHash == previousContentHash) {
+			logger.info("Corpus unchanged, content hash {}", Long.toHexString(previousContentHash));
+			return false;
+		}
+		initializedTextCountMap(counts);
+		logger.info("Reloaded changed corpus into index {}", this.index.getVersion());
+		return true;
+	}
+
+	/**
+	 * Clears the caches of the lookups computed from the index. Called before
+	 * a new index is published, so that no entry of the previous index is
+	 * served alongside the new one, and again after it, for the lookups that
+	 * read the previous index while it was published. The topN lists carry
+	 * the version of their index generation, so a list cached after both is
+	 * detected by the CoalescingTextCountService.
+	 */
+	private void clearIndexCaches() {
+		this.clearCache("textCountCache");
+		this.clearCache("topNCountCache");
+	}
+
+	private void clearCache(String cacheName) {
+		Cache cache = this.cacheManager != null ? this.cacheManager.getCache(cacheName) : null;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	@Override
+	public WordCountIndex getWordCountIndex() {
+		checkIndexReady();
+		return this.index;
+	}
+
+	@Override
+	public DocumentFrequencyVO findDocumentFrequency(String text) {
+		String word = searchWord(text);
+		DocumentIndex documents = this.checkDocumentIndex();
+		return new DocumentFrequencyVO(word, documents.getDocumentFrequency(word), documents.getDocumentCount());
+	}
+
+	@Override
+	public DocumentTermVO findDocumentTextCount(String document, String text) {
+		String word = searchWord(text);
+		DocumentIndex documents = this.checkDocumentIndex();
+		checkDocument(documents, document);
+		DocumentIndex.Term term = documents.getTerm(document, word);
+		return new DocumentTermVO(document, word, term.getCount(), term.getDocumentFrequency(), term.getTfIdf());
+	}
+
+	@Override
+	public List<DocumentTermVO> findTopTfIdfTerms(String document, Integer topN) {
+		if (topN == null || topN <= 0) {
+			throw new ApplicationException(
+					new StringBuilder("Requested TopN number: ").append(topN).append(" is invalid").toString());
+		}
+		DocumentIndex documents = this.checkDocumentIndex();
+		checkDocument(documents, document);
+		List<DocumentTermVO> terms = new ArrayList<>();
+		documents.topTfIdf(document, topN).forEach(term -> terms.add(new DocumentTermVO(document, term.getWord(),
+				term.getCount(), term.getDocumentFrequency(), term.getTfIdf())));
+		return terms;
+	}
+
+	/**
+	 * Returns the document index once built, throwing ApplicationException if
+	 * it is not enabled.
+	 */
+	private DocumentIndex checkDocumentIndex() {
+		checkIndexReady();
+		DocumentIndex documents = this.documentIndex;
+		if (documents == null) {
+			throw new ApplicationException("Document index is not enabled");
+		}
+		return documents;
+	}
+
+	private static void checkDocument(DocumentIndex documents, String document) {
+		if (document == null || !documents.containsDocument(document)) {
+			throw new ApplicationException(
+					new StringBuilder("Document: ").append(document).append(" not found").toString());
+		}
+	}
+
+	/**
+	 * Returns the lower case word to search, throwing ApplicationException if
+	 * the text is null or empty.
+	 */
+	private static String searchWord(String text) {
+		if (text == null || text.trim().isEmpty()) {
+			throw new ApplicationException(
+					new StringBuilder("Text to be searched: ").append(text).append(" is Invalid").toString());
+		}
+		return text.trim().toLowerCase();
+	}
+
+	@Override
+	public List<Entry<String, Long>> findWordCountsInRange(Long minCount, Long maxCount, Integer limit) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Searching text counts between {} and {}", minCount, maxCount);
+		}
+		long min = minCount != null ? Math.max(1L, minCount) : 1L;
+		long max = maxCount != null ? maxCount : Long.MAX_VALUE;
+		if (min > max || (limit != null && limit <= 0)) {
+			throw new ApplicationException(new StringBuilder("Requested count range: ").append(minCount).append(" - ")
+					.append(maxCount).append(" / limit ").append(limit).append(" is invalid").toString());
+		}
+		checkIndexReady();
+		return this.index.countRange(min, max, limit != null ? limit : Integer.MAX_VALUE);
+	}
+
+	@Override
+	public WordCountStatsVO getWordCountStats() {
+		checkIndexReady();
+		return this.index.getStats();
+	}
+
+	@Override
+	public WordCountDiffVO findWordCountDiff(Integer limit, Long minCount) {
+		if (limit != null && limit <= 0) {
+			throw new ApplicationException(
+					new StringBuilder("Requested limit: ").append(limit).append(" is invalid").toString());
+		}
+		checkIndexReady();
+		WordCountIndex previous = this.previousIndex;
+		if (previous == null) {
+			throw new ApplicationException("No previous index generation to compare with");
+		}
+		long startTime = System.nanoTime();
+		WordCountDiff diff = new WordCountDiff(previous, this.index, limit != null ? limit : 10,
+				minCount != null ? minCount : 1);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Compared index {} with {} in {} ms", diff.getFromVersion(), diff.getToVersion(),
+					(System.nanoTime() - startTime) / 1_000_000);
+		}
+		WordCountDiffVO diffVO = new WordCountDiffVO(diff.getFromVersion(), diff.getToVersion(),
+				diff.getNewWordCount(), diff.getVanishedWordCount(), diff.getChangedWordCount());
+		addChanges(diff.getRisers(), diffVO.getRisers());
+		addChanges(diff.getFallers(), diffVO.getFallers());
+		addChanges(diff.getRelativeRisers(), diffVO.getRelativeRisers());
+		addChanges(diff.getRelativeFallers(), diffVO.getRelativeFallers());
+		addChanges(diff.getNewWords(), diffVO.getNewWords());
+		addChanges(diff.getVanishedWords(), diffVO.getVanishedWords());
+		return diffVO;
+	}
+
+	private static void addChanges(List<WordCountDiff.Change> changes, List<WordChangeVO> changeVOs) {
+		changes.forEach(change -> changeVOs.add(new WordChangeVO(change.getWord(), change.getPreviousCount(),
+				change.getCurrentCount(), change.getPreviousCount() > 0 ? change.getRelativeChange() : null)));
+	}
+
+	@Override
+	public Long findCorpusTextCount(String corpus, String text) {
+		String word = searchWord(text);
+		return this.corpusIndex(corpus).getCount(word);
+	}
+
+	@Override
+	public List<Entry<String, Long>> findCorpusTopNWordCounts(String corpus, Integer topN) {
+		if (topN == null || topN <= 0) {
+			throw new ApplicationException(
+					new StringBuilder("Requested TopN number: ").append(topN).append(" is invalid").toString());
+		}
+		return this.corpusIndex(corpus).topN(topN);
+	}
+
+	@Override
+	public WordCountStatsVO getCorpusWordCountStats(String corpus) {
+		return this.corpusIndex(corpus).getStats();
+	}
+
+	@Override
+	public List<CorpusStatusVO> getCorpora() {
+		return this.corpusRegistry != null ? this.corpusRegistry.getCorpora() : Collections.emptyList();
+	}
+
+	private WordCountIndex corpusIndex(String corpus) {
+		if (this.corpusRegistry == null) {
+			throw new ApplicationException(
+					new StringBuilder("Corpus: ").append(corpus).append(" not found").toString());
+		}
+		return this.corpusRegistry.getIndex(corpus);
+	}
+
+	@Override
+	public String getIndexVersion() {
+		return this.indexState == IndexState.READY ? this.index.getVersion() : null;
+	}
+
+	@Override
+	public String getGenerationVersion() {
+		return this.indexState == IndexState.READY ? this.index.getGenerationVersion() : null;
 	}
 
 	/**
 	 * Returns an unmodifiable text count map initialized from the source text
 	 * file.
 	 * 
-	 * @return An unmodifiable text count map. If the bean has not been
-	 *         initialized with the init() method then null will be returned.
+	 * @return An unmodifiable text count map, in rank order. If the bean has
+	 *         not been initialized with the init() method then the map is
+	 *         empty.
 	 */
 	public Map<String, Long> getTextCountMap() {
-		return this.textCountMap != null ? Collections.unmodifiableMap(this.textCountMap) : null;
+		return this.index.getCountMap();
 	}
 
 	/**
-	 * Internal method for reading the source text file based on the resource
-	 * srcFile.
+	 * Internal method for reading the corpus, either from the resources
+	 * matching the corpus location or from the srcFile.
 	 * 
-	 * @return File text.
+	 * @return Unsorted word count map of the corpus.
 	 */
-	private String readFile() {
-		StringBuilder fileStrBuilder = new StringBuilder();
-
-		try (Stream<String> stream = Files.lines(Paths.get(srcFile.getURI()), StandardCharsets.UTF_8)) {
-
-			stream.forEach(str -> fileStrBuilder.append(str));
-
+	private Map<String, Long> readCorpus() {
+		try {
+			List<String> documentNames = new ArrayList<>();
+			Resource[] sources = this.resolveCorpusSources(documentNames);
+			logger.info("Loading corpus from {} source file(s)", sources.length);
+			DocumentIndex.Builder documents = this.documentsEnabled ? new DocumentIndex.Builder() : null;
+			this.corpusReader = new CorpusReader(this.corpusParallelism, this.corpusProgressInterval, documents,
+					this.lineDocuments);
+			Map<String, Long> counts = this.corpusReader.read(sources,
+					documentNames.toArray(new String[documentNames.size()]));
+			this.contentHash = this.corpusReader.getContentHash();
+			if (documents != null) {
+				long startTime = System.nanoTime();
+				this.documentIndex = documents.build();
+				logger.info("Built document index of {} documents, {} words, ~{} bytes in {} ms",
+						this.documentIndex.getDocumentCount(), this.documentIndex.getWordCount(),
+						this.documentIndex.estimatedSizeBytes(), (System.nanoTime() - startTime) / 1_000_000);
+			}
+			return counts;
+		} catch (ApplicationException ex) {
+			logger.error("Error occurred in loading Paragraph file. Application not initialized", ex);
+			throw new ApplicationException("Error occurred in loading Paragraph file. Application not initialized",
+					ex.getCause());
 		} catch (Exception ex) {
 			logger.error("Error occurred in loading Paragraph file. Application not initialized", ex);
 			throw new ApplicationException("Error occurred in loading Paragraph file. Application not initialized", ex);
 		}
-		return fileStrBuilder.toString();
 	}
-	
+
 	/**
-	 * Parses the provided text to initialize the Text Count Map.
-	 * @param textStr Text string to parse for map initialization.
+	 * Resolves the corpus location patterns into the list of readable
+	 * resources. Falls back to the srcFile if no location is configured.
+	 * Each resource is named by its path relative to the root directory of
+	 * the pattern it matched (e.g. <code>a/x.txt</code> for
+	 * <code>file:corpus/**&#47;*.txt</code>), suffixed with #n if already
+	 * used, in resolution order.
+	 * 
+	 * @param documentNames
+	 *            List the document name of each resource is added to.
 	 */
-	private void initializedTextCountMap(String textStr) {
-		// Create word count map from the source file's text
-		Map<String, Long> notSortedMap = Arrays
-				.stream(textStr.toLowerCase().replaceAll("[^a-z0-9\\s]", " ").split(" "))
-				.filter(text -> !text.trim().isEmpty()).map(text -> new SimpleEntry<>(text, 1L))
-				.collect(Collectors.groupingBy(SimpleEntry::getKey, Collectors.counting()));
+	private Resource[] resolveCorpusSources(List<String> documentNames) throws IOException {
+		if (!StringUtils.hasText(this.corpusLocation)) {
+			documentNames.add(fileName(this.srcFile));
+			return new Resource[] { this.srcFile };
+		}
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		List<Resource> sources = new ArrayList<>();
+		Set<String> usedNames = new HashSet<>();
+		for (String location : StringUtils.commaDelimitedListToStringArray(this.corpusLocation)) {
+			Resource[] roots = resolveRootDirs(resolver, location.trim());
+			for (Resource resource : resolver.getResources(location.trim())) {
+				if (resource.isReadable()) {
+					sources.add(resource);
+					String name = documentName(roots, resource);
+					String documentName = name;
+					for (int n = 2; !usedNames.add(documentName); n++) {
+						documentName = name + '#' + n;
+					}
+					documentNames.add(documentName);
+				}
+			}
+		}
+		if (sources.isEmpty()) {
+			throw new FileNotFoundException("No corpus files found at: " + this.corpusLocation);
+		}
+		return sources.toArray(new Resource[sources.size()]);
+	}
 
-		// Sort the word count map by value and assign it to the textCountMap
-		notSortedMap.entrySet().stream().sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-				.forEachOrdered(entry -> this.textCountMap.put(entry.getKey(), entry.getValue()));
-		logger.info("Loaded Paragraph text. Total no. of words: {}", this.textCountMap.size());
+	/**
+	 * Resolves the root directories of a location pattern: its path up to the
+	 * last directory without wildcards, as PathMatchingResourcePatternResolver
+	 * determines it. A location without wildcards is its own root.
+	 */
+	private static Resource[] resolveRootDirs(PathMatchingResourcePatternResolver resolver, String location) {
+		int prefixEnd = location.indexOf(':') + 1;
+		int rootDirEnd = location.length();
+		while (rootDirEnd > prefixEnd
+				&& resolver.getPathMatcher().isPattern(location.substring(prefixEnd, rootDirEnd))) {
+			rootDirEnd = location.lastIndexOf('/', rootDirEnd - 2) + 1;
+		}
+		try {
+			return resolver.getResources(location.substring(0, Math.max(rootDirEnd, prefixEnd)));
+		} catch (IOException ex) {
+			return new Resource[0];
+		}
+	}
+
+	/**
+	 * Returns the path of a resource relative to the root directory it is
+	 * under, or its file name if it is not under any of them.
+	 */
+	private static String documentName(Resource[] roots, Resource resource) {
+		try {
+			URI uri = resource.getURI();
+			for (Resource root : roots) {
+				URI relative = root.getURI().relativize(uri);
+				if (!relative.isAbsolute() && StringUtils.hasText(relative.getPath())) {
+					return relative.getPath();
+				}
+			}
+		} catch (IOException ex) {
+			// Not resolvable as a URI: named by its file name
+		}
+		return fileName(resource);
+	}
+
+	private static String fileName(Resource resource) {
+		return resource.getFilename() != null ? resource.getFilename() : resource.getDescription();
+	}
+
+	/**
+	 * Sorts the provided word counts to initialize the Text Count index: the
+	 * ranked text count map, its count buckets and statistics. The index
+	 * version combines the corpus content hash and the build generation.
+	 * @param notSortedMap Word counts of the corpus to initialize the map from.
+	 */
+	private void initializedTextCountMap(Map<String, Long> notSortedMap) {
+		// Sort the word count map by value and publish it as the new index
+		WordCountIndex wordIndex = new WordCountIndex(notSortedMap, this.nextVersion());
+		FuzzyWordIndex fuzzy = this.buildFuzzyIndex(wordIndex);
+		this.clearIndexCaches();
+		this.previousIndex = this.retainPreviousIndex && this.index != WordCountIndex.EMPTY ? this.index : null;
+		this.index = wordIndex;
+		this.fuzzyIndex = fuzzy;
+		this.clearIndexCaches();
+		logger.info("Loaded Paragraph text. Total no. of words: {}", this.index.size());
+	}
+
+	/**
+	 * Returns the version of the next index: the corpus content hash and the
+	 * build generation.
+	 */
+	private String nextVersion() {
+		return new StringBuilder(Long.toHexString(this.contentHash)).append('.')
+				.append(this.indexGeneration.incrementAndGet()).toString();
+	}
+
+	/**
+	 * Builds the typo-tolerant lookup index of the given index, null if not
+	 * enabled.
+	 */
+	private FuzzyWordIndex buildFuzzyIndex(WordCountIndex wordIndex) {
+		if (!this.fuzzyEnabled) {
+			return null;
+		}
+		long startTime = System.nanoTime();
+		FuzzyWordIndex fuzzy = new FuzzyWordIndex(wordIndex, this.fuzzyMaxDistance);
+		logger.info("Built fuzzy index of edit distance {}, ~{} bytes in {} ms", this.fuzzyMaxDistance,
+				fuzzy.estimatedSizeBytes(), (System.nanoTime() - startTime) / 1_000_000);
+		return fuzzy;
 	}
 }
@@ -0,0 +1,398 @@
+package com.wordcount.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts the words of UTF-8 text directly on its bytes, with the same words
+ * as CorpusReader.countWords: lower case runs of ASCII letters and digits,
+ * any other character being a delimiter. The text is neither decoded to
+ * UTF-16 nor copied into Strings; each byte is visited once:
+ * <ol>
+ * <li>bytes are classified with a 256-entry table, and ASCII letters and
+ * digits folded to lower case by setting bit 0x20 (a no-op for digits),</li>
+ * <li>pure ASCII 8-byte blocks are handled as one long: delimiter runs are
+ * skipped and token runs measured with SWAR byte-range tests, the token
+ * bytes folded with a single OR,</li>
+ * <li>tokens are packed into 8-byte chunks and hashed chunk by chunk while
+ * scanning, then counted in an open addressing table comparing chunks, so
+ * the dictionary insertion needs no second pass over the token.</li>
+ * </ol>
+ * Non-ASCII bytes take the scalar path. The only non-ASCII characters whose
+ * lower case contains ASCII letters are handled there: U+0130 (lower case
+ * "i" and a combining dot, so it ends the token) and U+212A (Kelvin sign,
+ * "k"). Malformed sequences are delimiters, as their replacement character
+ * is.
+ */
+public class Utf8WordCounter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final byte DELIMITER = 0;
+
+	private static final byte TOKEN = 1;
+
+	/**
+	 * Lead bytes of U+0130 (C4 B0) and U+212A (E2 84 AA).
+	 */
+	private static final byte SPECIAL = 2;
+
+	/**
+	 * Bytes that can start a read window: ASCII delimiters and lead bytes
+	 * other than the special ones.
+	 */
+	private static final byte RESTART = 4;
+
+	private static final byte[] CLASSES = new byte[256];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			boolean token = b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9';
+			CLASSES[b] = token ? TOKEN : DELIMITER;
+			if (!token && (b < 0x80 || b >= 0xC0)) {
+				CLASSES[b] |= RESTART;
+			}
+		}
+		CLASSES[0xC4] = SPECIAL;
+		CLASSES[0xE2] = SPECIAL;
+	}
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private static final long LOW_7_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+	private static final long CASE_BITS = 0x2020202020202020L;
+
+	private final int bufferSize;
+
+	/**
+	 * Chunks of the token being scanned, and the partial last chunk.
+	 */
+	private long[] tokenChunks = new long[8];
+
+	private int tokenChunkCount;
+
+	private long pending;
+
+	private int pendingBytes;
+
+	private long tokenHash = 0x6A09E667F3BCC908L;
+
+	/**
+	 * Open addressing table of entry index + 1, 0 for an empty slot.
+	 */
+	private int[] slots = new int[1 << 12];
+
+	private long[] hashes = new long[1 << 11];
+
+	private int[] keyOffsets = new int[1 << 11];
+
+	private int[] keyLengths = new int[1 << 11];
+
+	private long[] counts = new long[1 << 11];
+
+	private int size;
+
+	/**
+	 * Chunks of all the words, each word starting at its key offset.
+	 */
+	private long[] keys = new long[1 << 12];
+
+	private int keysSize;
+
+	public Utf8WordCounter() {
+		this(BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            Initial size of the read buffer.
+	 */
+	Utf8WordCounter(int bufferSize) {
+		this.bufferSize = Math.max(16, bufferSize);
+	}
+
+	/**
+	 * Counts the words of the given UTF-8 stream, adding them to the counts
+	 * of the previous streams. The stream is not closed.
+	 *
+	 * @param in
+	 *            UTF-8 text stream.
+	 * @throws IOException
+	 *             If the stream cannot be read.
+	 */
+	public void count(InputStream in) throws IOException {
+		// 8 bytes of slack so that blocks can be read past the window end
+		byte[] buffer = new byte[this.bufferSize + 8];
+		ByteBuffer longs = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+		int length = 0;
+		boolean eof = false;
+		while (!eof) {
+			int n = in.read(buffer, length, buffer.length - 8 - length);
+			if (n < 0) {
+				eof = true;
+				Arrays.fill(buffer, length, length + 8, (byte) ' ');
+			} else {
+				length += n;
+			}
+			int end = eof ? length : restartPosition(buffer, length);
+			if (end <= 0 && !eof) {
+				if (length == buffer.length - 8) {
+					// No window boundary in a full buffer: a giant token
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					longs = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+				}
+				continue;
+			}
+			this.scan(buffer, longs, end);
+			System.arraycopy(buffer, end, buffer, 0, length - end);
+			length -= end;
+		}
+	}
+
+	/**
+	 * Counts the words of the given UTF-8 text.
+	 *
+	 * @param text
+	 *            UTF-8 text, complete.
+	 * @param offset
+	 *            Start of the text.
+	 * @param length
+	 *            Length of the text.
+	 */
+	public void count(byte[] text, int offset, int length) {
+		byte[] buffer = new byte[length + 8];
+		System.arraycopy(text, offset, buffer, 0, length);
+		Arrays.fill(buffer, length, length + 8, (byte) ' ');
+		this.scan(buffer, ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN), length);
+	}
+
+	/**
+	 * @return Number of distinct words counted.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return Map of word to count.
+	 */
+	public Map<String, Long> toMap() {
+		Map<String, Long> map = new HashMap<>(this.size * 4 / 3 + 1);
+		char[] chars = new char[64];
+		for (int entry = 0; entry < this.size; entry++) {
+			int length = this.keyLengths[entry];
+			if (chars.length < length) {
+				chars = new char[length];
+			}
+			for (int i = 0; i < length; i++) {
+				chars[i] = (char) ((this.keys[this.keyOffsets[entry] + (i >>> 3)] >>> ((i & 7) << 3)) & 0xFF);
+			}
+			map.put(new String(chars, 0, length), this.counts[entry]);
+		}
+		return map;
+	}
+
+	/**
+	 * Returns the end of the window that can be scanned without the bytes
+	 * read next: the last position of a byte that starts a delimiter
+	 * character, so no token or character spans the window end.
+	 */
+	private static int restartPosition(byte[] buffer, int length) {
+		for (int i = length - 1; i > 0; i--) {
+			if ((CLASSES[buffer[i] & 0xFF] & RESTART) != 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Scans the window [0, end) of the buffer. The byte at end starts a
+	 * delimiter character, or is the blank padding at the end of the text.
+	 */
+	private void scan(byte[] buffer, ByteBuffer longs, int end) {
+		boolean inToken = false;
+		int position = 0;
+		while (position < end) {
+			long block = longs.getLong(position);
+			if ((block & HIGH_BITS) == 0) {
+				long tokenBytes = tokenBytes(block);
+				if (!inToken) {
+					if (tokenBytes == 0) {
+						position += 8;
+						continue;
+					}
+					position += Long.numberOfTrailingZeros(tokenBytes) >>> 3;
+					// A token starting past the window end is scanned with the next one
+					inToken = position < end;
+					continue;
+				}
+				// Token bytes up to the first delimiter of the block
+				int run = Long.numberOfTrailingZeros(~tokenBytes & HIGH_BITS) >>> 3;
+				long folded = (block | CASE_BITS) & (run == 8 ? -1L : (1L << (run << 3)) - 1);
+				this.append(folded, run);
+				position += run;
+				if (run < 8) {
+					this.endToken();
+					inToken = false;
+				}
+				continue;
+			}
+			// Scalar path for the blocks with non-ASCII bytes
+			int b = buffer[position] & 0xFF;
+			int type = CLASSES[b] & 3;
+			if (type == TOKEN) {
+				this.append(b | 0x20, 1);
+				inToken = true;
+				position++;
+			} else if (b == 0xC4 && (buffer[position + 1] & 0xFF) == 0xB0) {
+				// U+0130: "i" and a combining dot, a delimiter
+				this.append('i', 1);
+				this.endToken();
+				inToken = false;
+				position += 2;
+			} else if (b == 0xE2 && (buffer[position + 1] & 0xFF) == 0x84 && (buffer[position + 2] & 0xFF) == 0xAA) {
+				// U+212A: Kelvin sign, "k"
+				this.append('k', 1);
+				inToken = true;
+				position += 3;
+			} else {
+				if (inToken) {
+					this.endToken();
+					inToken = false;
+				}
+				position++;
+			}
+		}
+		if (inToken) {
+			this.endToken();
+		}
+	}
+
+	/**
+	 * Returns the block with the high bit set in each byte that is an ASCII
+	 * letter or digit. Each byte is tested on its own 7 bits, so no carry
+	 * crosses bytes; the block must be pure ASCII.
+	 */
+	private static long tokenBytes(long block) {
+		long letters = between(block | CASE_BITS, 'a' - 1, 'z' + 1);
+		long digits = between(block, '0' - 1, '9' + 1);
+		return letters | digits;
+	}
+
+	/**
+	 * Returns the high bit of each byte of the pure ASCII block such that
+	 * low &lt; byte &lt; high.
+	 */
+	private static long between(long block, int low, int high) {
+		long bytes = block & LOW_7_BITS;
+		return (ONES * (127 + high) - bytes & ~block & bytes + ONES * (127 - low)) & HIGH_BITS;
+	}
+
+	/**
+	 * Appends the given number of token bytes, packed in a long.
+	 */
+	private void append(long bytes, int count) {
+		int shift = this.pendingBytes << 3;
+		this.pending |= bytes << shift;
+		int total = this.pendingBytes + count;
+		if (total >= 8) {
+			this.addChunk(this.pending);
+			this.pending = shift == 0 ? 0 : bytes >>> (64 - shift);
+			this.pendingBytes = total - 8;
+		} else {
+			this.pendingBytes = total;
+		}
+	}
+
+	private void addChunk(long chunk) {
+		if (this.tokenChunkCount == this.tokenChunks.length) {
+			this.tokenChunks = Arrays.copyOf(this.tokenChunks, this.tokenChunkCount * 2);
+		}
+		this.tokenChunks[this.tokenChunkCount++] = chunk;
+		this.tokenHash = Long.rotateLeft((this.tokenHash ^ chunk) * 0x9E3779B97F4A7C15L, 27);
+	}
+
+	/**
+	 * Counts the token scanned, hashed chunk by chunk, and resets the token.
+	 */
+	private void endToken() {
+		int length = (this.tokenChunkCount << 3) + this.pendingBytes;
+		if (this.pendingBytes > 0) {
+			this.addChunk(this.pending);
+		}
+		long hash = this.tokenHash ^ length;
+		hash = (hash ^ (hash >>> 31)) * 0xBF58476D1CE4E5B9L;
+		hash ^= hash >>> 29;
+		this.add(hash, length);
+		this.tokenChunkCount = 0;
+		this.pending = 0;
+		this.pendingBytes = 0;
+		this.tokenHash = 0x6A09E667F3BCC908L;
+	}
+
+	private void add(long hash, int length) {
+		int mask = this.slots.length - 1;
+		int slot = (int) hash & mask;
+		int chunkCount = this.tokenChunkCount;
+		for (int entry; (entry = this.slots[slot]) != 0; slot = (slot + 1) & mask) {
+			entry--;
+			if (this.hashes[entry] == hash && this.keyLengths[entry] == length
+					&& this.chunksEqual(this.keyOffsets[entry], chunkCount)) {
+				this.counts[entry]++;
+				return;
+			}
+		}
+		int entry = this.size++;
+		if (entry == this.counts.length) {
+			int capacity = entry * 2;
+			this.hashes = Arrays.copyOf(this.hashes, capacity);
+			this.keyOffsets = Arrays.copyOf(this.keyOffsets, capacity);
+			this.keyLengths = Arrays.copyOf(this.keyLengths, capacity);
+			this.counts = Arrays.copyOf(this.counts, capacity);
+		}
+		if (this.keysSize + chunkCount > this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, Math.max(this.keys.length * 2, this.keysSize + chunkCount));
+		}
+		System.arraycopy(this.tokenChunks, 0, this.keys, this.keysSize, chunkCount);
+		this.hashes[entry] = hash;
+		this.keyOffsets[entry] = this.keysSize;
+		this.keyLengths[entry] = length;
+		this.counts[entry] = 1;
+		this.keysSize += chunkCount;
+		this.slots[slot] = entry + 1;
+		if (this.size * 2 > this.slots.length) {
+			this.rehash();
+		}
+	}
+
+	private boolean chunksEqual(int offset, int chunkCount) {
+		for (int i = 0; i < chunkCount; i++) {
+			if (this.keys[offset + i] != this.tokenChunks[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		int[] rehashed = new int[this.slots.length * 2];
+		int mask = rehashed.length - 1;
+		for (int entry = 0; entry < this.size; entry++) {
+			int slot = (int) this.hashes[entry] & mask;
+			while (rehashed[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			rehashed[slot] = entry + 1;
+		}
+		this.slots = rehashed;
+	}
+}
@@ -0,0 +1,256 @@
+package com.wordcount.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Difference between the counts of two generations of the word count index:
+ * the words gaining and losing the most occurrences, by absolute and by
+ * relative change, and the words new in or vanished from the later one.
+ * <p>
+ * The two generations are compared with a single merge join over their
+ * words in lexicographic order (the lexical ranks of each index), so each
+ * word is visited once and no word is looked up in the other generation's
+ * count map. Every category keeps its top N changes in a bounded heap.
+ */
+public class WordCountDiff {
+
+	private final String fromVersion;
+
+	private final String toVersion;
+
+	private final int newWordCount;
+
+	private final int vanishedWordCount;
+
+	private final int changedWordCount;
+
+	private final List<Change> risers;
+
+	private final List<Change> fallers;
+
+	private final List<Change> relativeRisers;
+
+	private final List<Change> relativeFallers;
+
+	private final List<Change> newWords;
+
+	private final List<Change> vanishedWords;
+
+	/**
+	 * Computes the difference between two index generations.
+	 *
+	 * @param from
+	 *            Previous index generation.
+	 * @param to
+	 *            Current index generation.
+	 * @param limit
+	 *            Number of words returned in each category.
+	 * @param minCount
+	 *            Minimum count of a word in either generation for its
+	 *            relative change to be ranked, so rare words do not dominate.
+	 */
+	public WordCountDiff(WordCountIndex from, WordCountIndex to, int limit, long minCount) {
+		this.fromVersion = from.getVersion();
+		this.toVersion = to.getVersion();
+		TopChanges risers = new TopChanges(limit, Comparator.comparingLong(Change::getChange));
+		TopChanges fallers = new TopChanges(limit, Comparator.comparingLong((Change c) -> -c.getChange()));
+		TopChanges relativeRisers = new TopChanges(limit, Comparator.comparingDouble(Change::getRelativeChange));
+		TopChanges relativeFallers = new TopChanges(limit,
+				Comparator.comparingDouble((Change c) -> -c.getRelativeChange()));
+		TopChanges newWords = new TopChanges(limit, Comparator.comparingLong(Change::getCurrentCount));
+		TopChanges vanishedWords = new TopChanges(limit, Comparator.comparingLong(Change::getPreviousCount));
+
+		int added = 0;
+		int removed = 0;
+		int changed = 0;
+		int i = 0;
+		int j = 0;
+		while (i < from.size() || j < to.size()) {
+			int fromRank = i < from.size() ? from.getLexicalRank(i) : -1;
+			int toRank = j < to.size() ? to.getLexicalRank(j) : -1;
+			int order = fromRank < 0 ? 1 : toRank < 0 ? -1 : from.getWord(fromRank).compareTo(to.getWord(toRank));
+			if (order < 0) {
+				removed++;
+				vanishedWords.offer(from.getWord(fromRank), from.getCountAt(fromRank), 0);
+				i++;
+			} else if (order > 0) {
+				added++;
+				newWords.offer(to.getWord(toRank), 0, to.getCountAt(toRank));
+				j++;
+			} else {
+				long previous = from.getCountAt(fromRank);
+				long current = to.getCountAt(toRank);
+				if (previous != current) {
+					changed++;
+					String word = to.getWord(toRank);
+					if (current > previous) {
+						risers.offer(word, previous, current);
+					} else {
+						fallers.offer(word, previous, current);
+					}
+					if (Math.max(previous, current) >= minCount) {
+						if (current > previous) {
+							relativeRisers.offer(word, previous, current);
+						} else {
+							relativeFallers.offer(word, previous, current);
+						}
+					}
+				}
+				i++;
+				j++;
+			}
+		}
+		this.newWordCount = added;
+		this.vanishedWordCount = removed;
+		this.changedWordCount = changed;
+		this.risers = risers.toList();
+		this.fallers = fallers.toList();
+		this.relativeRisers = relativeRisers.toList();
+		this.relativeFallers = relativeFallers.toList();
+		this.newWords = newWords.toList();
+		this.vanishedWords = vanishedWords.toList();
+	}
+
+	public String getFromVersion() {
+		return this.fromVersion;
+	}
+
+	public String getToVersion() {
+		return this.toVersion;
+	}
+
+	public int getNewWordCount() {
+		return this.newWordCount;
+	}
+
+	public int getVanishedWordCount() {
+		return this.vanishedWordCount;
+	}
+
+	public int getChangedWordCount() {
+		return this.changedWordCount;
+	}
+
+	/**
+	 * @return Words with the largest count increase, largest first.
+	 */
+	public List<Change> getRisers() {
+		return this.risers;
+	}
+
+	/**
+	 * @return Words with the largest count decrease, largest first.
+	 */
+	public List<Change> getFallers() {
+		return this.fallers;
+	}
+
+	/**
+	 * @return Words with the largest relative count increase, largest first.
+	 */
+	public List<Change> getRelativeRisers() {
+		return this.relativeRisers;
+	}
+
+	/**
+	 * @return Words with the largest relative count decrease, largest first.
+	 */
+	public List<Change> getRelativeFallers() {
+		return this.relativeFallers;
+	}
+
+	/**
+	 * @return Words only in the current generation, most frequent first.
+	 */
+	public List<Change> getNewWords() {
+		return this.newWords;
+	}
+
+	/**
+	 * @return Words only in the previous generation, most frequent first.
+	 */
+	public List<Change> getVanishedWords() {
+		return this.vanishedWords;
+	}
+
+	/**
+	 * Count change of a word between the two generations.
+	 */
+	public static final class Change {
+		private final String word;
+		private final long previousCount;
+		private final long currentCount;
+
+		Change(String word, long previousCount, long currentCount) {
+			this.word = word;
+			this.previousCount = previousCount;
+			this.currentCount = currentCount;
+		}
+
+		public String getWord() {
+			return this.word;
+		}
+
+		public long getPreviousCount() {
+			return this.previousCount;
+		}
+
+		public long getCurrentCount() {
+			return this.currentCount;
+		}
+
+		public long getChange() {
+			return this.currentCount - this.previousCount;
+		}
+
+		/**
+		 * @return Change relative to the previous count, infinite for a new
+		 *         word.
+		 */
+		public double getRelativeChange() {
+			return this.previousCount > 0 ? (double) this.getChange() / this.previousCount
+					: Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Bounded min-heap keeping the top N changes of an order, ties by word.
+	 */
+	private static final class TopChanges {
+		private final int limit;
+		private final Comparator<Change> order;
+		private final PriorityQueue<Change> heap;
+
+		TopChanges(int limit, Comparator<Change> order) {
+			this.limit = limit;
+			this.order = order.thenComparing(Change::getWord, Comparator.reverseOrder());
+			this.heap = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), this.order);
+		}
+
+		void offer(String word, long previousCount, long currentCount) {
+			if (this.limit <= 0) {
+				return;
+			}
+			Change change = new Change(word, previousCount, currentCount);
+			if (this.heap.size() < this.limit) {
+				this.heap.add(change);
+			} else if (this.order.compare(change, this.heap.peek()) > 0) {
+				this.heap.poll();
+				this.heap.add(change);
+			}
+		}
+
+		List<Change> toList() {
+			List<Change> changes = new ArrayList<>(this.heap.size());
+			while (!this.heap.isEmpty()) {
+				changes.add(this.heap.poll());
+			}
+			Collections.reverse(changes);
+			return changes;
+		}
+	}
+}
@@ -0,0 +1,458 @@
+package com.wordcount.service;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import com.wordcount.vo.FrequencyBucketVO;
+import com.wordcount.vo.WordCountStatsVO;
+
+/**
+ * Immutable word count index of a corpus. Words are ranked by descending
+ * count (ties by word) and grouped into count buckets: one bucket per
+ * distinct count, pointing at its contiguous run of words in the ranking.
+ * Count-range queries binary search the buckets and then only touch the
+ * words they return. Corpus statistics are computed once at build time.
+ * <p>
+ * Count updates made at runtime are kept as live deltas overlaid on the
+ * counts of single words; the ranking, buckets and statistics only reflect
+ * them once a checkpoint folds them into a new index.
+ */
+public class WordCountIndex {
+
+	/**
+	 * Empty index, used until the corpus is loaded.
+	 */
+	public static final WordCountIndex EMPTY = new WordCountIndex(Collections.<String, Long>emptyMap(), "0");
+
+	/**
+	 * Content version of the index: changes whenever its counts may change.
+	 */
+	private final String version;
+
+	/**
+	 * Map of word to count, iterated in rank order.
+	 */
+	private final Map<String, Long> countMap;
+
+	private final String[] rankedWords;
+
+	private final long[] rankedCounts;
+
+	/**
+	 * Distinct counts in descending order.
+	 */
+	private final long[] bucketCounts;
+
+	/**
+	 * Start offset in the ranking of each bucket, with a trailing end offset.
+	 */
+	private final int[] bucketStarts;
+
+	private final WordCountStatsVO stats;
+
+	/**
+	 * Ranks of the words in lexicographic order, built on first use.
+	 */
+	private volatile int[] lexicalRanks;
+
+	/**
+	 * Count deltas applied since the index was built, by word.
+	 */
+	private final ConcurrentMap<String, Long> liveDeltas = new ConcurrentHashMap<>();
+
+	/**
+	 * Sequence number of the last count update applied, 0 if none.
+	 */
+	private volatile long liveSequence;
+
+	/**
+	 * Builds the index from the given unsorted word counts.
+	 *
+	 * @param notSortedMap
+	 *            Word counts of the corpus.
+	 * @param version
+	 *            Content version of the index.
+	 */
+	public WordCountIndex(Map<String, Long> notSortedMap, String version) {
+		this.version = version;
+		List<Entry<String, Long>> entries = new ArrayList<>(notSortedMap.entrySet());
+		entries.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+				.thenComparing(Map.Entry.<String, Long>comparingByKey()));
+
+		int size = entries.size();
+		this.rankedWords = new String[size];
+		this.rankedCounts = new long[size];
+		Map<String, Long> sortedMap = new LinkedHashMap<>(size * 4 / 3 + 1);
+		int buckets = 0;
+		for (int i = 0; i < size; i++) {
+			Entry<String, Long> entry = entries.get(i);
+			this.rankedWords[i] = entry.getKey();
+			this.rankedCounts[i] = entry.getValue();
+			sortedMap.put(entry.getKey(), entry.getValue());
+			if (i == 0 || this.rankedCounts[i] != this.rankedCounts[i - 1]) {
+				buckets++;
+			}
+		}
+		this.countMap = Collections.unmodifiableMap(sortedMap);
+
+		// Build the count buckets over the ranking
+		this.bucketCounts = new long[buckets];
+		this.bucketStarts = new int[buckets + 1];
+		for (int i = 0, bucket = -1; i < size; i++) {
+			if (i == 0 || this.rankedCounts[i] != this.rankedCounts[i - 1]) {
+				bucket++;
+				this.bucketCounts[bucket] = this.rankedCounts[i];
+				this.bucketStarts[bucket] = i;
+			}
+		}
+		this.bucketStarts[buckets] = size;
+		this.stats = this.computeStats();
+	}
+
+	/**
+	 * @return Unmodifiable map of word to count, iterated in rank order.
+	 */
+	public Map<String, Long> getCountMap() {
+		return this.countMap;
+	}
+
+	/**
+	 * @return Content version of the index, suffixed with the sequence number
+	 *         of the last count update applied if any.
+	 */
+	public String getVersion() {
+		long sequence = this.liveSequence;
+		return sequence == 0 ? this.version : this.version + '+' + sequence;
+	}
+
+	/**
+	 * @return Content version of the folded ranking: unlike getVersion, it
+	 *         does not change with the count updates applied since the index
+	 *         was built, which only the point lookups see.
+	 */
+	public String getGenerationVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @return Sequence number of the last count update applied, 0 if none.
+	 */
+	public long getLiveSequence() {
+		return this.liveSequence;
+	}
+
+	/**
+	 * Returns a copy of the count deltas applied since the index was built.
+	 *
+	 * @return Map of word to count delta.
+	 */
+	public Map<String, Long> getLiveDeltas() {
+		return new HashMap<>(this.liveDeltas);
+	}
+
+	/**
+	 * Applies count deltas to the words, visible to getCount straight away.
+	 * Callers serialize the updates so that sequence numbers only increase.
+	 *
+	 * @param deltas
+	 *            Map of lower case word to count delta.
+	 * @param sequence
+	 *            Sequence number of the update.
+	 */
+	void applyDeltas(Map<String, Long> deltas, long sequence) {
+		deltas.forEach((word, delta) -> this.liveDeltas.merge(word, delta, (a, b) -> a + b == 0 ? null : a + b));
+		this.liveSequence = Math.max(this.liveSequence, sequence);
+	}
+
+	/**
+	 * @return Number of distinct words.
+	 */
+	public int size() {
+		return this.rankedWords.length;
+	}
+
+	/**
+	 * Returns the count of the given word.
+	 *
+	 * @param word
+	 *            Lower case word.
+	 * @return Word count, 0 if the word is not in the corpus.
+	 */
+	public long getCount(String word) {
+		Long count = this.countMap.get(word);
+		Long delta = this.liveDeltas.isEmpty() ? null : this.liveDeltas.get(word);
+		if (delta != null) {
+			return Math.max(0L, (count != null ? count : 0L) + delta);
+		}
+		return count != null ? count : 0L;
+	}
+
+	/**
+	 * @param rank
+	 *            0 based rank.
+	 * @return Word at the given rank.
+	 */
+	public String getWord(int rank) {
+		return this.rankedWords[rank];
+	}
+
+	/**
+	 * @param rank
+	 *            0 based rank.
+	 * @return Count of the word at the given rank.
+	 */
+	public long getCountAt(int rank) {
+		return this.rankedCounts[rank];
+	}
+
+	/**
+	 * Returns the rank of the word at the given position in lexicographic
+	 * order. The lexicographic order is computed on the first call.
+	 *
+	 * @param position
+	 *            0 based position in lexicographic order.
+	 * @return 0 based rank.
+	 */
+	public int getLexicalRank(int position) {
+		int[] ranks = this.lexicalRanks;
+		if (ranks == null) {
+			synchronized (this) {
+				ranks = this.lexicalRanks;
+				if (ranks == null) {
+					ranks = sortByWord(this.rankedWords);
+					this.lexicalRanks = ranks;
+				}
+			}
+		}
+		return ranks[position];
+	}
+
+	/**
+	 * Returns the ranks in lexicographic order of their word. The ranks are
+	 * merge sorted as primitive ints along with the first four characters of
+	 * their word packed in a long, so most comparisons are of adjacent longs
+	 * and only the words sharing their first four characters are compared as
+	 * Strings. Nothing is boxed.
+	 */
+	private static int[] sortByWord(String[] words) {
+		int[] ranks = new int[words.length];
+		long[] prefixes = new long[words.length];
+		for (int rank = 0; rank < words.length; rank++) {
+			String word = words[rank];
+			long prefix = 0;
+			for (int i = 0; i < 4; i++) {
+				prefix = prefix << 16 | (i < word.length() ? word.charAt(i) : 0);
+			}
+			ranks[rank] = rank;
+			prefixes[rank] = prefix;
+		}
+		sortByWord(ranks, prefixes, new int[ranks.length], new long[ranks.length], 0, ranks.length, words);
+		return ranks;
+	}
+
+	private static void sortByWord(int[] ranks, long[] prefixes, int[] rankBuffer, long[] prefixBuffer, int from,
+			int to, String[] words) {
+		if (to - from <= 16) {
+			for (int i = from + 1; i < to; i++) {
+				int rank = ranks[i];
+				long prefix = prefixes[i];
+				int j = i;
+				for (; j > from && compare(prefixes[j - 1], ranks[j - 1], prefix, rank, words) > 0; j--) {
+					ranks[j] = ranks[j - 1];
+					prefixes[j] = prefixes[j - 1];
+				}
+				ranks[j] = rank;
+				prefixes[j] = prefix;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sortByWord(ranks, prefixes, rankBuffer, prefixBuffer, from, mid, words);
+		sortByWord(ranks, prefixes, rankBuffer, prefixBuffer, mid, to, words);
+		if (compare(prefixes[mid - 1], ranks[mid - 1], prefixes[mid], ranks[mid], words) <= 0) {
+			return;
+		}
+		System.arraycopy(ranks, from, rankBuffer, from, to - from);
+		System.arraycopy(prefixes, from, prefixBuffer, from, to - from);
+		for (int k = from, i = from, j = mid; k < to; k++) {
+			if (j >= to || i < mid
+					&& compare(prefixBuffer[i], rankBuffer[i], prefixBuffer[j], rankBuffer[j], words) <= 0) {
+				ranks[k] = rankBuffer[i];
+				prefixes[k] = prefixBuffer[i++];
+			} else {
+				ranks[k] = rankBuffer[j];
+				prefixes[k] = prefixBuffer[j++];
+			}
+		}
+	}
+
+	/**
+	 * Compares two words by their packed prefix, then as Strings if the
+	 * prefixes are equal. Characters are unsigned, as in String.compareTo.
+	 */
+	private static int compare(long prefix, int rank, long otherPrefix, int otherRank, String[] words) {
+		int comparison = Long.compareUnsigned(prefix, otherPrefix);
+		return comparison != 0 ? comparison : words[rank].compareTo(words[otherRank]);
+	}
+
+	/**
+	 * Returns the top N words and their counts, in rank order.
+	 *
+	 * @param topN
+	 *            Number of words to return, capped to the index size.
+	 * @return List of word-count entries, a RankedWordCounts of the index
+	 *         generation version.
+	 */
+	public List<Entry<String, Long>> topN(int topN) {
+		return this.entries(0, Math.min(topN, this.rankedWords.length));
+	}
+
+	/**
+	 * Returns the top N words matching the given filter, in rank order. The
+	 * ranking is walked lazily and the walk stops as soon as N words match.
+	 *
+	 * @param topN
+	 *            Number of matching words to return.
+	 * @param filter
+	 *            Word filter.
+	 * @return List of word-count entries.
+	 */
+	public List<Entry<String, Long>> topN(int topN, Predicate<String> filter) {
+		return this.topN(topN, filter, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the top N words matching the given filter among the given
+	 * number of most frequent words, in rank order.
+	 *
+	 * @param topN
+	 *            Number of matching words to return.
+	 * @param filter
+	 *            Word filter.
+	 * @param maxExamined
+	 *            Maximum number of words of the ranking to test.
+	 * @return List of word-count entries.
+	 */
+	public List<Entry<String, Long>> topN(int topN, Predicate<String> filter, int maxExamined) {
+		List<Entry<String, Long>> list = new RankedWordCounts(Math.min(topN, 1024), this.version);
+		int examined = Math.min(maxExamined, this.rankedWords.length);
+		for (int i = 0; i < examined && list.size() < topN; i++) {
+			if (filter.test(this.rankedWords[i])) {
+				list.add(new SimpleImmutableEntry<>(this.rankedWords[i], this.rankedCounts[i]));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the words whose count is between the given bounds, in rank
+	 * order. Costs a binary search over the count buckets plus the size of
+	 * the result.
+	 *
+	 * @param minCount
+	 *            Inclusive lower bound.
+	 * @param maxCount
+	 *            Inclusive upper bound.
+	 * @param limit
+	 *            Maximum number of words to return.
+	 * @return List of word-count entries.
+	 */
+	public List<Entry<String, Long>> countRange(long minCount, long maxCount, int limit) {
+		if (minCount > maxCount || this.bucketCounts.length == 0) {
+			return Collections.emptyList();
+		}
+		// Buckets are sorted by descending count: the range starts at the
+		// first bucket <= maxCount and ends before the first bucket < minCount.
+		int from = this.bucketStarts[this.firstBucketAtMost(maxCount)];
+		int to = this.bucketStarts[this.firstBucketAtMost(minCount - 1)];
+		return this.entries(from, limit < to - from ? from + Math.max(0, limit) : to);
+	}
+
+	/**
+	 * Estimates the retained size of the index: words, count map entries,
+	 * ranking and buckets.
+	 *
+	 * @return Estimated size in bytes.
+	 */
+	public long estimatedSizeBytes() {
+		// String, boxed count, map node and the ranked word and count slots
+		long size = 64L * this.bucketCounts.length + 256;
+		for (String word : this.rankedWords) {
+			size += 40 + 2L * word.length() + 16 + 48 + 12;
+		}
+		return size;
+	}
+
+	/**
+	 * @return Statistics of the corpus computed at build time.
+	 */
+	public WordCountStatsVO getStats() {
+		return this.stats;
+	}
+
+	/**
+	 * Returns the index of the first bucket whose count is at most the given
+	 * count, or the number of buckets if none.
+	 */
+	private int firstBucketAtMost(long count) {
+		int low = 0;
+		int high = this.bucketCounts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.bucketCounts[mid] > count) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private List<Entry<String, Long>> entries(int from, int to) {
+		List<Entry<String, Long>> list = new RankedWordCounts(Math.max(0, to - from), this.version);
+		for (int i = from; i < to; i++) {
+			list.add(new SimpleImmutableEntry<>(this.rankedWords[i], this.rankedCounts[i]));
+		}
+		return list;
+	}
+
+	/**
+	 * Computes the corpus statistics with a log2 bucketed frequency
+	 * histogram: bucket i holds the words with a count in [2^i, 2^(i+1)).
+	 */
+	private WordCountStatsVO computeStats() {
+		long totalTokens = 0;
+		long singletons = 0;
+		long[] histogramWords = new long[64];
+		long[] histogramTokens = new long[64];
+		for (int bucket = 0; bucket < this.bucketCounts.length; bucket++) {
+			long count = this.bucketCounts[bucket];
+			int words = this.bucketStarts[bucket + 1] - this.bucketStarts[bucket];
+			int log2 = 63 - Long.numberOfLeadingZeros(count);
+			histogramWords[log2] += words;
+			histogramTokens[log2] += count * words;
+			totalTokens += count * words;
+			if (count == 1) {
+				singletons = words;
+			}
+		}
+		List<FrequencyBucketVO> histogram = new ArrayList<>();
+		for (int log2 = 0; log2 < 64; log2++) {
+			if (histogramWords[log2] > 0) {
+				long minCount = 1L << log2;
+				long maxCount = (1L << (log2 + 1)) - 1;
+				histogram.add(new FrequencyBucketVO(minCount, maxCount, histogramWords[log2], histogramTokens[log2]));
+			}
+		}
+		return new WordCountStatsVO(totalTokens, this.rankedWords.length, singletons, histogram);
+	}
+}
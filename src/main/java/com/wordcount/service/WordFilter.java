@@ -0,0 +1,153 @@
+package com.wordcount.service;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+import com.wordcount.exception.ApplicationException;
+import com.wordcount.vo.TopNFilterVO;
+
+/**
+ * Compiled top N word filter: a word matches if its length is within the
+ * bounds, it starts with the prefix, it is in none of the exclusion sets and
+ * it fully matches the regular expression. Checks run cheapest first.
+ * Regular expressions come from clients, so they are bounded: in length, to
+ * no quantified group containing a quantifier or an alternation (which may
+ * backtrack exponentially, e.g. <code>(a|a)*b</code>), and to the
+ * {@link #MAX_REGEX_WORDS} most frequent words.
+ */
+public class WordFilter implements Predicate<String> {
+
+	/**
+	 * Maximum length of a regular expression.
+	 */
+	public static final int MAX_REGEX_LENGTH = 64;
+
+	/**
+	 * Number of words of the ranking a regular expression is tested against.
+	 */
+	public static final int MAX_REGEX_WORDS = 100_000;
+
+	private final int minLength;
+
+	private final int maxLength;
+
+	private final String prefix;
+
+	private final Set<String> excluded;
+
+	private final List<Set<String>> excludedLists;
+
+	private final Pattern regex;
+
+	/**
+	 * Compiles the given filter parameters.
+	 *
+	 * @param filter
+	 *            Filter parameters.
+	 * @param exclusionLists
+	 *            Service resolving the named exclusion lists.
+	 * @throws ApplicationException
+	 *             If a parameter is invalid or an exclusion list unknown.
+	 */
+	public WordFilter(TopNFilterVO filter, ExclusionListService exclusionLists) {
+		this.minLength = filter.getMinLength() != null ? filter.getMinLength() : 0;
+		this.maxLength = filter.getMaxLength() != null ? filter.getMaxLength() : Integer.MAX_VALUE;
+		if (this.minLength < 0 || this.minLength > this.maxLength) {
+			throw new ApplicationException(new StringBuilder("Requested word length range: ")
+					.append(filter.getMinLength()).append(" - ").append(filter.getMaxLength()).append(" is invalid")
+					.toString());
+		}
+		this.prefix = filter.getPrefix() != null ? filter.getPrefix().trim().toLowerCase() : "";
+		this.excluded = new HashSet<>();
+		if (filter.getExclude() != null) {
+			filter.getExclude().forEach(word -> this.excluded.add(word.trim().toLowerCase()));
+		}
+		this.excludedLists = filter.getExcludeList() == null ? Collections.emptyList()
+				: filter.getExcludeList().stream().map(String::trim).distinct()
+						.map(exclusionLists::getExclusionList).collect(Collectors.toList());
+		if (filter.getRegex() != null && (filter.getRegex().length() > MAX_REGEX_LENGTH
+				|| hasNestedQuantifier(filter.getRegex()))) {
+			throw new ApplicationException(new StringBuilder("Requested regex: ").append(filter.getRegex())
+					.append(" is too long or too complex").toString());
+		}
+		try {
+			this.regex = filter.getRegex() != null ? Pattern.compile(filter.getRegex()) : null;
+		} catch (PatternSyntaxException ex) {
+			throw new ApplicationException(
+					new StringBuilder("Requested regex: ").append(filter.getRegex()).append(" is invalid").toString(),
+					ex);
+		}
+	}
+
+	/**
+	 * @return Maximum number of words of the ranking to test, bounding the
+	 *         cost of a regular expression matching few words.
+	 */
+	public int getMaxExaminedWords() {
+		return this.regex != null ? MAX_REGEX_WORDS : Integer.MAX_VALUE;
+	}
+
+	@Override
+	public boolean test(String word) {
+		int length = word.length();
+		if (length < this.minLength || length > this.maxLength || !word.startsWith(this.prefix)
+				|| this.excluded.contains(word)) {
+			return false;
+		}
+		for (Set<String> list : this.excludedLists) {
+			if (list.contains(word)) {
+				return false;
+			}
+		}
+		return this.regex == null || this.regex.matcher(word).matches();
+	}
+
+	/**
+	 * Returns true if a group of the given regular expression is followed by
+	 * a repetition (*, + or {n,m}) and contains a quantifier or an
+	 * alternation.
+	 */
+	static boolean hasNestedQuantifier(String regex) {
+		// Per open group: whether it contains a quantifier or alternation
+		Deque<Boolean> groups = new ArrayDeque<>();
+		boolean current = false;
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '[') {
+				// Skip the character class, a leading ] being a literal
+				i += i + 1 < regex.length() && regex.charAt(i + 1) == '^' ? 2 : 1;
+				if (i < regex.length() && regex.charAt(i) == ']') {
+					i++;
+				}
+				while (i < regex.length() && regex.charAt(i) != ']') {
+					i += regex.charAt(i) == '\\' ? 2 : 1;
+				}
+			} else if (c == '(') {
+				groups.push(current);
+				current = false;
+				if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+					i++;
+				}
+			} else if (c == ')' && !groups.isEmpty()) {
+				boolean repeated = i + 1 < regex.length() && "*+{".indexOf(regex.charAt(i + 1)) >= 0;
+				if (repeated && current) {
+					return true;
+				}
+				current = groups.pop() || current || repeated;
+			} else if ("*+?{|".indexOf(c) >= 0) {
+				current = true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,91 @@
+package com.wordcount.service.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating the recent access frequency
+ * of keys, as used by the TinyLFU admission policy. Each long holds sixteen
+ * counters and a key is counted in four of them; its frequency is the
+ * minimum of the four. All counters are halved once the number of recorded
+ * accesses reaches ten times the sketch width, so that old popularity fades.
+ * Not thread safe.
+ */
+class FrequencySketch {
+
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final int MAX_COUNT = 15;
+
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private int additions;
+
+	/**
+	 * @param expectedEntries
+	 *            Expected number of cached entries, sizing the sketch.
+	 */
+	FrequencySketch(long expectedEntries) {
+		int width = Integer.highestOneBit((int) Math.max(16, Math.min(1 << 22, expectedEntries)) - 1) << 1;
+		this.table = new long[width];
+		this.tableMask = width - 1;
+		this.sampleSize = 10 * width;
+	}
+
+	/**
+	 * Records an access to the given key.
+	 */
+	void increment(Object key) {
+		int hash = spread(key.hashCode());
+		boolean added = false;
+		for (int i = 0; i < SEEDS.length; i++) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += h >>> 32;
+			int slot = (int) h & this.tableMask;
+			int shift = (int) ((h >>> 40) & 15) << 2;
+			if (((this.table[slot] >>> shift) & 15) < MAX_COUNT) {
+				this.table[slot] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added && ++this.additions == this.sampleSize) {
+			this.reset();
+		}
+	}
+
+	/**
+	 * @return Estimated recent access frequency of the given key, 0 to 15.
+	 */
+	int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < SEEDS.length; i++) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += h >>> 32;
+			int slot = (int) h & this.tableMask;
+			int shift = (int) ((h >>> 40) & 15) << 2;
+			frequency = Math.min(frequency, (int) ((this.table[slot] >>> shift) & 15));
+		}
+		return frequency;
+	}
+
+	/**
+	 * Halves every counter.
+	 */
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+		}
+		this.additions = this.additions / 2;
+	}
+
+	private static int spread(int hash) {
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+		return (hash >>> 16) ^ hash;
+	}
+}
@@ -0,0 +1,578 @@
+package com.wordcount.service.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Spring cache bounded in bytes, with a W-TinyLFU admission policy: new
+ * entries go to a small LRU window (1% of the budget); entries evicted from
+ * the window are only admitted to the main segmented LRU (probation and
+ * protected, 80% of the main budget) if their recent access frequency, as
+ * estimated by a {@link FrequencySketch}, is higher than the one of the main
+ * eviction victim. One-off keys therefore do not push out the hot keys.
+ * Entries not accessed within the time-to-idle expire.
+ * <p>
+ * Reads do not lock: they look the entry up in a concurrent map and record
+ * the access in a bounded read buffer, which is drained into the sketch and
+ * the LRU order in batches by whichever thread gets the eviction lock. Under
+ * contention a full buffer drops accesses, as the policy only needs an
+ * estimate of them. Writes are serialized by the eviction lock. Values are
+ * loaded outside the lock, once per key however many threads miss it.
+ */
+public class TinyLfuCache implements Cache {
+
+	/**
+	 * Estimated size of an entry besides its key and value: map nodes and
+	 * bookkeeping.
+	 */
+	static final int ENTRY_OVERHEAD = 96;
+
+	/**
+	 * Maximum number of buffered reads, beyond which reads are not recorded.
+	 */
+	static final int READ_BUFFER_SIZE = 1024;
+
+	/**
+	 * Number of buffered reads from which a read tries to drain the buffer.
+	 */
+	static final int READ_BUFFER_DRAIN_THRESHOLD = 64;
+
+	private final String name;
+
+	private final long maxBytes;
+
+	private final long windowMaxBytes;
+
+	private final long protectedMaxBytes;
+
+	private final long timeToIdleNanos;
+
+	private final LongSupplier ticker;
+
+	private final FrequencySketch sketch;
+
+	private final ConcurrentMap<Object, Node> data = new ConcurrentHashMap<>();
+
+	/**
+	 * Loads in progress by key.
+	 */
+	private final ConcurrentMap<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+	/**
+	 * Keys read since the last drain.
+	 */
+	private final Queue<Object> readBuffer = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger readBufferSize = new AtomicInteger();
+
+	/**
+	 * Guards the segments, their sizes and the sketch.
+	 */
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	/**
+	 * Segments in LRU to MRU order.
+	 */
+	private final LinkedHashMap<Object, Node> window = new LinkedHashMap<>();
+
+	private final LinkedHashMap<Object, Node> probation = new LinkedHashMap<>();
+
+	private final LinkedHashMap<Object, Node> protectedSegment = new LinkedHashMap<>();
+
+	private long windowBytes;
+
+	private long probationBytes;
+
+	private long protectedBytes;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param name
+	 *            Cache name.
+	 * @param maxBytes
+	 *            Maximum estimated size of the cached entries.
+	 * @param timeToIdleSeconds
+	 *            Expiry of entries not accessed, 0 for none.
+	 */
+	public TinyLfuCache(String name, long maxBytes, long timeToIdleSeconds) {
+		this(name, maxBytes, timeToIdleSeconds, System::nanoTime);
+	}
+
+	/**
+	 * @param name
+	 *            Cache name.
+	 * @param maxBytes
+	 *            Maximum estimated size of the cached entries.
+	 * @param timeToIdleSeconds
+	 *            Expiry of entries not accessed, 0 for none.
+	 * @param ticker
+	 *            Time source in nanoseconds, e.g. the timestamps of a replayed
+	 *            trace.
+	 */
+	public TinyLfuCache(String name, long maxBytes, long timeToIdleSeconds, LongSupplier ticker) {
+		this.name = name;
+		this.maxBytes = maxBytes;
+		this.windowMaxBytes = Math.max(1, maxBytes / 100);
+		this.protectedMaxBytes = (maxBytes - this.windowMaxBytes) * 80 / 100;
+		this.timeToIdleNanos = TimeUnit.SECONDS.toNanos(timeToIdleSeconds);
+		this.ticker = ticker;
+		this.sketch = new FrequencySketch(maxBytes / (ENTRY_OVERHEAD + 32));
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return this;
+	}
+
+	@Override
+	public ValueWrapper get(Object key) {
+		Object value = this.lookup(key);
+		return value != null ? new SimpleValueWrapper(value == NullValue.INSTANCE ? null : value) : null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Class<T> type) {
+		ValueWrapper wrapper = this.get(key);
+		Object value = wrapper != null ? wrapper.get() : null;
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		return (T) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		Object value = this.lookup(key);
+		if (value != null) {
+			return value == NullValue.INSTANCE ? null : (T) value;
+		}
+		CompletableFuture<Object> load = new CompletableFuture<>();
+		CompletableFuture<Object> running = this.loads.putIfAbsent(key, load);
+		if (running != null) {
+			// Wait for the load of another thread rather than loading again
+			try {
+				return (T) running.join();
+			} catch (CompletionException ex) {
+				throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+			}
+		}
+		try {
+			// A load may have completed between the lookup and the
+			// registration of this one
+			Node node = this.data.get(key);
+			T loaded;
+			if (node != null && !this.isExpired(node, this.ticker.getAsLong())) {
+				loaded = node.value == NullValue.INSTANCE ? null : (T) node.value;
+			} else {
+				loaded = valueLoader.call();
+				this.put(key, loaded);
+			}
+			load.complete(loaded);
+			return loaded;
+		} catch (Exception ex) {
+			load.completeExceptionally(ex);
+			throw new ValueRetrievalException(key, valueLoader, ex);
+		} finally {
+			this.loads.remove(key, load);
+		}
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		Object stored = value != null ? value : NullValue.INSTANCE;
+		long weight = weigh(key, value);
+		this.evictionLock.lock();
+		try {
+			this.drainReadBuffer();
+			if (weight > this.maxBytes) {
+				this.remove(this.data.get(key));
+				return;
+			}
+			Node node = this.data.get(key);
+			long now = this.ticker.getAsLong();
+			if (node != null) {
+				this.addBytes(node, weight - node.weight);
+				node.value = stored;
+				node.weight = weight;
+				node.accessed = now;
+			} else {
+				node = new Node(key, stored, weight, now);
+				this.data.put(key, node);
+				this.window.put(key, node);
+				this.windowBytes += weight;
+			}
+			this.evictEntries();
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public ValueWrapper putIfAbsent(Object key, Object value) {
+		this.evictionLock.lock();
+		try {
+			Object existing = this.lookup(key);
+			if (existing != null) {
+				return new SimpleValueWrapper(existing == NullValue.INSTANCE ? null : existing);
+			}
+			this.put(key, value);
+			return null;
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public void evict(Object key) {
+		this.evictionLock.lock();
+		try {
+			this.remove(this.data.get(key));
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.evictionLock.lock();
+		try {
+			this.data.clear();
+			this.window.clear();
+			this.probation.clear();
+			this.protectedSegment.clear();
+			this.windowBytes = 0;
+			this.probationBytes = 0;
+			this.protectedBytes = 0;
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * @return Number of cached entries, once the buffered reads are applied.
+	 */
+	public int size() {
+		this.evictionLock.lock();
+		try {
+			this.drainReadBuffer();
+			return this.data.size();
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * @return Estimated size of the cached entries.
+	 */
+	public long weightedSize() {
+		this.evictionLock.lock();
+		try {
+			this.drainReadBuffer();
+			return this.windowBytes + this.probationBytes + this.protectedBytes;
+		} finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * @return Ratio of lookups that found a live entry, 0 if none.
+	 */
+	public double hitRate() {
+		long hitCount = this.hits.sum();
+		long lookups = hitCount + this.misses.sum();
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Estimates the retained size of a cache entry: strings, boxed numbers
+	 * and collections or map entries of those are sized, anything else is
+	 * counted as a small object.
+	 *
+	 * @param key
+	 *            Entry key.
+	 * @param value
+	 *            Entry value.
+	 * @return Estimated size in bytes.
+	 */
+	static long weigh(Object key, Object value) {
+		return ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+	}
+
+	private static long sizeOf(Object object) {
+		if (object == null) {
+			return 0;
+		}
+		if (object instanceof CharSequence) {
+			return 40 + 2L * ((CharSequence) object).length();
+		}
+		if (object instanceof Map.Entry) {
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+			return 24 + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+		}
+		if (object instanceof Collection) {
+			long size = 40 + 4L * ((Collection<?>) object).size();
+			for (Object element : (Collection<?>) object) {
+				size += sizeOf(element);
+			}
+			return size;
+		}
+		return 16;
+	}
+
+	/**
+	 * Returns the live value of the given key, null if absent or expired,
+	 * buffering the access for the policy. Does not lock.
+	 */
+	private Object lookup(Object key) {
+		Node node = this.data.get(key);
+		long now = this.ticker.getAsLong();
+		Object value = null;
+		if (node == null || this.isExpired(node, now)) {
+			this.misses.increment();
+		} else {
+			this.hits.increment();
+			node.accessed = now;
+			value = node.value;
+		}
+		this.recordRead(key);
+		return value;
+	}
+
+	private boolean isExpired(Node node, long now) {
+		return this.timeToIdleNanos > 0 && now - node.accessed >= this.timeToIdleNanos;
+	}
+
+	/**
+	 * Buffers a read, dropping it if the buffer is full, and drains the buffer
+	 * once it holds a batch if the eviction lock is free.
+	 */
+	private void recordRead(Object key) {
+		if (this.readBufferSize.incrementAndGet() > READ_BUFFER_SIZE) {
+			this.readBufferSize.decrementAndGet();
+		} else {
+			this.readBuffer.offer(key);
+		}
+		if (this.readBufferSize.get() >= READ_BUFFER_DRAIN_THRESHOLD && this.evictionLock.tryLock()) {
+			try {
+				this.drainReadBuffer();
+			} finally {
+				this.evictionLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Applies the buffered reads, with the eviction lock held: records each
+	 * access in the sketch, removes the entries found expired and promotes
+	 * the others.
+	 */
+	private void drainReadBuffer() {
+		long now = this.ticker.getAsLong();
+		Object key;
+		while ((key = this.readBuffer.poll()) != null) {
+			this.readBufferSize.decrementAndGet();
+			this.sketch.increment(key);
+			Node node = this.data.get(key);
+			if (node == null) {
+				continue;
+			}
+			if (this.isExpired(node, now)) {
+				this.remove(node);
+			} else {
+				this.promote(node);
+			}
+		}
+	}
+
+	/**
+	 * Moves an accessed entry to the MRU end of its segment, protecting it on
+	 * its second access in the main space.
+	 */
+	private void promote(Node node) {
+		Object key = node.key;
+		if (node.segment == Segment.PROBATION) {
+			// Second access in the main space: protect the entry
+			this.probation.remove(key);
+			this.probationBytes -= node.weight;
+			node.segment = Segment.PROTECTED;
+			this.protectedSegment.put(key, node);
+			this.protectedBytes += node.weight;
+			this.demoteProtected();
+		} else {
+			LinkedHashMap<Object, Node> segment = this.segment(node);
+			segment.remove(key);
+			segment.put(key, node);
+		}
+	}
+
+	/**
+	 * Removes an entry, with the eviction lock held.
+	 */
+	private void remove(Node node) {
+		if (node != null && this.data.remove(node.key, node)) {
+			this.segment(node).remove(node.key);
+			this.addBytes(node, -node.weight);
+		}
+	}
+
+	/**
+	 * Moves the entries overflowing the window to the main space if they win
+	 * admission against the main victims, then trims the main space, which
+	 * an entry replaced by a larger value may have overflowed.
+	 */
+	private void evictEntries() {
+		while (this.windowBytes > this.windowMaxBytes && !this.window.isEmpty()) {
+			Node candidate = this.removeEldest(this.window);
+			this.windowBytes -= candidate.weight;
+			if (this.admit(candidate)) {
+				candidate.segment = Segment.PROBATION;
+				this.probation.put(candidate.key, candidate);
+				this.probationBytes += candidate.weight;
+			} else {
+				this.data.remove(candidate.key);
+			}
+		}
+		this.demoteProtected();
+		long mainMaxBytes = this.maxBytes - this.windowMaxBytes;
+		while (this.probationBytes + this.protectedBytes > mainMaxBytes) {
+			this.remove(eldest(!this.probation.isEmpty() ? this.probation : this.protectedSegment));
+		}
+	}
+
+	/**
+	 * TinyLFU admission: finds the LRU main victims that would make room for
+	 * the candidate and, only if the candidate is more frequent than each of
+	 * them, evicts them. A rejected candidate leaves the main space
+	 * unchanged.
+	 */
+	private boolean admit(Node candidate) {
+		long mainMaxBytes = this.maxBytes - this.windowMaxBytes;
+		if (candidate.weight > mainMaxBytes) {
+			return false;
+		}
+		long excessBytes = this.probationBytes + this.protectedBytes + candidate.weight - mainMaxBytes;
+		if (excessBytes <= 0) {
+			return true;
+		}
+		int candidateFrequency = this.sketch.frequency(candidate.key);
+		List<Node> victims = new ArrayList<>();
+		Iterator<Node> probationVictims = this.probation.values().iterator();
+		Iterator<Node> protectedVictims = this.protectedSegment.values().iterator();
+		while (excessBytes > 0) {
+			Node victim = probationVictims.hasNext() ? probationVictims.next() : protectedVictims.next();
+			if (candidateFrequency <= this.sketch.frequency(victim.key)) {
+				return false;
+			}
+			victims.add(victim);
+			excessBytes -= victim.weight;
+		}
+		for (Node victim : victims) {
+			this.remove(victim);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the LRU protected entries exceeding the protected budget back to
+	 * probation.
+	 */
+	private void demoteProtected() {
+		while (this.protectedBytes > this.protectedMaxBytes && !this.protectedSegment.isEmpty()) {
+			Node node = this.removeEldest(this.protectedSegment);
+			this.protectedBytes -= node.weight;
+			node.segment = Segment.PROBATION;
+			this.probation.put(node.key, node);
+			this.probationBytes += node.weight;
+		}
+	}
+
+	private static Node eldest(LinkedHashMap<Object, Node> segment) {
+		return segment.values().iterator().next();
+	}
+
+	private static Node removeEldest(LinkedHashMap<Object, Node> segment) {
+		Iterator<Node> eldest = segment.values().iterator();
+		Node node = eldest.next();
+		eldest.remove();
+		return node;
+	}
+
+	private LinkedHashMap<Object, Node> segment(Node node) {
+		switch (node.segment) {
+		case WINDOW:
+			return this.window;
+		case PROBATION:
+			return this.probation;
+		default:
+			return this.protectedSegment;
+		}
+	}
+
+	private void addBytes(Node node, long bytes) {
+		switch (node.segment) {
+		case WINDOW:
+			this.windowBytes += bytes;
+			break;
+		case PROBATION:
+			this.probationBytes += bytes;
+			break;
+		default:
+			this.protectedBytes += bytes;
+		}
+	}
+
+	private enum Segment {
+		WINDOW, PROBATION, PROTECTED
+	}
+
+	/**
+	 * Marker of a cached null value.
+	 */
+	private enum NullValue {
+		INSTANCE
+	}
+
+	private static final class Node {
+		private final Object key;
+		private volatile Object value;
+		private long weight;
+		private volatile long accessed;
+		private Segment segment = Segment.WINDOW;
+
+		Node(Object key, Object value, long weight, long accessed) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.accessed = accessed;
+		}
+	}
+}
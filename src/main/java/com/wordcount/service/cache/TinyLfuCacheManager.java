@@ -0,0 +1,43 @@
+package com.wordcount.service.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Cache manager of {@link TinyLfuCache}s, created on first use, each bounded
+ * by the same byte budget and time-to-idle.
+ */
+public class TinyLfuCacheManager implements CacheManager {
+
+	private final ConcurrentMap<String, TinyLfuCache> caches = new ConcurrentHashMap<>();
+
+	private final long maxBytes;
+
+	private final long timeToIdleSeconds;
+
+	/**
+	 * @param maxBytes
+	 *            Maximum estimated size of the entries of each cache.
+	 * @param timeToIdleSeconds
+	 *            Expiry of entries not accessed, 0 for none.
+	 */
+	public TinyLfuCacheManager(long maxBytes, long timeToIdleSeconds) {
+		this.maxBytes = maxBytes;
+		this.timeToIdleSeconds = timeToIdleSeconds;
+	}
+
+	@Override
+	public Cache getCache(String name) {
+		return this.caches.computeIfAbsent(name, n -> new TinyLfuCache(n, this.maxBytes, this.timeToIdleSeconds));
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return Collections.unmodifiableSet(this.caches.keySet());
+	}
+}
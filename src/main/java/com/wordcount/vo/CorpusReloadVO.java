@@ -0,0 +1,24 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents the response for the corpus reload API:
+ * /counter-api/reload
+ *
+ */
+public class CorpusReloadVO {
+	private boolean reloaded;
+	private String version;
+
+	public CorpusReloadVO(boolean reloaded, String version) {
+		this.reloaded = reloaded;
+		this.version = version;
+	}
+
+	public boolean isReloaded() {
+		return reloaded;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,48 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents the status of a named corpus for the Corpora API:
+ * /counter-api/corpora
+ *
+ */
+public class CorpusStatusVO {
+	private String name;
+	private boolean loaded;
+	private int words;
+	private long sizeBytes;
+	private int loads;
+	private boolean spilled;
+
+	public CorpusStatusVO(String name, boolean loaded, int words, long sizeBytes, int loads, boolean spilled) {
+		this.name = name;
+		this.loaded = loaded;
+		this.words = words;
+		this.sizeBytes = sizeBytes;
+		this.loads = loads;
+		this.spilled = spilled;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	public int getWords() {
+		return words;
+	}
+
+	public long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	public int getLoads() {
+		return loads;
+	}
+
+	public boolean isSpilled() {
+		return spilled;
+	}
+}
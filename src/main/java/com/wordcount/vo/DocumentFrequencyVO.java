@@ -0,0 +1,30 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents the response for the document frequency API:
+ * /counter-api/documents/frequency
+ *
+ */
+public class DocumentFrequencyVO {
+	private String word;
+	private int documentFrequency;
+	private int documents;
+
+	public DocumentFrequencyVO(String word, int documentFrequency, int documents) {
+		this.word = word;
+		this.documentFrequency = documentFrequency;
+		this.documents = documents;
+	}
+
+	public String getWord() {
+		return word;
+	}
+
+	public int getDocumentFrequency() {
+		return documentFrequency;
+	}
+
+	public int getDocuments() {
+		return documents;
+	}
+}
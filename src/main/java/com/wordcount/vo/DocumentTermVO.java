@@ -0,0 +1,42 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents a word of a document for the document APIs:
+ * /counter-api/documents/count and /counter-api/documents/top
+ *
+ */
+public class DocumentTermVO {
+	private String document;
+	private String word;
+	private long count;
+	private int documentFrequency;
+	private double tfIdf;
+
+	public DocumentTermVO(String document, String word, long count, int documentFrequency, double tfIdf) {
+		this.document = document;
+		this.word = word;
+		this.count = count;
+		this.documentFrequency = documentFrequency;
+		this.tfIdf = tfIdf;
+	}
+
+	public String getDocument() {
+		return document;
+	}
+
+	public String getWord() {
+		return word;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public int getDocumentFrequency() {
+		return documentFrequency;
+	}
+
+	public double getTfIdf() {
+		return tfIdf;
+	}
+}
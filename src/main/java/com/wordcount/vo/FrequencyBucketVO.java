@@ -0,0 +1,36 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents a bucket of the word frequency histogram: the
+ * words whose count is between minCount and maxCount.
+ *
+ */
+public class FrequencyBucketVO {
+	private long minCount;
+	private long maxCount;
+	private long words;
+	private long tokens;
+
+	public FrequencyBucketVO(long minCount, long maxCount, long words, long tokens) {
+		this.minCount = minCount;
+		this.maxCount = maxCount;
+		this.words = words;
+		this.tokens = tokens;
+	}
+
+	public long getMinCount() {
+		return minCount;
+	}
+
+	public long getMaxCount() {
+		return maxCount;
+	}
+
+	public long getWords() {
+		return words;
+	}
+
+	public long getTokens() {
+		return tokens;
+	}
+}
@@ -0,0 +1,30 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents the response for the index readiness API:
+ * /counter-api/ready
+ *
+ */
+public class IndexStatusVO {
+	private String status;
+	private boolean ready;
+	private int progress;
+
+	public IndexStatusVO(String status, boolean ready, int progress) {
+		this.status = status;
+		this.ready = ready;
+		this.progress = progress;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	public int getProgress() {
+		return progress;
+	}
+}
@@ -0,0 +1,85 @@
+package com.wordcount.vo;
+
+import java.util.List;
+
+/**
+ * VO class that represents the optional filter parameters of the top N API:
+ * /counter-api/top/{topN}?exclude=..&amp;excludeList=..&amp;minLength=..
+ * &amp;maxLength=..&amp;prefix=..&amp;regex=..
+ *
+ */
+public class TopNFilterVO {
+
+	private List<String> exclude;
+	private List<String> excludeList;
+	private Integer minLength;
+	private Integer maxLength;
+	private String prefix;
+	private String regex;
+
+	public List<String> getExclude() {
+		return exclude;
+	}
+
+	public void setExclude(List<String> exclude) {
+		this.exclude = exclude;
+	}
+
+	public List<String> getExcludeList() {
+		return excludeList;
+	}
+
+	public void setExcludeList(List<String> excludeList) {
+		this.excludeList = excludeList;
+	}
+
+	public Integer getMinLength() {
+		return minLength;
+	}
+
+	public void setMinLength(Integer minLength) {
+		this.minLength = minLength;
+	}
+
+	public Integer getMaxLength() {
+		return maxLength;
+	}
+
+	public void setMaxLength(Integer maxLength) {
+		this.maxLength = maxLength;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public void setPrefix(String prefix) {
+		this.prefix = prefix;
+	}
+
+	public String getRegex() {
+		return regex;
+	}
+
+	public void setRegex(String regex) {
+		this.regex = regex;
+	}
+
+	/**
+	 * @return true if no filter parameter is set.
+	 */
+	public boolean isEmpty() {
+		return (exclude == null || exclude.isEmpty()) && (excludeList == null || excludeList.isEmpty())
+				&& minLength == null && maxLength == null && prefix == null && regex == null;
+	}
+
+	/**
+	 * @return Canonical form of the filter parameters, e.g. for ETags.
+	 */
+	@Override
+	public String toString() {
+		return new StringBuilder("exclude=").append(exclude).append(";excludeList=").append(excludeList)
+				.append(";minLength=").append(minLength).append(";maxLength=").append(maxLength).append(";prefix=")
+				.append(prefix).append(";regex=").append(regex).toString();
+	}
+}
@@ -0,0 +1,45 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents the count change of a word between two index
+ * generations for the Diff API: /counter-api/diff
+ *
+ */
+public class WordChangeVO {
+	private String word;
+	private long previousCount;
+	private long currentCount;
+	private long change;
+	private Double relativeChange;
+
+	public WordChangeVO(String word, long previousCount, long currentCount, Double relativeChange) {
+		this.word = word;
+		this.previousCount = previousCount;
+		this.currentCount = currentCount;
+		this.change = currentCount - previousCount;
+		this.relativeChange = relativeChange;
+	}
+
+	public String getWord() {
+		return word;
+	}
+
+	public long getPreviousCount() {
+		return previousCount;
+	}
+
+	public long getCurrentCount() {
+		return currentCount;
+	}
+
+	public long getChange() {
+		return change;
+	}
+
+	/**
+	 * @return Change relative to the previous count, null for a new word.
+	 */
+	public Double getRelativeChange() {
+		return relativeChange;
+	}
+}
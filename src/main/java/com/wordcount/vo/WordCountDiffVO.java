@@ -0,0 +1,76 @@
+package com.wordcount.vo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VO class that represents the difference between the previous and the
+ * current index generation for the Diff API: /counter-api/diff
+ *
+ */
+public class WordCountDiffVO {
+	private String fromVersion;
+	private String toVersion;
+	private int newWordCount;
+	private int vanishedWordCount;
+	private int changedWordCount;
+	private List<WordChangeVO> risers = new ArrayList<>();
+	private List<WordChangeVO> fallers = new ArrayList<>();
+	private List<WordChangeVO> relativeRisers = new ArrayList<>();
+	private List<WordChangeVO> relativeFallers = new ArrayList<>();
+	private List<WordChangeVO> newWords = new ArrayList<>();
+	private List<WordChangeVO> vanishedWords = new ArrayList<>();
+
+	public WordCountDiffVO(String fromVersion, String toVersion, int newWordCount, int vanishedWordCount,
+			int changedWordCount) {
+		this.fromVersion = fromVersion;
+		this.toVersion = toVersion;
+		this.newWordCount = newWordCount;
+		this.vanishedWordCount = vanishedWordCount;
+		this.changedWordCount = changedWordCount;
+	}
+
+	public String getFromVersion() {
+		return fromVersion;
+	}
+
+	public String getToVersion() {
+		return toVersion;
+	}
+
+	public int getNewWordCount() {
+		return newWordCount;
+	}
+
+	public int getVanishedWordCount() {
+		return vanishedWordCount;
+	}
+
+	public int getChangedWordCount() {
+		return changedWordCount;
+	}
+
+	public List<WordChangeVO> getRisers() {
+		return risers;
+	}
+
+	public List<WordChangeVO> getFallers() {
+		return fallers;
+	}
+
+	public List<WordChangeVO> getRelativeRisers() {
+		return relativeRisers;
+	}
+
+	public List<WordChangeVO> getRelativeFallers() {
+		return relativeFallers;
+	}
+
+	public List<WordChangeVO> getNewWords() {
+		return newWords;
+	}
+
+	public List<WordChangeVO> getVanishedWords() {
+		return vanishedWords;
+	}
+}
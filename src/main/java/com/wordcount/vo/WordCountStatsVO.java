@@ -0,0 +1,38 @@
+package com.wordcount.vo;
+
+import java.util.List;
+
+/**
+ * VO class that represents the response for the corpus statistics API:
+ * /counter-api/stats
+ *
+ */
+public class WordCountStatsVO {
+	private long totalTokens;
+	private long distinctWords;
+	private long singletons;
+	private List<FrequencyBucketVO> histogram;
+
+	public WordCountStatsVO(long totalTokens, long distinctWords, long singletons, List<FrequencyBucketVO> histogram) {
+		this.totalTokens = totalTokens;
+		this.distinctWords = distinctWords;
+		this.singletons = singletons;
+		this.histogram = histogram;
+	}
+
+	public long getTotalTokens() {
+		return totalTokens;
+	}
+
+	public long getDistinctWords() {
+		return distinctWords;
+	}
+
+	public long getSingletons() {
+		return singletons;
+	}
+
+	public List<FrequencyBucketVO> getHistogram() {
+		return histogram;
+	}
+}
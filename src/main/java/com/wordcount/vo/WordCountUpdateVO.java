@@ -0,0 +1,21 @@
+package com.wordcount.vo;
+
+import java.util.Map;
+
+/**
+ * VO class that represents the request for the Word Count update API:
+ * POST /counter-api/counts
+ *
+ */
+public class WordCountUpdateVO {
+
+	private Map<String, Long> deltas;
+
+	public Map<String, Long> getDeltas() {
+		return deltas;
+	}
+
+	public void setDeltas(Map<String, Long> deltas) {
+		this.deltas = deltas;
+	}
+}
@@ -0,0 +1,30 @@
+package com.wordcount.vo;
+
+/**
+ * VO class that represents a word of the corpus matching a typo-tolerant
+ * search for the Fuzzy search API: /counter-api/fuzzy
+ *
+ */
+public class WordSuggestionVO {
+	private String word;
+	private long count;
+	private int distance;
+
+	public WordSuggestionVO(String word, long count, int distance) {
+		this.word = word;
+		this.count = count;
+		this.distance = distance;
+	}
+
+	public String getWord() {
+		return word;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public int getDistance() {
+		return distance;
+	}
+}
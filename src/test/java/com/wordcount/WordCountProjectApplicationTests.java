@@ -1,16 +1,64 @@
 package com.wordcount;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.List;
+import java.util.Map.Entry;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.wordcount.service.RankedWordCounts;
+import com.wordcount.service.TextCountService;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class WordCountProjectApplicationTests {
 
+	@Autowired
+	private TextCountService textCountService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
 	@Test
 	public void contextLoads() {
 	}
 
+	/**
+	 * Tests that the cached lookups are keyed by their parameter, which the
+	 * coalescing service reads the cache hits with.
+	 */
+	@Test
+	public void testCacheKeyedByParameter() {
+		Long count = this.textCountService.findTextCount("lorem");
+		assertEquals(count, this.cacheManager.getCache("textCountCache").get("lorem").get());
+		this.textCountService.findTopNWordCounts(3);
+		assertEquals(this.textCountService.findTopNWordCounts(3),
+				this.cacheManager.getCache("topNCountCache").get(3).get());
+	}
+
+	/**
+	 * Tests that a topN list cached from another index generation is not
+	 * served, and that the lists keep their generation version in the cache.
+	 */
+	@Test
+	public void testStaleTopNListNotServed() {
+		String version = this.textCountService.getGenerationVersion();
+		RankedWordCounts stale = new RankedWordCounts(1, "stale");
+		stale.add(new SimpleImmutableEntry<>("stale", 1L));
+		this.cacheManager.getCache("topNCountCache").put(2, stale);
+
+		List<Entry<String, Long>> list = this.textCountService.findTopNWordCounts(2);
+		assertEquals(2, list.size());
+		assertEquals(version, RankedWordCounts.generationVersionOf(list));
+		assertEquals(version,
+				RankedWordCounts.generationVersionOf((List<?>) this.cacheManager.getCache("topNCountCache").get(2).get()));
+	}
+
 }
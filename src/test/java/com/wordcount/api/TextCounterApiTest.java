@@ -1,10 +1,15 @@
 package com.wordcount.api;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
@@ -18,8 +23,10 @@ import java.util.Map.Entry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
@@ -29,10 +36,16 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wordcount.api.TextCounterApi;
+import com.wordcount.api.utilities.CompactWriterUtils;
 import com.wordcount.exception.AppApiError;
 import com.wordcount.exception.AppApiExceptionHandler;
 import com.wordcount.exception.ApplicationException;
+import com.wordcount.exception.IndexNotReadyException;
+import com.wordcount.service.IndexState;
 import com.wordcount.service.TextCountService;
+import com.wordcount.service.WordCountIndex;
+import com.wordcount.vo.IndexStatusVO;
+import com.wordcount.vo.TopNFilterVO;
 import com.wordcount.vo.WordCountRequestVO;
 import com.wordcount.vo.WordCountResultVO;
 
@@ -126,6 +139,78 @@ public class TextCounterApiTest {
 				.andExpect(content().contentType("text/csv")).andExpect(content().string("vel|17\n"));
 	}
 
+	/**
+	 * Tests a filtered top 1 word count search. The test will pass with the
+	 * filter parameters bound and passed to the service, and the filtered
+	 * word-count returned in CSV format.
+	 */
+	@Test
+	public void testSearchTopNFilteredWords() throws Exception {
+		ArgumentCaptor<TopNFilterVO> filter = ArgumentCaptor.forClass(TopNFilterVO.class);
+		when(this.counterSearchService.findTopNWordCounts(eq(1), filter.capture()))
+				.thenReturn(prepareMockTopNWordsData());
+		this.mockMvc
+				.perform(get("/counter-api/top/1/?excludeList=stopwords&exclude=sed,eget&minLength=3&prefix=v")
+						.accept("text/csv"))
+				.andDo(print()).andExpect(status().isOk()).andExpect(content().string("vel|17\n"));
+		assertEquals(Arrays.asList("stopwords"), filter.getValue().getExcludeList());
+		assertEquals(Arrays.asList("sed", "eget"), filter.getValue().getExclude());
+		assertEquals(Integer.valueOf(3), filter.getValue().getMinLength());
+		assertEquals("v", filter.getValue().getPrefix());
+		verify(this.counterSearchService, times(0)).findTopNWordCounts(1);
+	}
+
+	/**
+	 * Tests a top 1 word count search in the compact formats. The test will
+	 * pass with the expected top 1 word-count returned in binary and columnar
+	 * JSON format.
+	 */
+	@Test
+	public void testSearchTopNValidWordsCompact() throws Exception {
+		when(this.counterSearchService.findTopNWordCounts(1)).thenReturn(prepareMockTopNWordsData());
+		this.mockMvc.perform(get("/counter-api/top/1/").accept(CompactWriterUtils.BINARY_MEDIA_TYPE)).andDo(print())
+				.andExpect(status().isOk()).andExpect(content().contentType(CompactWriterUtils.BINARY_MEDIA_TYPE))
+				.andExpect(content().bytes(new byte[] { 1, 3, 'v', 'e', 'l', 17 }));
+		this.mockMvc.perform(get("/counter-api/top/1/").accept(CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE))
+				.andDo(print()).andExpect(status().isOk())
+				.andExpect(content().contentType(CompactWriterUtils.COLUMNAR_JSON_MEDIA_TYPE))
+				.andExpect(content().string("{\"words\":[\"vel\"],\"counts\":[17]}"));
+	}
+
+	/**
+	 * Tests a conditional top 1 word count search. The test will pass with the
+	 * ETag of the index generation returned, whatever the live count updates,
+	 * and 304 Not Modified expected for a matching If-None-Match, without any
+	 * lookup.
+	 */
+	@Test
+	public void testSearchTopNWordsNotModified() throws Exception {
+		when(this.counterSearchService.getIndexVersion()).thenReturn("1f.1+3");
+		when(this.counterSearchService.getGenerationVersion()).thenReturn("1f.1");
+		when(this.counterSearchService.findTopNWordCounts(1)).thenReturn(prepareMockTopNWordsData());
+		this.mockMvc.perform(get("/counter-api/top/1/").accept("text/csv")).andDo(print()).andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"1f.1-top-1-csv\""));
+
+		this.mockMvc.perform(get("/counter-api/top/1/").accept("text/csv").header("If-None-Match", "\"1f.1-top-1-csv\""))
+				.andDo(print()).andExpect(status().isNotModified()).andExpect(content().string(""));
+		verify(this.counterSearchService, times(1)).findTopNWordCounts(1);
+	}
+
+	/**
+	 * Tests a top 1 word count search while a new index generation is
+	 * published. The test will pass with the ETag of the generation the list
+	 * was computed from, not of the one read before the lookup.
+	 */
+	@Test
+	public void testSearchTopNWordsGenerationChanged() throws Exception {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		counts.put("vel", 17L);
+		when(this.counterSearchService.getGenerationVersion()).thenReturn("1f.1");
+		when(this.counterSearchService.findTopNWordCounts(1)).thenReturn(new WordCountIndex(counts, "1f.2").topN(1));
+		this.mockMvc.perform(get("/counter-api/top/1/").accept("text/csv")).andDo(print()).andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"1f.2-top-1-csv\""));
+	}
+
 	/**
 	 * Tests a topN word count search with invalid input. The test will pass
 	 * with their Bad Request error expected.
@@ -135,6 +220,49 @@ public class TextCounterApiTest {
 		this.mockMvc.perform(get("/counter-api/top/ABC")).andDo(print()).andExpect(status().isBadRequest());
 	}
 
+	/**
+	 * Tests a topN word count search while the index is still building. The
+	 * test will pass with the Service Unavailable error expected.
+	 */
+	@Test
+	public void testSearchTopNWordsIndexNotReady() throws Exception {
+		when(this.counterSearchService.findTopNWordCounts(1))
+				.thenThrow(new IndexNotReadyException("Text count index is not available: BUILDING", 40));
+		this.mockMvc.perform(get("/counter-api/top/1/").accept("text/csv")).andDo(print())
+				.andExpect(status().isServiceUnavailable()).andExpect(header().string("Retry-After", "5"));
+	}
+
+	/**
+	 * Tests the readiness API while the index is still building. The test will
+	 * pass with the Service Unavailable status and build progress expected.
+	 */
+	@Test
+	public void testIndexStatusNotReady() throws Exception {
+		when(this.counterSearchService.getIndexState()).thenReturn(IndexState.BUILDING);
+		when(this.counterSearchService.getIndexProgress()).thenReturn(40);
+		this.mockMvc.perform(get("/counter-api/ready")).andDo(print()).andExpect(status().isServiceUnavailable())
+				.andExpect(content().json(mapper.writeValueAsString(new IndexStatusVO("BUILDING", false, 40))));
+	}
+
+	/**
+	 * Tests the export of every word count, in NDJSON rank order and in CSV
+	 * lexicographic order. The test will pass with all the words streamed.
+	 */
+	@Test
+	public void testExportWordCounts() throws Exception {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		counts.put("sed", 16L);
+		counts.put("vel", 17L);
+		when(this.counterSearchService.getWordCountIndex()).thenReturn(new WordCountIndex(counts, "1f.1"));
+		this.mockMvc.perform(get("/counter-api/export")).andDo(print()).andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1f.1-export-ndjson-rank\""))
+				.andExpect(content().string("{\"word\":\"vel\",\"count\":17}\n{\"word\":\"sed\",\"count\":16}\n"));
+		this.mockMvc.perform(get("/counter-api/export?format=csv&order=word")).andDo(print())
+				.andExpect(status().isOk()).andExpect(content().string("sed|16\nvel|17\n"));
+		this.mockMvc.perform(get("/counter-api/export?format=xml")).andDo(print()).andExpect(status().isBadRequest());
+	}
+
 	private WordCountRequestVO prepareWordCountRequestTestData() {
 		WordCountRequestVO vo = new WordCountRequestVO();
 		vo.setSearchText(Arrays.asList("Sed", "Donec", "Augue"));
@@ -0,0 +1,51 @@
+package com.wordcount.api.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+/**
+ * Test class for the CompactWriterUtils.
+ *
+ */
+public class CompactWriterUtilsTest {
+
+	private List<Entry<String, Long>> counts = Arrays.asList(new SimpleImmutableEntry<>("vel", 17L),
+			new SimpleImmutableEntry<>("café", 300L), new SimpleImmutableEntry<>("a\"b\\c\n", 0L));
+
+	/**
+	 * Tests the binary format layout and that it reads back to the same
+	 * word-count entries.
+	 */
+	@Test
+	public void testBinaryRoundTrip() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompactWriterUtils.writeBinary(this.counts.subList(0, 1), out);
+		assertArrayEquals(new byte[] { 1, 3, 'v', 'e', 'l', 17 }, out.toByteArray());
+
+		out.reset();
+		CompactWriterUtils.writeBinary(this.counts, out);
+		assertEquals(this.counts, CompactWriterUtils.readBinary(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	/**
+	 * Tests the columnar JSON format, including string escaping and non ASCII
+	 * words.
+	 */
+	@Test
+	public void testColumnarJson() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompactWriterUtils.writeColumnarJson(this.counts, out);
+		assertEquals("{\"words\":[\"vel\",\"café\",\"a\\\"b\\\\c\\u000a\"],\"counts\":[17,300,0]}",
+				new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+}
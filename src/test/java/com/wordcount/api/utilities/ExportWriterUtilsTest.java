@@ -0,0 +1,51 @@
+package com.wordcount.api.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.wordcount.service.WordCountIndex;
+
+/**
+ * Test class for the ExportWriterUtils.
+ *
+ */
+public class ExportWriterUtilsTest {
+
+	private WordCountIndex index = new WordCountIndex(counts(), "1f.1");
+
+	/**
+	 * Tests the NDJSON export in rank order, written in chunks smaller than a
+	 * line.
+	 */
+	@Test
+	public void testNdjsonRankOrder() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(3, ExportWriterUtils.writeNdjson(this.index, false, 8, out));
+		assertEquals("{\"word\":\"vel\",\"count\":17}\n{\"word\":\"sed\",\"count\":16}\n{\"word\":\"café\",\"count\":1}\n",
+				new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Tests the CSV export in lexicographic order.
+	 */
+	@Test
+	public void testCsvLexicographicOrder() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(3, ExportWriterUtils.writeCsv(this.index, true, 64 * 1024, out));
+		assertEquals("café|1\nsed|16\nvel|17\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private static Map<String, Long> counts() {
+		Map<String, Long> counts = new HashMap<>();
+		counts.put("sed", 16L);
+		counts.put("vel", 17L);
+		counts.put("café", 1L);
+		return counts;
+	}
+}
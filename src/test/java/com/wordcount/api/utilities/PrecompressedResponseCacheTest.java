@@ -0,0 +1,115 @@
+package com.wordcount.api.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.wordcount.api.utilities.PrecompressedResponseCache.EncodedResponse;
+
+/**
+ * Test class for the PrecompressedResponseCache.
+ *
+ */
+public class PrecompressedResponseCacheTest {
+
+	private PrecompressedResponseCache cache = new PrecompressedResponseCache();
+
+	/**
+	 * Tests the content coding negotiation: gzip preferred, deflate disabled
+	 * by default and q=0 codings rejected, also when '*' is accepted.
+	 */
+	@Test
+	public void testNegotiate() {
+		assertEquals("gzip", this.cache.negotiate("gzip, deflate, br"));
+		assertEquals("gzip", this.cache.negotiate("deflate;q=0.5, *"));
+		assertNull(this.cache.negotiate("gzip;q=0, deflate"));
+		assertNull(this.cache.negotiate("gzip;q=0, *"));
+		assertNull(this.cache.negotiate("x-gzip;q=0.0, *;q=0.8"));
+		assertEquals("gzip", this.cache.negotiate("x-gzip;q=0.5, *;q=0"));
+		assertNull(this.cache.negotiate("identity"));
+		assertNull(this.cache.negotiate(null));
+	}
+
+	/**
+	 * Tests that a response is rendered and gzip'd once per index version and
+	 * that its gzip encoding inflates back to the identity bytes.
+	 */
+	@Test
+	public void testPrecompressedOncePerVersion() throws Exception {
+		byte[] body = new byte[4096];
+		for (int i = 0; i < body.length; i++) {
+			body[i] = (byte) ('a' + i % 7);
+		}
+		AtomicInteger renders = new AtomicInteger();
+		PrecompressedResponseCache.ResponseRenderer renderer = out -> {
+			renders.incrementAndGet();
+			out.write(body);
+		};
+
+		EncodedResponse response = this.cache.get("1.1", "text/csv:10", renderer);
+		assertSame(response, this.cache.get("1.1", "text/csv:10", renderer));
+		assertEquals(1, renders.get());
+		assertArrayEquals(body, response.get(null));
+		assertArrayEquals(body, gunzip(response.get("gzip")));
+		assertNull(response.get("deflate"));
+
+		this.cache.recordHit(response, "gzip");
+		assertEquals(1, this.cache.getCompressedHits());
+
+		this.cache.get("1.2", "text/csv:10", renderer);
+		assertEquals(2, renders.get());
+	}
+
+	/**
+	 * Tests that a response rendered from a replaced index version does not
+	 * clear the responses of the current version.
+	 */
+	@Test
+	public void testReplacedVersionNotStored() {
+		AtomicInteger renders = new AtomicInteger();
+		PrecompressedResponseCache.ResponseRenderer renderer = out -> {
+			renders.incrementAndGet();
+			out.write('x');
+		};
+		this.cache.get("1.1", "text/csv:10", renderer);
+		EncodedResponse current = this.cache.get("1.2", "text/csv:10", renderer);
+
+		// Late request still holding the previous index
+		this.cache.get("1.1", "text/csv:5", renderer);
+		this.cache.get("1.1", "text/csv:5", renderer);
+		assertEquals(4, renders.get());
+		assertSame(current, this.cache.get("1.2", "text/csv:10", renderer));
+		assertEquals(4, renders.get());
+	}
+
+	/**
+	 * Tests that small responses are cached uncompressed.
+	 */
+	@Test
+	public void testSmallResponseNotCompressed() {
+		EncodedResponse response = this.cache.get("1.1", "text/csv:1",
+				out -> out.write("vel,17\n".getBytes(StandardCharsets.UTF_8)));
+		assertEquals("vel,17\n", new String(response.get(null), StandardCharsets.UTF_8));
+		assertNull(response.get("gzip"));
+	}
+
+	private static byte[] gunzip(byte[] bytes) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			byte[] buffer = new byte[1024];
+			for (int n; (n = in.read(buffer)) > 0;) {
+				out.write(buffer, 0, n);
+			}
+		}
+		return out.toByteArray();
+	}
+}
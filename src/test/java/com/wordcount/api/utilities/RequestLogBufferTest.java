@@ -0,0 +1,78 @@
+package com.wordcount.api.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Test class for the RequestLogBuffer.
+ *
+ */
+public class RequestLogBufferTest {
+
+	/**
+	 * Tests that entries are drained in order and dropped when the buffer is
+	 * full, until drained.
+	 */
+	@Test
+	public void testOfferAndDrain() {
+		RequestLogBuffer buffer = new RequestLogBuffer(3);
+		assertEquals(4, buffer.capacity());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i, "GET", "/counter-api/top/{topN}", 200, 1000 + i, 0.5));
+		}
+		assertFalse(buffer.offer(4, "GET", "/counter-api/top/{topN}", 200, 1004, 0.5));
+		assertEquals(1, buffer.getDropped());
+
+		List<Long> durations = new ArrayList<>();
+		assertEquals(3, buffer.drain(entry -> durations.add(entry.getDurationNanos()), 3));
+		assertTrue(buffer.offer(5, "POST", "/counter-api/search/", 200, 1005, 1));
+		assertEquals(2, buffer.drain(entry -> durations.add(entry.getDurationNanos()), 10));
+		assertEquals("[1000, 1001, 1002, 1003, 1005]", durations.toString());
+		assertEquals(0, buffer.size());
+	}
+
+	/**
+	 * Tests that entries offered by concurrent producers are each drained
+	 * exactly once, in the order of each producer.
+	 */
+	@Test
+	public void testConcurrentProducers() throws InterruptedException {
+		RequestLogBuffer buffer = new RequestLogBuffer(1024);
+		int producers = 4;
+		int entries = 100_000;
+		CountDownLatch done = new CountDownLatch(producers);
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			new Thread(() -> {
+				for (int i = 0; i < entries; i++) {
+					while (!buffer.offer(i, "GET", "p" + producer, 200, i, 1)) {
+						Thread.yield();
+					}
+				}
+				done.countDown();
+			}).start();
+		}
+		long[] next = new long[producers];
+		int[] drained = new int[1];
+		boolean[] ordered = { true };
+		while (drained[0] < producers * entries) {
+			drained[0] += buffer.drain(entry -> {
+				int producer = entry.getEndpoint().charAt(1) - '0';
+				ordered[0] &= entry.getDurationNanos() == next[producer]++;
+			}, 256);
+		}
+		done.await();
+		assertTrue(ordered[0]);
+		for (int p = 0; p < producers; p++) {
+			assertEquals(entries, next[p]);
+		}
+		assertEquals(0, buffer.size());
+	}
+}
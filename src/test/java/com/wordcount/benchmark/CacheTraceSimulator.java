@@ -0,0 +1,223 @@
+package com.wordcount.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.wordcount.service.cache.TinyLfuCache;
+
+/**
+ * Trace-driven simulator comparing cache hit rates of the current ehcache
+ * configuration (LRU of 50 textCountCache / 15 topNCountCache entries, 300 s
+ * time-to-idle) with byte-bounded LRU and TinyLFU caches of the same
+ * time-to-idle. The trace is a query log with one lookup per line:
+ * <code>timestampMillis,cacheName,key</code> where cacheName is
+ * textCountCache (key is the word) or topNCountCache (key is N). Without a
+ * trace file, a Zipfian trace is generated. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.CacheTraceSimulator
+ * -Dexec.args=queries.log
+ *
+ */
+public class CacheTraceSimulator {
+
+	private static final long TTI_SECONDS = 300;
+
+	private static final long[] BYTE_BUDGETS = { 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024 };
+
+	public static void main(String[] args) throws IOException {
+		List<String[]> trace = args.length > 0 ? readTrace(args[0]) : zipfTrace(2_000_000, 50_000, 1_000, 1.0);
+		System.out.printf("%-16s %-24s %10s%n", "cache", "policy", "hit rate");
+		for (String cacheName : new String[] { "textCountCache", "topNCountCache" }) {
+			List<long[]> times = new ArrayList<>();
+			List<String> keys = new ArrayList<>();
+			for (String[] query : trace) {
+				if (cacheName.equals(query[1])) {
+					times.add(new long[] { Long.parseLong(query[0]) });
+					keys.add(query[2]);
+				}
+			}
+			if (keys.isEmpty()) {
+				continue;
+			}
+			int ehcacheEntries = "textCountCache".equals(cacheName) ? 50 : 15;
+			print(cacheName, "ehcache " + ehcacheEntries + " entries",
+					simulate(new LruCache(ehcacheEntries, Long.MAX_VALUE), cacheName, times, keys));
+			for (long budget : BYTE_BUDGETS) {
+				print(cacheName, "lru " + budget / 1024 + " KB",
+						simulate(new LruCache(Integer.MAX_VALUE, budget), cacheName, times, keys));
+				long[] now = new long[1];
+				TinyLfuCache tinyLfu = new TinyLfuCache(cacheName, budget, TTI_SECONDS, () -> now[0]);
+				print(cacheName, "tinylfu " + budget / 1024 + " KB", simulate(tinyLfu, now, cacheName, times, keys));
+			}
+		}
+	}
+
+	private static double simulate(LruCache cache, String cacheName, List<long[]> times, List<String> keys) {
+		long hits = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			long now = TimeUnit.MILLISECONDS.toNanos(times.get(i)[0]);
+			if (cache.get(keys.get(i), now)) {
+				hits++;
+			} else {
+				cache.put(keys.get(i), weigh(cacheName, keys.get(i)), now);
+			}
+		}
+		return (double) hits / keys.size();
+	}
+
+	private static double simulate(TinyLfuCache cache, long[] now, String cacheName, List<long[]> times,
+			List<String> keys) {
+		long hits = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			now[0] = TimeUnit.MILLISECONDS.toNanos(times.get(i)[0]);
+			String key = keys.get(i);
+			if (cache.get(key) != null) {
+				hits++;
+			} else {
+				cache.put(key, value(cacheName, key));
+			}
+		}
+		return (double) hits / keys.size();
+	}
+
+	private static void print(String cacheName, String policy, double hitRate) {
+		System.out.printf("%-16s %-24s %9.2f%%%n", cacheName, policy, hitRate * 100);
+	}
+
+	/**
+	 * Value cached for the given key: a count, or a top N list of N entries.
+	 */
+	private static Object value(String cacheName, String key) {
+		if ("textCountCache".equals(cacheName)) {
+			return 1L;
+		}
+		int topN = Integer.parseInt(key);
+		List<Entry<String, Long>> list = new ArrayList<>(topN);
+		for (int i = 0; i < topN; i++) {
+			list.add(new SimpleImmutableEntry<>("word" + i, (long) i));
+		}
+		return list;
+	}
+
+	private static long weigh(String cacheName, String key) {
+		// Mirrors the TinyLfuCache size estimate of the same entry
+		long entryOverhead = 96;
+		long keySize = "textCountCache".equals(cacheName) ? 40 + 2L * key.length() : 16;
+		if ("textCountCache".equals(cacheName)) {
+			return entryOverhead + keySize + 16;
+		}
+		int topN = Integer.parseInt(key);
+		long size = 40 + 4L * topN;
+		for (int i = 0; i < topN; i++) {
+			size += 24 + 40 + 2L * ("word" + i).length() + 16;
+		}
+		return entryOverhead + 40 + 2L * key.length() + size;
+	}
+
+	private static List<String[]> readTrace(String file) throws IOException {
+		List<String[]> trace = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] query = line.split(",", 3);
+				if (query.length == 3) {
+					trace.add(query);
+				}
+			}
+		}
+		return trace;
+	}
+
+	/**
+	 * Generates a trace of 90% word lookups and 10% top N lookups, both
+	 * Zipfian, at 1000 queries per second.
+	 */
+	private static List<String[]> zipfTrace(int queries, int words, int maxTopN, double exponent) {
+		Random random = new Random(42);
+		double[] wordCdf = zipfCdf(words, exponent);
+		double[] topNCdf = zipfCdf(maxTopN, exponent);
+		List<String[]> trace = new ArrayList<>(queries);
+		for (int i = 0; i < queries; i++) {
+			String time = Long.toString(i);
+			if (random.nextInt(10) > 0) {
+				trace.add(new String[] { time, "textCountCache", "w" + sample(wordCdf, random) });
+			} else {
+				trace.add(new String[] { time, "topNCountCache", Integer.toString(1 + sample(topNCdf, random)) });
+			}
+		}
+		return trace;
+	}
+
+	private static double[] zipfCdf(int size, double exponent) {
+		double[] cdf = new double[size];
+		double sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < size; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	private static int sample(double[] cdf, Random random) {
+		int index = java.util.Arrays.binarySearch(cdf, random.nextDouble());
+		return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+	}
+
+	/**
+	 * LRU model bounded by entries and bytes, with time-to-idle: the eviction
+	 * order of ehcache's heap tier approximated as exact LRU.
+	 */
+	private static final class LruCache {
+		private final LinkedHashMap<String, long[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+		private final int maxEntries;
+		private final long maxBytes;
+		private long bytes;
+
+		LruCache(int maxEntries, long maxBytes) {
+			this.maxEntries = maxEntries;
+			this.maxBytes = maxBytes;
+		}
+
+		boolean get(String key, long now) {
+			long[] entry = this.entries.get(key);
+			if (entry == null) {
+				return false;
+			}
+			if (now - entry[1] >= TimeUnit.SECONDS.toNanos(TTI_SECONDS)) {
+				this.entries.remove(key);
+				this.bytes -= entry[0];
+				return false;
+			}
+			entry[1] = now;
+			return true;
+		}
+
+		void put(String key, long weight, long now) {
+			if (weight > this.maxBytes) {
+				return;
+			}
+			this.entries.put(key, new long[] { weight, now });
+			this.bytes += weight;
+			Iterator<Map.Entry<String, long[]>> eldest = this.entries.entrySet().iterator();
+			while ((this.entries.size() > this.maxEntries || this.bytes > this.maxBytes) && eldest.hasNext()) {
+				this.bytes -= eldest.next().getValue()[0];
+				eldest.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.wordcount.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wordcount.api.utilities.CompactWriterUtils;
+import com.wordcount.vo.WordCountResultVO;
+
+/**
+ * JMH benchmark comparing the compact word-count writers with the Jackson
+ * bean serialization of WordCountResultVO. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.CompactWriterBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactWriterBenchmark {
+
+	@Param({ "100", "100000" })
+	private int size;
+
+	private List<Entry<String, Long>> counts;
+
+	private WordCountResultVO resultVO;
+
+	private ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Reused response buffer, so that the buffer growth is not measured.
+	 */
+	private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		this.counts = new ArrayList<>(this.size);
+		this.resultVO = new WordCountResultVO();
+		for (int i = 0; i < this.size; i++) {
+			String word = "w" + Long.toString(random.nextInt() & 0xFFFFFFFFL, 36);
+			long count = 1_000_000L / (i + 1);
+			this.counts.add(new SimpleImmutableEntry<>(word, count));
+			this.resultVO.addWordCount(word, count);
+		}
+	}
+
+	@Benchmark
+	public int jacksonJson() throws IOException {
+		ByteArrayOutputStream out = this.out;
+		out.reset();
+		this.mapper.writeValue(out, this.resultVO);
+		return out.size();
+	}
+
+	@Benchmark
+	public int columnarJson() throws IOException {
+		ByteArrayOutputStream out = this.out;
+		out.reset();
+		CompactWriterUtils.writeColumnarJson(this.counts, out);
+		return out.size();
+	}
+
+	@Benchmark
+	public int binary() throws IOException {
+		ByteArrayOutputStream out = this.out;
+		out.reset();
+		CompactWriterUtils.writeBinary(this.counts, out);
+		return out.size();
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(CompactWriterBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,105 @@
+package com.wordcount.benchmark;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.wordcount.service.CountLog;
+
+/**
+ * Benchmark of the count write-ahead log: update throughput under group
+ * commit with 1 to 64 concurrent writers for each fsync policy, and recovery
+ * time of a large log. Each update is a single word delta, acknowledged per
+ * the fsync policy. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.CountLogBenchmark
+ * -Dexec.args="/path/to/disk 1000000"
+ *
+ */
+public class CountLogBenchmark {
+
+	private static final long DURATION_MILLIS = 3_000;
+
+	public static void main(String[] args) throws Exception {
+		Path root = Files.createTempDirectory(args.length > 0 ? Paths.get(args[0]) : Paths.get("."), "count-log");
+		int records = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+		try {
+			System.out.printf("%-10s %8s %14s %10s%n", "fsync", "writers", "updates/s", "batch");
+			for (CountLog.FsyncPolicy policy : CountLog.FsyncPolicy.values()) {
+				for (int writers : new int[] { 1, 4, 16, 64 }) {
+					Path directory = Files.createDirectory(root.resolve(policy + "-" + writers));
+					throughput(directory, policy, writers);
+					delete(directory);
+				}
+			}
+			recovery(Files.createDirectory(root.resolve("recovery")), records);
+		} finally {
+			delete(root);
+		}
+	}
+
+	private static void throughput(Path directory, CountLog.FsyncPolicy policy, int writers) throws Exception {
+		CountLog log = new CountLog(directory, policy, 1000);
+		log.open(0);
+		AtomicLong updates = new AtomicLong();
+		CountDownLatch done = new CountDownLatch(writers);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+		for (int i = 0; i < writers; i++) {
+			String word = "word" + i;
+			new Thread(() -> {
+				while (System.nanoTime() < deadline) {
+					log.awaitDurable(log.append(Collections.singletonMap(word, 1L)));
+					updates.incrementAndGet();
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		log.close();
+		System.out.printf("%-10s %8d %14.0f %10.1f%n", policy, writers, updates.get() * 1000.0 / DURATION_MILLIS,
+				(double) updates.get() / Math.max(1, log.getBatches()));
+	}
+
+	private static void recovery(Path directory, int records) throws IOException {
+		CountLog log = new CountLog(directory, CountLog.FsyncPolicy.NONE, 1000);
+		log.open(0);
+		long sequence = 0;
+		Map<String, Long> deltas = new HashMap<>();
+		for (int i = 0; i < records; i++) {
+			deltas.clear();
+			deltas.put("word" + i % 100_000, 1L);
+			sequence = log.append(deltas);
+		}
+		log.awaitDurable(sequence);
+		log.close();
+		long bytes = log.getBytesWritten();
+
+		Map<String, Long> counts = new HashMap<>();
+		long startTime = System.nanoTime();
+		CountLog recovered = new CountLog(directory, CountLog.FsyncPolicy.NONE, 1000);
+		long last = recovered.replay(0, (recordSequence, recordDeltas) -> recordDeltas
+				.forEach((word, delta) -> counts.merge(word, delta, Long::sum)));
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		System.out.printf("recovery of %d records (%d MB): %d ms, %.0f records/s, last %d, %d words%n", records,
+				bytes >> 20, millis, records * 1000.0 / Math.max(1, millis), last, counts.size());
+	}
+
+	private static void delete(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path child : stream) {
+					delete(child);
+				}
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+}
@@ -0,0 +1,122 @@
+package com.wordcount.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.wordcount.service.DocumentIndex;
+
+/**
+ * JMH benchmark of the document index on a synthetic corpus of Zipfian
+ * documents of 50 words over a 100k word vocabulary: index build, document
+ * frequency, per-document count and top TF-IDF queries. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.DocumentIndexBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class DocumentIndexBenchmark {
+
+	private static final int VOCABULARY = 100_000;
+
+	private static final int DOCUMENT_WORDS = 50;
+
+	@Param({ "1000000" })
+	private int documents;
+
+	private DocumentIndex index;
+
+	private String[] words;
+
+	private int query;
+
+	@Setup
+	public void setup() {
+		this.words = new String[VOCABULARY];
+		for (int i = 0; i < VOCABULARY; i++) {
+			this.words[i] = "w" + Integer.toString(i, 36);
+		}
+		this.index = build(this.documents, this.words);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public DocumentIndex build() {
+		return build(this.documents, this.words);
+	}
+
+	@Benchmark
+	public int documentFrequency() {
+		return this.index.getDocumentFrequency(this.words[this.next() % VOCABULARY]);
+	}
+
+	@Benchmark
+	public long count() {
+		int i = this.next();
+		return this.index.getCount(document(i % this.documents), this.words[i % 1000]);
+	}
+
+	@Benchmark
+	public List<DocumentIndex.Term> topTfIdf() {
+		return this.index.topTfIdf(document(this.next() % this.documents), 10);
+	}
+
+	private int next() {
+		this.query = (this.query + 0x9E3779B9) & Integer.MAX_VALUE;
+		return this.query;
+	}
+
+	private static String document(int i) {
+		return "doc" + i;
+	}
+
+	static DocumentIndex build(int documents, String[] words) {
+		double[] cdf = new double[words.length];
+		double sum = 0;
+		for (int i = 0; i < words.length; i++) {
+			sum += 1.0 / (i + 1);
+			cdf[i] = sum;
+		}
+		Random random = new Random(42);
+		DocumentIndex.Builder builder = new DocumentIndex.Builder();
+		Map<String, Long> counts = new HashMap<>();
+		for (int d = 0; d < documents; d++) {
+			counts.clear();
+			for (int w = 0; w < DOCUMENT_WORDS; w++) {
+				int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+				counts.merge(words[Math.min(words.length - 1, index >= 0 ? index : -index - 1)], 1L, Long::sum);
+			}
+			builder.addDocument(document(d), counts);
+		}
+		return builder.build();
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(DocumentIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+}
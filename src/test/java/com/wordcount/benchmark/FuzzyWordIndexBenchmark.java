@@ -0,0 +1,95 @@
+package com.wordcount.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.wordcount.service.FuzzyWordIndex;
+import com.wordcount.service.WordCountIndex;
+
+/**
+ * JMH benchmark of the typo-tolerant lookup on a vocabulary of random words
+ * of 3 to 12 letters: deletion index build and lookups of words with one
+ * substituted letter. Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.FuzzyWordIndexBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class FuzzyWordIndexBenchmark {
+
+	@Param({ "100000", "1000000" })
+	private int words;
+
+	@Param({ "1", "2" })
+	private int maxDistance;
+
+	private WordCountIndex index;
+
+	private FuzzyWordIndex fuzzyIndex;
+
+	private String[] misspellings;
+
+	private int query;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		Map<String, Long> counts = new HashMap<>();
+		while (counts.size() < this.words) {
+			char[] word = new char[3 + random.nextInt(4) + random.nextInt(6)];
+			for (int i = 0; i < word.length; i++) {
+				word[i] = (char) ('a' + random.nextInt(26));
+			}
+			counts.put(new String(word), 1L + random.nextInt(1000));
+		}
+		this.index = new WordCountIndex(counts, "benchmark");
+		this.fuzzyIndex = new FuzzyWordIndex(this.index, this.maxDistance);
+		this.misspellings = new String[10_000];
+		for (int i = 0; i < this.misspellings.length; i++) {
+			char[] word = this.index.getWord(random.nextInt(this.words)).toCharArray();
+			word[random.nextInt(word.length)] = (char) ('a' + random.nextInt(26));
+			this.misspellings[i] = new String(word);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public FuzzyWordIndex build() {
+		return new FuzzyWordIndex(this.index, this.maxDistance);
+	}
+
+	@Benchmark
+	public List<FuzzyWordIndex.Match> lookup() {
+		this.query = (this.query + 1) % this.misspellings.length;
+		return this.fuzzyIndex.lookup(this.misspellings[this.query], this.maxDistance, 10);
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(FuzzyWordIndexBenchmark.class.getSimpleName()).build()).run();
+	}
+}
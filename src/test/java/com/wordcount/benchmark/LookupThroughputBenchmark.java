@@ -0,0 +1,168 @@
+package com.wordcount.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.wordcount.WordCountProjectApplication;
+import com.wordcount.api.utilities.RequestLogBuffer;
+import com.wordcount.service.TextCountService;
+
+/**
+ * Benchmark of the word count lookup throughput of the TextCountService bean
+ * of the application context, i.e. through the CoalescingTextCountService,
+ * the cache of the configured provider and the TextCountServiceWordMapImpl,
+ * with 1 to 2x the available processors of lookup threads. The corpus is a
+ * generated file of 100,000 words, looked up with a Zipf-like skew so that
+ * the hot words are cache hits. Each cache provider (jcache, tinylfu) is run
+ * for three request logging modes:
+ * <ol>
+ * <li>none: lookups only,</li>
+ * <li>sync: a formatted line per lookup written under a lock to a buffered
+ * file writer, as the synchronous file appender did for the INFO log of each
+ * lookup,</li>
+ * <li>sampled: 1% of the lookups offered to a RequestLogBuffer drained by a
+ * background writer thread to the same file.</li>
+ * </ol>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.LookupThroughputBenchmark
+ *
+ */
+public class LookupThroughputBenchmark {
+
+	private static final long DURATION_MILLIS = 2_000;
+
+	private static final double SAMPLE_RATE = 0.01;
+
+	private static final int WORDS = 100_000;
+
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(1);
+		String[] queries = new String[WORDS];
+		List<String> lines = new ArrayList<>(WORDS);
+		for (int i = 0; i < WORDS; i++) {
+			queries[i] = "word" + i;
+			StringBuilder line = new StringBuilder(queries[i]);
+			for (int n = random.nextInt(8); n > 0; n--) {
+				line.append(' ').append(queries[i]);
+			}
+			lines.add(line.toString());
+		}
+		Path corpus = Files.createTempFile("lookup-corpus", ".txt");
+		Path file = Files.createTempFile("lookup-log", ".log");
+		try {
+			Files.write(corpus, lines, StandardCharsets.UTF_8);
+			int processors = Runtime.getRuntime().availableProcessors();
+			System.out.printf("%-8s %-8s %8s %14s %10s%n", "cache", "log", "threads", "lookups/s", "scaling");
+			for (String provider : new String[] { "jcache", "tinylfu" }) {
+				try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+						WordCountProjectApplication.class).web(false).run(
+								"--wordcount.corpus.location=" + corpus.toUri(),
+								"--wordcount.cache.provider=" + provider, "--logging.level.root=WARN")) {
+					TextCountService service = context.getBean(TextCountService.class);
+					// Warm-up of every mode, so that each is measured compiled
+					for (String mode : new String[] { "none", "sync", "sampled" }) {
+						throughput(service, queries, mode, 1, file);
+					}
+					for (String mode : new String[] { "none", "sync", "sampled" }) {
+						double single = 0;
+						for (int threads = 1; threads <= 2 * processors; threads *= 2) {
+							double throughput = throughput(service, queries, mode, threads, file);
+							single = threads == 1 ? throughput : single;
+							System.out.printf("%-8s %-8s %8d %14.0f %10.1f%n", provider, mode, threads, throughput,
+									throughput / single);
+						}
+					}
+				}
+			}
+		} finally {
+			Files.delete(corpus);
+			Files.delete(file);
+		}
+	}
+
+	private static double throughput(TextCountService service, String[] queries, String mode, int threads,
+			Path file) throws Exception {
+		AtomicLong lookups = new AtomicLong();
+		RequestLogBuffer buffer = new RequestLogBuffer(65536);
+		try (BufferedWriter out = Files.newBufferedWriter(file)) {
+			Thread writer = new Thread(() -> drain(buffer, out), "request-log-writer");
+			writer.setDaemon(true);
+			if ("sampled".equals(mode)) {
+				writer.start();
+			}
+			CountDownLatch done = new CountDownLatch(threads);
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+			for (int t = 0; t < threads; t++) {
+				new Thread(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					long count = 0;
+					long sink = 0;
+					while ((count & 0xFF) != 0 || System.nanoTime() < deadline) {
+						// Zipf-like choice of the word
+						String text = queries[(int) Math.pow(queries.length, random.nextDouble()) - 1];
+						// Sampled before the lookup, as by the request log interceptor
+						long startTime = "sampled".equals(mode) && random.nextDouble() < SAMPLE_RATE
+								? System.nanoTime() : 0;
+						long wordCount = service.findTextCount(text);
+						sink += wordCount;
+						if ("sync".equals(mode)) {
+							String line = String.format("%tFT%<tT.%<tL INFO Searched count for text: %s : %d%n",
+									System.currentTimeMillis(), text, wordCount);
+							synchronized (out) {
+								write(out, line);
+							}
+						} else if (startTime != 0) {
+							buffer.offer(System.currentTimeMillis(), "POST", "/counter-api/search/", 200,
+									System.nanoTime() - startTime, SAMPLE_RATE);
+						}
+						count++;
+					}
+					lookups.addAndGet(count + (sink == 42 ? 1 : 0));
+					done.countDown();
+				}).start();
+			}
+			done.await();
+			writer.interrupt();
+			writer.join();
+		}
+		return lookups.get() * 1000.0 / DURATION_MILLIS;
+	}
+
+	private static void drain(RequestLogBuffer buffer, BufferedWriter out) {
+		StringBuilder line = new StringBuilder(128);
+		while (!Thread.currentThread().isInterrupted() || buffer.size() > 0) {
+			if (buffer.drain(entry -> {
+				line.setLength(0);
+				line.append(entry.getTimestamp()).append(' ').append(entry.getMethod()).append(' ')
+						.append(entry.getEndpoint()).append(' ').append(entry.getStatus()).append(' ')
+						.append(entry.getDurationNanos()).append('\n');
+				write(out, line.toString());
+			}, 1024) == 0) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+			}
+		}
+	}
+
+	private static void write(BufferedWriter out, String line) {
+		try {
+			out.write(line);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+}
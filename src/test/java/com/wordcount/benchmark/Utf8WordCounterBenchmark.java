@@ -0,0 +1,141 @@
+package com.wordcount.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.wordcount.service.Utf8WordCounter;
+import com.wordcount.service.WordCountIndex;
+
+/**
+ * JMH benchmark of the corpus load path of initializedTextCountMap on a 64
+ * MB synthetic UTF-8 corpus: decoding to lines and tokenizing the Strings
+ * with the lower case and regular expression split of CorpusReader, against
+ * counting the words directly on the bytes with a Utf8WordCounter, each with
+ * and without building the WordCountIndex. The throughput is printed in GB/s
+ * of corpus. Run with: mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.Utf8WordCounterBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class Utf8WordCounterBenchmark {
+
+	private static final int CORPUS_BYTES = 64 * 1024 * 1024;
+
+	private static final Pattern NON_WORD_CHARS = Pattern.compile("[^a-z0-9\\s]");
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private byte[] corpus;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		String[] vocabulary = new String[50_000];
+		for (int i = 0; i < vocabulary.length; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 2 + random.nextInt(9);
+			for (int j = 0; j < length; j++) {
+				word.append((char) ('a' + random.nextInt(26)));
+			}
+			if (random.nextInt(50) == 0) {
+				word.insert(random.nextInt(word.length()), 'é');
+			}
+			vocabulary[i] = word.toString();
+		}
+		StringBuilder text = new StringBuilder(CORPUS_BYTES + 64);
+		int lineLength = 0;
+		while (text.length() < CORPUS_BYTES) {
+			// Zipf-like choice of the word
+			String word = vocabulary[(int) Math.pow(vocabulary.length, random.nextDouble()) - 1];
+			int shape = random.nextInt(100);
+			if (shape < 10) {
+				text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+			} else if (shape < 12) {
+				text.append(random.nextInt(10_000));
+			} else {
+				text.append(word);
+			}
+			shape = random.nextInt(100);
+			text.append(shape < 6 ? ", " : shape < 10 ? ". " : shape < 11 ? "'s " : " ");
+			lineLength += word.length() + 1;
+			if (lineLength > 80) {
+				text.append('\n');
+				lineLength = 0;
+			}
+		}
+		this.corpus = text.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public Map<String, Long> tokenizeStrings() throws IOException {
+		Map<String, Long> counts = new HashMap<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new ByteArrayInputStream(this.corpus), StandardCharsets.UTF_8), 64 * 1024)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String normalized = NON_WORD_CHARS.matcher(line.toLowerCase()).replaceAll(" ");
+				for (String word : WHITESPACE.split(normalized)) {
+					if (!word.isEmpty()) {
+						counts.merge(word, 1L, Long::sum);
+					}
+				}
+			}
+		}
+		return counts;
+	}
+
+	@Benchmark
+	public Map<String, Long> tokenizeBytes() throws IOException {
+		Utf8WordCounter counter = new Utf8WordCounter();
+		counter.count(new ByteArrayInputStream(this.corpus));
+		return counter.toMap();
+	}
+
+	@Benchmark
+	public WordCountIndex indexStrings() throws IOException {
+		return new WordCountIndex(this.tokenizeStrings(), "strings");
+	}
+
+	@Benchmark
+	public WordCountIndex indexBytes() throws IOException {
+		return new WordCountIndex(this.tokenizeBytes(), "bytes");
+	}
+
+	public static void main(String[] args) throws Exception {
+		Collection<RunResult> results = new Runner(
+				new OptionsBuilder().include(Utf8WordCounterBenchmark.class.getSimpleName()).build()).run();
+		for (RunResult result : results) {
+			System.out.printf("%-16s %6.3f GB/s%n", result.getParams().getBenchmark().replaceAll(".*\\.", ""),
+					result.getPrimaryResult().getScore() * CORPUS_BYTES / 1e9);
+		}
+	}
+}
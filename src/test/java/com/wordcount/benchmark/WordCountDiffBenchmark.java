@@ -0,0 +1,104 @@
+package com.wordcount.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.wordcount.service.WordCountDiff;
+import com.wordcount.service.WordCountIndex;
+
+/**
+ * JMH benchmark of the diff between two index generations where 10% of the
+ * words changed, 1% appeared and 1% vanished: merge join of the
+ * generations in lexical order against per-word lookups of each word in the
+ * count map of the other generation, both keeping the top 10 risers. Run
+ * with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.wordcount.benchmark.WordCountDiffBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class WordCountDiffBenchmark {
+
+	@Param({ "100000", "1000000" })
+	private int words;
+
+	private WordCountIndex from;
+
+	private WordCountIndex to;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		Map<String, Long> fromCounts = new HashMap<>();
+		Map<String, Long> toCounts = new HashMap<>();
+		for (int i = 0; i < this.words; i++) {
+			String word = "w" + Integer.toString(i, 36);
+			long count = 1L + random.nextInt(10_000);
+			int change = random.nextInt(100);
+			if (change > 0) {
+				fromCounts.put(word, count);
+			}
+			if (change != 1) {
+				toCounts.put(word, change < 12 ? count + random.nextInt(200) : count);
+			}
+		}
+		this.from = new WordCountIndex(fromCounts, "from");
+		this.to = new WordCountIndex(toCounts, "to");
+		// Build the lexical ranks of both generations once, as the service does
+		this.from.getLexicalRank(0);
+		this.to.getLexicalRank(0);
+	}
+
+	@Benchmark
+	public WordCountDiff mergeJoin() {
+		return new WordCountDiff(this.from, this.to, 10, 1);
+	}
+
+	@Benchmark
+	public PriorityQueue<Long> hashLookups() {
+		Map<String, Long> fromCounts = this.from.getCountMap();
+		Map<String, Long> toCounts = this.to.getCountMap();
+		PriorityQueue<Long> risers = new PriorityQueue<>();
+		int vanished = 0;
+		for (int rank = 0; rank < this.to.size(); rank++) {
+			Long previous = fromCounts.get(this.to.getWord(rank));
+			long change = this.to.getCountAt(rank) - (previous != null ? previous : 0);
+			if (change > 0 && (risers.size() < 10 || change > risers.peek())) {
+				risers.add(change);
+				if (risers.size() > 10) {
+					risers.poll();
+				}
+			}
+		}
+		for (int rank = 0; rank < this.from.size(); rank++) {
+			vanished += toCounts.containsKey(this.from.getWord(rank)) ? 0 : 1;
+		}
+		risers.add((long) -vanished);
+		return risers;
+	}
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(WordCountDiffBenchmark.class.getSimpleName()).build()).run();
+	}
+}
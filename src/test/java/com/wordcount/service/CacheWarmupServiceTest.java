@@ -0,0 +1,107 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class for the CacheWarmupService.
+ *
+ */
+@RunWith(SpringRunner.class)
+public class CacheWarmupServiceTest {
+
+	@InjectMocks
+	private CacheWarmupService warmupService;
+
+	@Mock
+	private TextCountService textCountService;
+
+	private Path file;
+
+	/**
+	 * Enables recording of every lookup to a temporary warm-up file.
+	 */
+	@Before
+	public void setup() throws Exception {
+		this.file = Files.createTempFile("cache-warmup", ".tsv");
+		ReflectionTestUtils.setField(warmupService, "enabled", true);
+		ReflectionTestUtils.setField(warmupService, "sampleRate", 1);
+		ReflectionTestUtils.setField(warmupService, "file", this.file.toString());
+		when(textCountService.getIndexState()).thenReturn(IndexState.READY);
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		Files.deleteIfExists(this.file);
+	}
+
+	/**
+	 * Tests that the recorded lookups are saved hottest first.
+	 */
+	@Test
+	public void testSaveHottestFirst() throws Exception {
+		warmupService.recordTextCount("vel");
+		warmupService.recordTopN(10);
+		warmupService.recordTextCount("vel");
+		warmupService.recordTextCount("sed");
+		warmupService.recordTextCount("vel");
+		warmupService.recordTopN(10);
+		warmupService.save();
+
+		assertEquals(Arrays.asList("word\tvel\t3", "top\t10\t2", "word\tsed\t1"),
+				Files.readAllLines(this.file, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Tests that the saved keys are replayed through the service and the topN
+	 * warmers, within the entry budget.
+	 */
+	@Test
+	public void testWarmUpWithinEntryBudget() throws Exception {
+		Files.write(this.file, Arrays.asList("word\tvel\t3", "top\t10\t2", "word\tsed\t1"), StandardCharsets.UTF_8);
+		ReflectionTestUtils.setField(warmupService, "maxEntries", 2);
+		List<Entry<String, Long>> topN = Collections.singletonList(new SimpleImmutableEntry<>("vel", 17L));
+		when(textCountService.findTopNWordCounts(10)).thenReturn(topN);
+		List<List<Entry<String, Long>>> warmedTopN = new ArrayList<>();
+		warmupService.addTopNWarmer(warmedTopN::add);
+
+		assertEquals(2, warmupService.warmUp());
+		verify(textCountService).findTextCount("vel");
+		verify(textCountService).findTopNWordCounts(10);
+		verify(textCountService, never()).findTextCount("sed");
+		assertEquals(Arrays.asList(topN), warmedTopN);
+	}
+
+	/**
+	 * Tests that nothing is replayed if the index fails to build.
+	 */
+	@Test
+	public void testWarmUpSkippedOnFailedIndex() throws Exception {
+		Files.write(this.file, Arrays.asList("word\tvel\t3"), StandardCharsets.UTF_8);
+		when(textCountService.getIndexState()).thenReturn(IndexState.FAILED);
+
+		assertEquals(0, warmupService.warmUp());
+		verify(textCountService, never()).findTextCount("vel");
+	}
+}
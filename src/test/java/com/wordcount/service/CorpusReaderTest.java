@@ -0,0 +1,49 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Test class for the CorpusReader tokenization.
+ *
+ */
+public class CorpusReaderTest {
+
+	private static final String TEXT = "The first line ends\nstarts the second\tline, Tab\tseparated\r\n\n"
+			+ "the LAST line";
+
+	/**
+	 * Tests that line breaks and tabs separate words: the last word of a line
+	 * and the first word of the next one are counted apart, unlike the
+	 * original tokenizer which joined the lines and only split on spaces.
+	 */
+	@Test
+	public void testMultiLineTokenization() {
+		Map<String, Long> expected = new HashMap<>();
+		expected.put("the", 3L);
+		expected.put("first", 1L);
+		expected.put("line", 3L);
+		expected.put("ends", 1L);
+		expected.put("starts", 1L);
+		expected.put("second", 1L);
+		expected.put("tab", 1L);
+		expected.put("separated", 1L);
+		expected.put("last", 1L);
+
+		// Whole resource read from the UTF-8 bytes
+		Resource source = new ByteArrayResource(TEXT.getBytes(StandardCharsets.UTF_8));
+		assertEquals(expected, new CorpusReader(1, 0).read(new Resource[] { source }));
+
+		// Resource read line by line, each line a document
+		DocumentIndex.Builder documents = new DocumentIndex.Builder();
+		assertEquals(expected, new CorpusReader(1, 0, documents, true).read(new Resource[] { source }));
+		assertEquals(3, documents.build().getDocumentCount());
+	}
+}
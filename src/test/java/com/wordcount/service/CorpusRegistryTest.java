@@ -0,0 +1,109 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wordcount.exception.ApplicationException;
+import com.wordcount.vo.CorpusStatusVO;
+
+/**
+ * Test class for the CorpusRegistry.
+ *
+ */
+public class CorpusRegistryTest {
+
+	private Path directory;
+
+	@After
+	public void tearDown() throws IOException {
+		if (this.directory != null) {
+			try (Stream<Path> paths = Files.walk(this.directory)) {
+				for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that the corpora are loaded on first access and that the least
+	 * recently used one is unloaded, and spilled, when the byte budget is
+	 * exceeded, then reloaded from its snapshot with the same counts.
+	 */
+	@Test
+	public void testLazyLoadingWithinBudget() throws IOException {
+		CorpusRegistry registry = this.registry();
+		WordCountIndex alpha = registry.getIndex("alpha");
+		assertEquals(3, alpha.getCount("alpha"));
+		registry.getIndex("beta");
+		registry.getIndex("alpha");
+		// alpha and gamma have words of the same lengths, so the same size
+		long alphaBytes = alpha.estimatedSizeBytes();
+		ReflectionTestUtils.setField(registry, "maxBytes", 2 * alphaBytes);
+
+		// gamma does not fit: beta, the least recently used, is unloaded
+		assertEquals(3, registry.getIndex("gamma").getCount("gamma"));
+		List<CorpusStatusVO> corpora = registry.getCorpora();
+		assertEquals("alpha", corpora.get(0).getName());
+		assertTrue(corpora.get(0).isLoaded());
+		assertFalse(corpora.get(1).isLoaded());
+		assertTrue(corpora.get(1).isSpilled());
+		assertTrue(corpora.get(2).isLoaded());
+		assertEquals(2 * alphaBytes, registry.getLoadedBytes());
+
+		// beta is reloaded from its snapshot
+		Files.delete(this.directory.resolve("beta.txt"));
+		assertEquals(3, registry.getIndex("beta").getCount("beta"));
+		assertEquals(2, registry.getCorpora().get(1).getLoads());
+	}
+
+	/**
+	 * Tests that an unknown corpus is rejected.
+	 */
+	@Test
+	public void testUnknownCorpus() throws IOException {
+		CorpusRegistry registry = this.registry();
+		try {
+			registry.getIndex("delta");
+			fail("Unknown corpus accepted");
+		} catch (ApplicationException ex) {
+			assertEquals("Corpus: delta not found", ex.getMessage());
+		}
+	}
+
+	/**
+	 * Returns a registry of the corpora alpha, beta and gamma, each repeating
+	 * its name 3 times, with an unbounded byte budget.
+	 */
+	private CorpusRegistry registry() throws IOException {
+		this.directory = Files.createTempDirectory("corpora");
+		StringBuilder definitions = new StringBuilder();
+		for (String name : new String[] { "alpha", "beta", "gamma" }) {
+			Path file = this.directory.resolve(name + ".txt");
+			Files.write(file, (name + " lorem " + name + " ipsum, " + name + ".").getBytes(StandardCharsets.UTF_8));
+			definitions.append(name).append("=file:").append(file).append(';');
+		}
+		CorpusRegistry registry = new CorpusRegistry();
+		ReflectionTestUtils.setField(registry, "definitions", definitions.toString());
+		ReflectionTestUtils.setField(registry, "maxBytes", Long.MAX_VALUE);
+		ReflectionTestUtils.setField(registry, "spillDirectory", this.directory.resolve("spill").toString());
+		ReflectionTestUtils.setField(registry, "corpusParallelism", 1);
+		registry.init();
+		return registry;
+	}
+}
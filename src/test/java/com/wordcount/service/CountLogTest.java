@@ -0,0 +1,111 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test class for the CountLog.
+ *
+ */
+public class CountLogTest {
+
+	private Path directory;
+
+	@After
+	public void tearDown() throws IOException {
+		if (this.directory != null) {
+			for (Path segment : this.segments()) {
+				Files.delete(segment);
+			}
+			Files.delete(this.directory);
+		}
+	}
+
+	/**
+	 * Tests that the appended records are replayed in order after a restart,
+	 * only following the given sequence number, and that appends continue
+	 * after the last record.
+	 */
+	@Test
+	public void testReplayAfterRestart() throws IOException {
+		this.directory = Files.createTempDirectory("count-log");
+		CountLog log = new CountLog(this.directory, CountLog.FsyncPolicy.ALWAYS, 1000);
+		log.open(0);
+		for (int i = 1; i <= 100; i++) {
+			log.awaitDurable(log.append(Collections.singletonMap("w" + i % 3, (long) i)));
+		}
+		log.close();
+
+		List<Long> sequences = new ArrayList<>();
+		long[] sum = new long[1];
+		CountLog restarted = new CountLog(this.directory, CountLog.FsyncPolicy.ALWAYS, 1000);
+		long last = restarted.replay(40, (sequence, deltas) -> {
+			sequences.add(sequence);
+			sum[0] += deltas.values().iterator().next();
+		});
+		assertEquals(100, last);
+		assertEquals(60, sequences.size());
+		assertEquals(Long.valueOf(41), sequences.get(0));
+		assertEquals((41 + 100) * 60 / 2, sum[0]);
+
+		restarted.open(last);
+		assertEquals(101, restarted.append(Collections.singletonMap("w", 1L)));
+		restarted.close();
+	}
+
+	/**
+	 * Tests that a torn record at the end of a segment ends its replay, and
+	 * that the segments before a checkpoint are deleted after rotation.
+	 */
+	@Test
+	public void testTornTailAndTruncation() throws IOException {
+		this.directory = Files.createTempDirectory("count-log");
+		CountLog log = new CountLog(this.directory, CountLog.FsyncPolicy.NONE, 1000);
+		log.open(0);
+		for (int i = 1; i <= 10; i++) {
+			log.append(Collections.singletonMap("lorem", 1L));
+		}
+		assertEquals(10, log.rotate());
+		log.awaitDurable(log.append(Collections.singletonMap("ipsum", 2L)));
+		log.close();
+		assertEquals(2, this.segments().size());
+
+		// Tear the last record of the second segment
+		Path last = this.segments().get(1);
+		try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+		List<Map<String, Long>> replayed = new ArrayList<>();
+		CountLog restarted = new CountLog(this.directory, CountLog.FsyncPolicy.NONE, 1000);
+		assertEquals(10, restarted.replay(0, (sequence, deltas) -> replayed.add(deltas)));
+		assertEquals(10, replayed.size());
+
+		restarted.open(10);
+		assertEquals(0, restarted.deleteSegmentsUpTo(9));
+		assertEquals(1, restarted.deleteSegmentsUpTo(10));
+		restarted.close();
+		assertEquals(1, this.segments().size());
+	}
+
+	private List<Path> segments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+			stream.forEach(segments::add);
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+}
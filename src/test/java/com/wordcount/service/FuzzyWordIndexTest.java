@@ -0,0 +1,118 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for the FuzzyWordIndex.
+ *
+ */
+public class FuzzyWordIndexTest {
+
+	/**
+	 * Tests the lookup of misspellings: closest words first, then by
+	 * descending count, within the requested distance and limit.
+	 */
+	@Test
+	public void testLookup() {
+		Map<String, Long> counts = new HashMap<>();
+		counts.put("lorem", 7L);
+		counts.put("ipsum", 12L);
+		counts.put("dolor", 5L);
+		counts.put("color", 9L);
+		counts.put("door", 3L);
+		counts.put("odlor", 1L);
+		FuzzyWordIndex fuzzy = new FuzzyWordIndex(new WordCountIndex(counts, "test"), 2);
+
+		List<FuzzyWordIndex.Match> matches = fuzzy.lookup("dolor", 2, 10);
+		assertEquals("dolor", matches.get(0).getWord());
+		assertEquals(0, matches.get(0).getDistance());
+		assertEquals("color", matches.get(1).getWord());
+		assertEquals(9L, matches.get(1).getCount());
+		// Deletion and transposition are one edit
+		assertEquals("door", matches.get(2).getWord());
+		assertEquals("odlor", matches.get(3).getWord());
+		assertEquals(1, matches.get(3).getDistance());
+		assertEquals(4, matches.size());
+
+		assertEquals("lorem", fuzzy.lookup("lroemm", 2, 10).get(0).getWord());
+		assertTrue(fuzzy.lookup("lroemm", 1, 10).isEmpty());
+		assertEquals(1, fuzzy.lookup("dolor", 1, 1).size());
+
+		assertEquals("lorem", fuzzy.lookup("lorem12", 2, 10).get(0).getWord());
+		assertTrue(fuzzy.lookup("lorem123", 2, 10).isEmpty());
+	}
+
+	/**
+	 * Tests that the words longer than MAX_WORD_LENGTH are not indexed, so
+	 * that a huge token of the corpus does not blow up the build, and that
+	 * longer queries than the cap plus the distance have no match.
+	 */
+	@Test
+	public void testLongWordsNotIndexed() {
+		String capped = repeat('a', FuzzyWordIndex.MAX_WORD_LENGTH);
+		String longer = repeat('b', FuzzyWordIndex.MAX_WORD_LENGTH + 1);
+		Map<String, Long> counts = new HashMap<>();
+		counts.put("lorem", 7L);
+		counts.put(capped, 2L);
+		counts.put(longer, 3L);
+		counts.put(repeat('c', 1_000_000), 1L);
+		FuzzyWordIndex fuzzy = new FuzzyWordIndex(new WordCountIndex(counts, "test"), 2);
+
+		assertEquals(capped, fuzzy.lookup(capped + "a", 1, 10).get(0).getWord());
+		assertTrue(fuzzy.lookup(longer, 2, 10).isEmpty());
+		assertTrue(fuzzy.lookup(repeat('c', 1_000_000), 2, 10).isEmpty());
+		assertEquals("lorem", fuzzy.lookup("lorme", 1, 10).get(0).getWord());
+	}
+
+	private static String repeat(char c, int count) {
+		return new String(new char[count]).replace('\0', c);
+	}
+
+	/**
+	 * Tests the lookup against a scan of all the words with the edit
+	 * distance on random words and misspellings.
+	 */
+	@Test
+	public void testLookupMatchesScan() {
+		Random random = new Random(7);
+		Map<String, Long> counts = new HashMap<>();
+		for (int i = 0; i < 2_000; i++) {
+			counts.put(randomWord(random), (long) 1 + random.nextInt(100));
+		}
+		WordCountIndex index = new WordCountIndex(counts, "test");
+		FuzzyWordIndex fuzzy = new FuzzyWordIndex(index, 2);
+		for (int i = 0; i < 500; i++) {
+			String word = i % 2 == 0 ? randomWord(random) : index.getWord(random.nextInt(index.size()));
+			for (int distance = 1; distance <= 2; distance++) {
+				List<String> expected = new ArrayList<>();
+				for (int d = 0; d <= distance; d++) {
+					for (int rank = 0; rank < index.size(); rank++) {
+						if (FuzzyWordIndex.distance(word, index.getWord(rank), distance) == d) {
+							expected.add(index.getWord(rank));
+						}
+					}
+				}
+				List<String> actual = new ArrayList<>();
+				fuzzy.lookup(word, distance, Integer.MAX_VALUE).forEach(match -> actual.add(match.getWord()));
+				assertEquals(expected, actual);
+			}
+		}
+	}
+
+	private static String randomWord(Random random) {
+		char[] word = new char[2 + random.nextInt(6)];
+		for (int i = 0; i < word.length; i++) {
+			word[i] = (char) ('a' + random.nextInt(4));
+		}
+		return new String(word);
+	}
+}
@@ -0,0 +1,92 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.wordcount.exception.ApplicationException;
+
+/**
+ * Test class for the RequestCoalescer.
+ *
+ */
+public class RequestCoalescerTest {
+
+	private RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>();
+
+	/**
+	 * Tests concurrent calls for the same key while a computation is in
+	 * flight. All callers are expected to get the value of one computation.
+	 */
+	@Test
+	public void testConcurrentCallsShareComputation() throws Exception {
+		AtomicInteger computations = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			futures.add(executor.submit(() -> this.coalescer.execute(5, () -> {
+				computations.incrementAndGet();
+				started.countDown();
+				await(release);
+				return 25;
+			})));
+			started.await(5, TimeUnit.SECONDS);
+			for (int i = 0; i < 7; i++) {
+				futures.add(executor.submit(() -> this.coalescer.execute(5, () -> {
+					computations.incrementAndGet();
+					return -1;
+				})));
+			}
+			// Let the followers reach the in-flight computation before it ends
+			while (executor.getActiveCount() < 8) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(100);
+			release.countDown();
+			for (Future<Integer> future : futures) {
+				assertEquals(Integer.valueOf(25), future.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, computations.get());
+		assertEquals(0, this.coalescer.inFlightCount());
+	}
+
+	/**
+	 * Tests a failing computation. The exception is expected to be rethrown
+	 * and the key to be computed again on the next call.
+	 */
+	@Test
+	public void testFailedComputationIsNotKept() {
+		try {
+			this.coalescer.execute(1, () -> {
+				throw new ApplicationException("Invalid");
+			});
+			fail("Application Exception expected");
+		} catch (ApplicationException ex) {
+			assertEquals("Invalid", ex.getMessage());
+		}
+		assertEquals(Integer.valueOf(1), this.coalescer.execute(1, () -> 1));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,12 +1,21 @@
 package com.wordcount.service;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -18,12 +27,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
 
 import com.wordcount.exception.ApplicationException;
 import com.wordcount.service.TextCountServiceWordMapImpl;
+import com.wordcount.vo.DocumentFrequencyVO;
+import com.wordcount.vo.DocumentTermVO;
+import com.wordcount.vo.TopNFilterVO;
+import com.wordcount.vo.WordCountDiffVO;
+import com.wordcount.vo.WordCountStatsVO;
+import com.wordcount.vo.WordSuggestionVO;
 
 /**
  * Test class for the TextCountServiceWordMapImpl service.
@@ -38,13 +56,17 @@ public class TextCountServiceTest {
 	@Mock
 	private Resource srcFile;
 
+	@Spy
+	private ExclusionListService exclusionListService = new ExclusionListService();
+
 	/**
 	 * Initializes the service required to start testing.
 	 */
 	@Before
 	public void setup() throws Exception {
 		// Mock srcFile
-		when(srcFile.getURI()).thenReturn(new ClassPathResource("/test_paragraph.txt").getURI());
+		when(srcFile.getInputStream())
+				.thenAnswer(invocation -> new ClassPathResource("/test_paragraph.txt").getInputStream());
 
 		// Test the method
 		service.init();
@@ -70,7 +92,7 @@ public class TextCountServiceTest {
 	@Test(expected = ApplicationException.class)
 	public void testInValidServiceInitialization() throws Exception {
 		// Mock srcFile
-		when(srcFile.getURI()).thenThrow(new FileNotFoundException("File Not Found"));
+		when(srcFile.getInputStream()).thenThrow(new FileNotFoundException("File Not Found"));
 
 		try {
 			// Test the method
@@ -84,6 +106,415 @@ public class TextCountServiceTest {
 		fail("Application Exception expected");
 	}
 
+	/**
+	 * Tests service initialization from a corpus location made of a plain and
+	 * a gzip'd copy of the test paragraph. The service is expected to merge
+	 * the counts of both files.
+	 */
+	@Test
+	public void testMultiFileCorpusInitialization() {
+		ReflectionTestUtils.setField(service, "corpusLocation", "classpath:/corpus/*.txt, classpath:/corpus/*.gz");
+		ReflectionTestUtils.setField(service, "corpusParallelism", 2);
+		service.init();
+
+		assertEquals(Long.valueOf(32L), service.findTextCount("Sed"));
+	}
+
+	/**
+	 * Tests count updates with the write-ahead log: updates are visible
+	 * straight away, folded into the ranking by a checkpoint, and recovered
+	 * from the checkpoint plus the log tail by a restarted service.
+	 */
+	@Test
+	public void testDurableCountUpdates() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+		try {
+			DurableCountStore store = durableCountStore(directory);
+			ReflectionTestUtils.setField(service, "durableCountStore", store);
+			service.init();
+			long lorem = service.findTextCount("lorem");
+			Map<String, Long> deltas = new LinkedHashMap<>();
+			deltas.put("Lorem ", 2L);
+			deltas.put("newword", 5L);
+			List<Entry<String, Long>> counts = service.updateTextCounts(deltas);
+			assertEquals("lorem", counts.get(0).getKey());
+			assertEquals(Long.valueOf(lorem + 2), counts.get(0).getValue());
+			assertEquals(Long.valueOf(5), service.findTextCount("newword"));
+			assertEquals(null, service.getWordCountIndex().getCountMap().get("newword"));
+			// The ranking is the folded one until the next checkpoint
+			int size = service.getWordCountIndex().size();
+			assertTrue(!keys(service.findTopNWordCounts(size + 1)).contains("newword"));
+
+			service.checkpoint();
+			assertEquals(Long.valueOf(5), service.getWordCountIndex().getCountMap().get("newword"));
+			assertTrue(keys(service.findTopNWordCounts(size + 1)).contains("newword"));
+			service.updateTextCounts(Collections.singletonMap("newword", -7L));
+			assertEquals(Long.valueOf(0), service.findTextCount("newword"));
+			store.close();
+
+			// Restart from the checkpoint and the log tail
+			TextCountServiceWordMapImpl restarted = new TextCountServiceWordMapImpl();
+			DurableCountStore restartedStore = durableCountStore(directory);
+			ReflectionTestUtils.setField(restarted, "srcFile", srcFile);
+			ReflectionTestUtils.setField(restarted, "durableCountStore", restartedStore);
+			restarted.init();
+			assertEquals(Long.valueOf(lorem + 2), restarted.findTextCount("lorem"));
+			assertEquals(Long.valueOf(0), restarted.findTextCount("newword"));
+			assertEquals(null, restarted.getWordCountIndex().getCountMap().get("newword"));
+			restartedStore.close();
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Tests the recovery of count updates taking a count below 0 and back
+	 * up: 5, then -10, then +3. The restarted service is expected to recover
+	 * the acknowledged count of 0, the deltas being clamped once as a whole.
+	 */
+	@Test
+	public void testDurableCountUpdatesRecoveryClamp() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+		try {
+			DurableCountStore store = durableCountStore(directory);
+			ReflectionTestUtils.setField(service, "durableCountStore", store);
+			service.init();
+			service.updateTextCounts(Collections.singletonMap("newword", 5L));
+			service.checkpoint();
+			service.updateTextCounts(Collections.singletonMap("newword", -10L));
+			List<Entry<String, Long>> counts = service.updateTextCounts(Collections.singletonMap("newword", 3L));
+			assertEquals(Long.valueOf(0), counts.get(0).getValue());
+			store.close();
+
+			// Restart from the checkpoint and the log tail
+			TextCountServiceWordMapImpl restarted = new TextCountServiceWordMapImpl();
+			DurableCountStore restartedStore = durableCountStore(directory);
+			ReflectionTestUtils.setField(restarted, "srcFile", srcFile);
+			ReflectionTestUtils.setField(restarted, "durableCountStore", restartedStore);
+			restarted.init();
+			assertEquals(Long.valueOf(0), restarted.findTextCount("newword"));
+			restartedStore.close();
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Tests count updates when the write-ahead log is not enabled. The service
+	 * is expected to throw ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testUpdateCountsNotEnabled() {
+		service.init();
+		service.updateTextCounts(Collections.singletonMap("lorem", 1L));
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests count updates of words which the corpus tokenizer can not produce.
+	 * The service is expected to throw ApplicationException for each and
+	 * leave the counts unchanged.
+	 */
+	@Test
+	public void testUpdateCountsInvalidWord() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+		try {
+			DurableCountStore store = durableCountStore(directory);
+			ReflectionTestUtils.setField(service, "durableCountStore", store);
+			service.init();
+			for (String word : new String[] { "lorem ipsum", "lorem,", "café", "c++" }) {
+				try {
+					service.updateTextCounts(Collections.singletonMap(word, 1L));
+					fail("Application Exception expected");
+				} catch (ApplicationException ex) {
+					// Expected
+				}
+			}
+			assertEquals(0, service.getWordCountIndex().getLiveSequence());
+			store.close();
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Tests the diff between the index generations before and after count
+	 * updates are folded in by a checkpoint.
+	 */
+	@Test
+	public void testWordCountDiff() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+		try {
+			DurableCountStore store = durableCountStore(directory);
+			ReflectionTestUtils.setField(service, "durableCountStore", store);
+			service.init();
+			long lorem = service.findTextCount("lorem");
+			Map<String, Long> deltas = new LinkedHashMap<>();
+			deltas.put("lorem", 2L);
+			deltas.put("newword", 5L);
+			service.updateTextCounts(deltas);
+			service.checkpoint();
+
+			WordCountDiffVO diff = service.findWordCountDiff(5, null);
+			assertEquals(service.getIndexVersion(), diff.getToVersion());
+			assertEquals(1, diff.getNewWordCount());
+			assertEquals(0, diff.getVanishedWordCount());
+			assertEquals(1, diff.getChangedWordCount());
+			assertEquals("lorem", diff.getRisers().get(0).getWord());
+			assertEquals(lorem, diff.getRisers().get(0).getPreviousCount());
+			assertEquals(2, diff.getRisers().get(0).getChange());
+			assertEquals(Double.valueOf(2.0 / lorem), diff.getRelativeRisers().get(0).getRelativeChange());
+			assertEquals("newword", diff.getNewWords().get(0).getWord());
+			assertEquals(null, diff.getNewWords().get(0).getRelativeChange());
+			assertTrue(diff.getFallers().isEmpty());
+			store.close();
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Tests the diff when no previous index generation exists: the first
+	 * index built by the service. The service is expected to throw
+	 * ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testWordCountDiffNoPreviousGeneration() {
+		service.findWordCountDiff(10, null);
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests the diff after the service is initialized again: a rebuild from
+	 * the corpus is a new generation, which is expected to show no change
+	 * from the unchanged corpus, and none is retained if disabled.
+	 */
+	@Test
+	public void testWordCountDiffAfterReinitialization() {
+		String firstVersion = service.getIndexVersion();
+		service.init();
+		WordCountDiffVO diff = service.findWordCountDiff(10, null);
+		assertEquals(firstVersion, diff.getFromVersion());
+		assertEquals(service.getIndexVersion(), diff.getToVersion());
+		assertEquals(0, diff.getChangedWordCount() + diff.getNewWordCount() + diff.getVanishedWordCount());
+
+		ReflectionTestUtils.setField(service, "retainPreviousIndex", false);
+		service.init();
+		try {
+			service.findWordCountDiff(10, null);
+			fail("Application Exception expected");
+		} catch (ApplicationException ex) {
+			// No previous generation retained
+		}
+	}
+
+	private static DurableCountStore durableCountStore(Path directory) {
+		DurableCountStore store = new DurableCountStore();
+		ReflectionTestUtils.setField(store, "enabled", true);
+		ReflectionTestUtils.setField(store, "directory", directory.toString());
+		return store;
+	}
+
+	/**
+	 * Tests the typo-tolerant count lookup of a misspelled word of the source
+	 * text file. The service is expected to return the closest words first.
+	 */
+	@Test
+	public void testFindFuzzyTextCounts() {
+		ReflectionTestUtils.setField(service, "fuzzyEnabled", true);
+		service.init();
+		List<WordSuggestionVO> suggestions = service.findFuzzyTextCounts("Lroem", 1, null);
+		assertEquals(1, suggestions.size());
+		assertEquals("lorem", suggestions.get(0).getWord());
+		assertEquals(1, suggestions.get(0).getDistance());
+		assertEquals(service.findTextCount("lorem"), Long.valueOf(suggestions.get(0).getCount()));
+		assertEquals(0, service.findFuzzyTextCounts("sed", null, 1).get(0).getDistance());
+	}
+
+	/**
+	 * Tests the typo-tolerant count lookup with an edit distance beyond the
+	 * configured maximum. The service is expected to throw
+	 * ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testFindFuzzyTextCountsInvalidDistance() {
+		ReflectionTestUtils.setField(service, "fuzzyEnabled", true);
+		service.init();
+		service.findFuzzyTextCounts("lorem", 3, null);
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests the typo-tolerant count lookup of a word longer than the longest
+	 * indexed words plus the edit distance. The service is expected to
+	 * throw ApplicationException without generating its deletes.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testFindFuzzyTextCountsTooLong() {
+		ReflectionTestUtils.setField(service, "fuzzyEnabled", true);
+		service.init();
+		service.findFuzzyTextCounts(String.join("", Collections.nCopies(100_000, "a")), null, null);
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests the document statistics of the source text file with one
+	 * document per line: document frequency, per document count and TF-IDF
+	 * top terms. The service is expected to rank rare words of a document
+	 * first.
+	 */
+	@Test
+	public void testDocumentStatistics() {
+		when(srcFile.getFilename()).thenReturn("test_paragraph.txt");
+		ReflectionTestUtils.setField(service, "documentsEnabled", true);
+		ReflectionTestUtils.setField(service, "lineDocuments", true);
+		service.init();
+
+		DocumentFrequencyVO frequency = service.findDocumentFrequency("Sed");
+		assertEquals(8, frequency.getDocumentFrequency());
+		assertEquals(9, frequency.getDocuments());
+		assertEquals(3L, service.findDocumentTextCount("test_paragraph.txt:1", "sed").getCount());
+		assertEquals(0L, service.findDocumentTextCount("test_paragraph.txt:1", "unknown").getCount());
+
+		List<DocumentTermVO> terms = service.findTopTfIdfTerms("test_paragraph.txt:1", 2);
+		assertEquals("risus", terms.get(0).getWord());
+		assertEquals(1, terms.get(0).getDocumentFrequency());
+		assertEquals("leo", terms.get(1).getWord());
+		assertEquals(3L, terms.get(1).getCount());
+		assertEquals(1 + Math.log(10.0 / 6), terms.get(1).getTfIdf() / 3, 1e-9);
+	}
+
+	/**
+	 * Tests that the documents of a corpus location are named by their path
+	 * relative to the root directory of the pattern, so files of the same
+	 * name in two directories are kept apart, per file and per line.
+	 */
+	@Test
+	public void testDocumentNamesRelativeToLocation() throws IOException {
+		Path directory = Files.createTempDirectory("corpus");
+		try {
+			Files.createDirectories(directory.resolve("a"));
+			Files.createDirectories(directory.resolve("b"));
+			Files.write(directory.resolve("a/x.txt"), Arrays.asList("sed sed", "vel"), StandardCharsets.UTF_8);
+			Files.write(directory.resolve("b/x.txt"), Arrays.asList("sed vel"), StandardCharsets.UTF_8);
+			ReflectionTestUtils.setField(service, "corpusLocation", "file:" + directory.toAbsolutePath() + "/**/*.txt");
+			ReflectionTestUtils.setField(service, "documentsEnabled", true);
+			service.init();
+
+			assertEquals(2L, service.findDocumentTextCount("a/x.txt", "sed").getCount());
+			assertEquals(1L, service.findDocumentTextCount("b/x.txt", "sed").getCount());
+
+			ReflectionTestUtils.setField(service, "lineDocuments", true);
+			service.init();
+			assertEquals(2L, service.findDocumentTextCount("a/x.txt:1", "sed").getCount());
+			assertEquals(1L, service.findDocumentTextCount("a/x.txt:2", "vel").getCount());
+			assertEquals(1L, service.findDocumentTextCount("b/x.txt:1", "vel").getCount());
+		} finally {
+			FileSystemUtils.deleteRecursively(directory.toFile());
+		}
+	}
+
+	/**
+	 * Tests the reload of the corpus: a changed corpus is served as a new
+	 * index generation, diffed against the one it replaced, while an
+	 * unchanged corpus keeps the current one.
+	 */
+	@Test
+	public void testReloadCorpus() throws IOException {
+		Path directory = Files.createTempDirectory("corpus");
+		try {
+			Path file = directory.resolve("x.txt");
+			Files.write(file, Arrays.asList("sed sed vel"), StandardCharsets.UTF_8);
+			ReflectionTestUtils.setField(service, "corpusLocation", "file:" + directory.toAbsolutePath() + "/*.txt");
+			service.init();
+			String version = service.getGenerationVersion();
+			assertFalse(service.reloadCorpus());
+			assertEquals(version, service.getGenerationVersion());
+
+			Files.write(file, Arrays.asList("sed vel vel vel lorem"), StandardCharsets.UTF_8);
+			assertTrue(service.reloadCorpus());
+			assertNotEquals(version, service.getGenerationVersion());
+			assertEquals(Long.valueOf(3L), service.findTextCount("vel"));
+			WordCountDiffVO diff = service.findWordCountDiff(5, null);
+			assertEquals(version, diff.getFromVersion());
+			assertEquals("vel", diff.getRisers().get(0).getWord());
+			assertEquals("sed", diff.getFallers().get(0).getWord());
+			assertEquals("lorem", diff.getNewWords().get(0).getWord());
+		} finally {
+			FileSystemUtils.deleteRecursively(directory.toFile());
+		}
+	}
+
+	/**
+	 * Tests the reload of the corpus when count updates are enabled. The
+	 * service is expected to throw ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testReloadCorpusWithCountUpdates() throws IOException {
+		Path directory = Files.createTempDirectory("wal");
+		try {
+			DurableCountStore store = durableCountStore(directory);
+			ReflectionTestUtils.setField(service, "durableCountStore", store);
+			service.init();
+			try {
+				service.reloadCorpus();
+			} finally {
+				store.close();
+			}
+		} finally {
+			FileSystemUtils.deleteRecursively(directory.toFile());
+		}
+	}
+
+	/**
+	 * Tests the document statistics of an unknown document. The service is
+	 * expected to throw ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testDocumentStatisticsUnknownDocument() {
+		ReflectionTestUtils.setField(service, "documentsEnabled", true);
+		service.init();
+		service.findTopTfIdfTerms("unknown.txt", 2);
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests service initialization in async build mode. The index is expected
+	 * to become ready in the background and serve the counts.
+	 */
+	@Test
+	public void testAsyncServiceInitialization() throws Exception {
+		ReflectionTestUtils.setField(service, "asyncIndexBuild", true);
+		service.init();
+
+		for (int i = 0; i < 100 && service.getIndexState() == IndexState.BUILDING; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(IndexState.READY, service.getIndexState());
+		assertEquals(100, service.getIndexProgress());
+		assertEquals(Long.valueOf(16L), service.findTextCount("Sed"));
+	}
+
 	/**
 	 * Tests searching count of a valid word that exists in the source text
 	 * file. The service is expected to return the correct word count.
@@ -140,6 +571,108 @@ public class TextCountServiceTest {
 		}
 	}
 
+	/**
+	 * Tests searching of the top words matching a filter: a named exclusion
+	 * list with a minimum length, a prefix and a regex. The service is
+	 * expected to skip the non matching words of the ranking.
+	 */
+	@Test
+	public void testFindFilteredTopNCounts() {
+		TopNFilterVO filter = new TopNFilterVO();
+		filter.setExcludeList(Arrays.asList("latin"));
+		filter.setMinLength(4);
+		List<Entry<String, Long>> counts = service.findTopNWordCounts(3, filter);
+		assertEquals(Arrays.asList("eget", "amet", "metus"), keys(counts));
+		assertEquals(Long.valueOf(12L), counts.get(2).getValue());
+
+		filter = new TopNFilterVO();
+		filter.setPrefix("N");
+		filter.setExclude(Arrays.asList("nec"));
+		assertEquals(Arrays.asList("nulla", "non"), keys(service.findTopNWordCounts(2, filter)));
+
+		filter = new TopNFilterVO();
+		filter.setRegex("[a-z]{2}");
+		assertEquals(Arrays.asList("in", "et", "eu"), keys(service.findTopNWordCounts(3, filter)));
+
+		filter.setRegex("x+");
+		assertTrue(service.findTopNWordCounts(3, filter).isEmpty());
+	}
+
+	/**
+	 * Tests searching of the top words with a regex that may backtrack
+	 * exponentially or is too long. The service is expected to reject them
+	 * before walking the ranking.
+	 */
+	@Test
+	public void testFindTopNCountsUnsafeRegex() {
+		for (String regex : Arrays.asList("(a|a)*b", "(a+)+", "((ab)*c)*", "(?:a?){3,}", "[a-z]{65}|"
+				+ String.join("", Collections.nCopies(64, "a")))) {
+			TopNFilterVO filter = new TopNFilterVO();
+			filter.setRegex(regex);
+			try {
+				service.findTopNWordCounts(3, filter);
+				fail("Application Exception expected for regex " + regex);
+			} catch (ApplicationException ex) {
+				assertTrue(ex.getMessage().endsWith("is too long or too complex"));
+			}
+		}
+		// Quantifiers within non repeated groups and classes are accepted
+		TopNFilterVO filter = new TopNFilterVO();
+		filter.setRegex("(e|i)[a-z+*]+(t|m)?");
+		assertEquals(3, service.findTopNWordCounts(3, filter).size());
+	}
+
+	/**
+	 * Tests searching of the top words with an unknown exclusion list. The
+	 * service is expected to throw ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testFindTopNCountsUnknownExclusionList() {
+		TopNFilterVO filter = new TopNFilterVO();
+		filter.setExcludeList(Arrays.asList("../application"));
+		service.findTopNWordCounts(3, filter);
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests searching of the words with a count between 15 and 17. The service
+	 * is expected to return them in descending count order.
+	 */
+	@Test
+	public void testFindWordCountsInRange() {
+		List<Entry<String, Long>> counts = service.findWordCountsInRange(15L, 17L, null);
+		assertEquals(4, counts.size());
+		assertEquals("eget", counts.get(0).getKey());
+		assertEquals(Long.valueOf(15L), counts.get(3).getValue());
+		assertEquals(2, service.findWordCountsInRange(15L, 17L, 2).size());
+		assertTrue(service.findWordCountsInRange(100L, null, null).isEmpty());
+	}
+
+	/**
+	 * Tests searching of an inverted count range. The service is expected to
+	 * throw ApplicationException.
+	 */
+	@Test(expected = ApplicationException.class)
+	public void testFindInvalidWordCountsInRange() {
+		service.findWordCountsInRange(17L, 15L, null);
+		fail("Application Exception expected");
+	}
+
+	/**
+	 * Tests the corpus statistics of the source text file. The service is
+	 * expected to return the token/word totals and a log2 histogram.
+	 */
+	@Test
+	public void testWordCountStats() {
+		WordCountStatsVO stats = service.getWordCountStats();
+		assertEquals(911L, stats.getTotalTokens());
+		assertEquals(175L, stats.getDistinctWords());
+		assertEquals(14L, stats.getSingletons());
+		assertEquals(5, stats.getHistogram().size());
+		assertEquals(16L, stats.getHistogram().get(4).getMinCount());
+		assertEquals(3L, stats.getHistogram().get(4).getWords());
+	}
+
 	/**
 	 * Tests searching of top null word counts from the source text file. The
 	 * service is expected to throw ApplicationException.
@@ -159,4 +692,10 @@ public class TextCountServiceTest {
 		service.findTopNWordCounts(-1);
 		fail("Application Exception expected");
 	}
+
+	private static List<String> keys(List<Entry<String, Long>> counts) {
+		List<String> keys = new ArrayList<>();
+		counts.forEach(entry -> keys.add(entry.getKey()));
+		return keys;
+	}
 }
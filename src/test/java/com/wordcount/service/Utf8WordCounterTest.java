@@ -0,0 +1,89 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for the Utf8WordCounter.
+ *
+ */
+public class Utf8WordCounterTest {
+
+	/**
+	 * Tests the words of text mixing case, digits, punctuation, long words,
+	 * non-ASCII characters and the non-ASCII characters lower cased to ASCII
+	 * letters.
+	 */
+	@Test
+	public void testCount() throws IOException {
+		String text = "Lorem IPSUM, dolor\tsit amet; lorem-ipsum 42 x2Y\r\n"
+				+ "Supercalifragilisticexpialidocious SUPERcalifragilisticexpialidocious!\n"
+				+ "café naïve İstanbul Kelvin 1K straße été";
+		Map<String, Long> expected = new HashMap<>();
+		CorpusReader.countWords(text, expected);
+		assertEquals(expected, count(text.getBytes(StandardCharsets.UTF_8), 64 * 1024));
+		assertEquals(Long.valueOf(2), expected.get("supercalifragilisticexpialidocious"));
+		assertEquals(Long.valueOf(1), expected.get("kelvin"));
+		assertEquals(Long.valueOf(1), expected.get("1k"));
+		assertEquals(Long.valueOf(1), expected.get("stanbul"));
+
+		Utf8WordCounter counter = new Utf8WordCounter();
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		counter.count(bytes, 0, bytes.length);
+		assertEquals(expected, counter.toMap());
+	}
+
+	/**
+	 * Tests random texts, including malformed UTF-8, against the String
+	 * tokenizer, with read buffers small enough for words and characters to
+	 * span reads.
+	 */
+	@Test
+	public void testCountMatchesStringTokenizer() throws IOException {
+		Random random = new Random(3);
+		String[] pieces = { "a", "B", "z", "Q", "0", "9", "word", "Words", " ", " ", "\n", "\r\n", "\t", ".", "-",
+				"'", "é", "É", "İ", "K", "中", "😀", "@", "[", "`", "{" };
+		byte[][] malformed = { { (byte) 0xC4 }, { (byte) 0xE2, (byte) 0x84 }, { (byte) 0x80 }, { (byte) 0xFF },
+				{ (byte) 0xED, (byte) 0xA0, (byte) 0x80 } };
+		for (int i = 0; i < 300; i++) {
+			StringBuilder text = new StringBuilder();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			int length = random.nextInt(400);
+			for (int j = 0; j < length; j++) {
+				if (i % 2 == 1 && random.nextInt(20) == 0) {
+					byte[] invalid = malformed[random.nextInt(malformed.length)];
+					bytes.write(invalid, 0, invalid.length);
+				} else {
+					String piece = pieces[random.nextInt(pieces.length)];
+					text.append(piece);
+					byte[] encoded = piece.getBytes(StandardCharsets.UTF_8);
+					bytes.write(encoded, 0, encoded.length);
+				}
+			}
+			Map<String, Long> expected = new HashMap<>();
+			CorpusReader.countWords(new String(bytes.toByteArray(), StandardCharsets.UTF_8), expected);
+			assertEquals(expected, count(bytes.toByteArray(), 16 + random.nextInt(64)));
+		}
+	}
+
+	private static Map<String, Long> count(byte[] text, int bufferSize) throws IOException {
+		Utf8WordCounter counter = new Utf8WordCounter(bufferSize);
+		// Reads of at most 7 bytes, so that windows end anywhere
+		counter.count(new ByteArrayInputStream(text) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, 1 + (this.pos % 7)));
+			}
+		});
+		return counter.toMap();
+	}
+}
@@ -0,0 +1,111 @@
+package com.wordcount.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for the WordCountDiff.
+ *
+ */
+public class WordCountDiffTest {
+
+	/**
+	 * Tests the risers, fallers, new and vanished words of two generations.
+	 */
+	@Test
+	public void testDiff() {
+		Map<String, Long> fromCounts = new HashMap<>();
+		fromCounts.put("lorem", 10L);
+		fromCounts.put("ipsum", 4L);
+		fromCounts.put("dolor", 20L);
+		fromCounts.put("sit", 2L);
+		fromCounts.put("amet", 1L);
+		Map<String, Long> toCounts = new HashMap<>();
+		toCounts.put("lorem", 15L);
+		toCounts.put("ipsum", 8L);
+		toCounts.put("dolor", 11L);
+		toCounts.put("sit", 2L);
+		toCounts.put("elit", 6L);
+		toCounts.put("sed", 3L);
+		WordCountIndex from = new WordCountIndex(fromCounts, "from");
+		WordCountIndex to = new WordCountIndex(toCounts, "to");
+		WordCountDiff diff = new WordCountDiff(from, to, 10, 1);
+
+		assertEquals(2, diff.getNewWordCount());
+		assertEquals(1, diff.getVanishedWordCount());
+		assertEquals(3, diff.getChangedWordCount());
+		assertEquals("lorem,ipsum", words(diff.getRisers()));
+		assertEquals(5, diff.getRisers().get(0).getChange());
+		assertEquals("ipsum,lorem", words(diff.getRelativeRisers()));
+		assertEquals(1.0, diff.getRelativeRisers().get(0).getRelativeChange(), 0);
+		assertEquals("dolor", words(diff.getFallers()));
+		assertEquals(-9, diff.getFallers().get(0).getChange());
+		assertEquals("elit,sed", words(diff.getNewWords()));
+		assertEquals("amet", words(diff.getVanishedWords()));
+		assertEquals(1, diff.getVanishedWords().get(0).getPreviousCount());
+
+		// Limit and minimum count of the relative changes
+		diff = new WordCountDiff(from, to, 1, 10);
+		assertEquals("lorem", words(diff.getRisers()));
+		assertEquals("lorem", words(diff.getRelativeRisers()));
+		assertEquals("elit", words(diff.getNewWords()));
+	}
+
+	/**
+	 * Tests the merge join against per-word lookups on random generations.
+	 */
+	@Test
+	public void testDiffMatchesLookups() {
+		Random random = new Random(11);
+		Map<String, Long> fromCounts = new HashMap<>();
+		Map<String, Long> toCounts = new HashMap<>();
+		for (int i = 0; i < 5_000; i++) {
+			String word = Integer.toString(random.nextInt(8_000), 36);
+			if (random.nextInt(4) > 0) {
+				fromCounts.put(word, (long) 1 + random.nextInt(50));
+			}
+			if (random.nextInt(4) > 0) {
+				toCounts.put(word, (long) 1 + random.nextInt(50));
+			}
+		}
+		WordCountDiff diff = new WordCountDiff(new WordCountIndex(fromCounts, "from"),
+				new WordCountIndex(toCounts, "to"), 20, 1);
+
+		List<WordCountDiff.Change> risers = new ArrayList<>();
+		List<WordCountDiff.Change> newWords = new ArrayList<>();
+		int vanished = 0;
+		for (Map.Entry<String, Long> entry : toCounts.entrySet()) {
+			Long previous = fromCounts.get(entry.getKey());
+			if (previous == null) {
+				newWords.add(new WordCountDiff.Change(entry.getKey(), 0, entry.getValue()));
+			} else if (entry.getValue() > previous) {
+				risers.add(new WordCountDiff.Change(entry.getKey(), previous, entry.getValue()));
+			}
+		}
+		for (String word : fromCounts.keySet()) {
+			vanished += toCounts.containsKey(word) ? 0 : 1;
+		}
+		risers.sort(Comparator.comparingLong((WordCountDiff.Change c) -> -c.getChange())
+				.thenComparing(WordCountDiff.Change::getWord));
+		newWords.sort(Comparator.comparingLong((WordCountDiff.Change c) -> -c.getCurrentCount())
+				.thenComparing(WordCountDiff.Change::getWord));
+		assertEquals(newWords.size(), diff.getNewWordCount());
+		assertEquals(vanished, diff.getVanishedWordCount());
+		assertEquals(words(risers.subList(0, 20)), words(diff.getRisers()));
+		assertEquals(words(newWords.subList(0, 20)), words(diff.getNewWords()));
+	}
+
+	private static String words(List<WordCountDiff.Change> changes) {
+		StringBuilder words = new StringBuilder();
+		changes.forEach(change -> words.append(words.length() > 0 ? "," : "").append(change.getWord()));
+		return words.toString();
+	}
+}
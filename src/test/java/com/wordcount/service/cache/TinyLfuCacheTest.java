@@ -0,0 +1,169 @@
+package com.wordcount.service.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for the TinyLfuCache.
+ *
+ */
+public class TinyLfuCacheTest {
+
+	private long now;
+
+	private TinyLfuCache cache = new TinyLfuCache("textCountCache", 16 * 1024, 300, () -> this.now);
+
+	/**
+	 * Tests that a flood of one-off keys does not evict frequently looked up
+	 * keys, and that the cache stays within its byte budget.
+	 */
+	@Test
+	public void testFrequentKeysSurviveScan() {
+		int misses = 0;
+		for (int i = 0; i < 10_000; i++) {
+			if (i % 100 < 20) {
+				String hot = "hot" + i % 100;
+				if (this.cache.get(hot) == null) {
+					this.cache.put(hot, 17L);
+					misses++;
+				}
+			}
+			this.cache.get("cold" + i);
+			this.cache.put("cold" + i, (long) i);
+		}
+		// Each hot key misses once, plus at most once before its admission
+		assertTrue(misses <= 40);
+		assertTrue(this.cache.weightedSize() <= 16 * 1024);
+	}
+
+	/**
+	 * Tests that a candidate needing the room of two main victims, more
+	 * frequent than the first but not the second, is rejected without
+	 * evicting either of them.
+	 */
+	@Test
+	public void testRejectedCandidateEvictsNothing() {
+		TinyLfuCache small = new TinyLfuCache("textCountCache", 1000, 0, () -> this.now);
+		// Frequencies recorded by missed lookups: cold 1, hot 5, candidate 3
+		small.get("cold");
+		for (int i = 0; i < 5; i++) {
+			small.get("hot");
+		}
+		for (int i = 0; i < 3; i++) {
+			small.get("candidate");
+		}
+		small.put("cold", 1L);
+		small.put("hot", 2L);
+		assertEquals(2, small.size());
+
+		// Needs the room of both cold and hot
+		small.put("candidate", new String(new char[340]));
+		assertNull(small.get("candidate"));
+		assertEquals(Long.valueOf(1), small.get("cold", Long.class));
+		assertEquals(Long.valueOf(2), small.get("hot", Long.class));
+		assertEquals(2, small.size());
+
+		// Larger than the main space: rejected at once
+		small.put("huge", new String(new char[420]));
+		assertNull(small.get("huge"));
+		assertEquals(2, small.size());
+	}
+
+	/**
+	 * Tests that replacing a main space entry by a larger value trims the
+	 * main space back within the budget.
+	 */
+	@Test
+	public void testGrownEntryTrimsMainSpace() {
+		TinyLfuCache small = new TinyLfuCache("textCountCache", 1000, 0, () -> this.now);
+		for (String key : new String[] { "a", "b", "c", "d", "e", "f" }) {
+			small.put(key, 1L);
+		}
+		assertEquals(6, small.size());
+		small.put("a", new String(new char[200]));
+		assertTrue(small.weightedSize() <= 1000);
+	}
+
+	/**
+	 * Tests that concurrent misses of a key load it once, and that the cache
+	 * is not locked while the value is loaded.
+	 */
+	@Test
+	public void testConcurrentLoadOutsideLock() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Callable<Long> loader = () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			release.await();
+			return 17L;
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<Long> first = executor.submit(() -> this.cache.get("vel", loader));
+			assertTrue(loading.await(5, TimeUnit.SECONDS));
+			Future<Long> second = executor.submit(() -> this.cache.get("vel", loader));
+
+			// Other keys are read and written while the load is running
+			executor.submit(() -> {
+				this.cache.put("sed", 16L);
+				return this.cache.get("sed", Long.class);
+			}).get(5, TimeUnit.SECONDS);
+
+			release.countDown();
+			assertEquals(Long.valueOf(17), first.get(5, TimeUnit.SECONDS));
+			assertEquals(Long.valueOf(17), second.get(5, TimeUnit.SECONDS));
+			assertEquals(1, loads.get());
+			assertEquals(Long.valueOf(17), this.cache.get("vel", Long.class));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Tests that entries expire once not accessed for the time-to-idle.
+	 */
+	@Test
+	public void testTimeToIdle() {
+		this.cache.put("vel", 17L);
+		this.now += TimeUnit.SECONDS.toNanos(299);
+		assertNotNull(this.cache.get("vel"));
+		this.now += TimeUnit.SECONDS.toNanos(299);
+		assertNotNull(this.cache.get("vel"));
+		this.now += TimeUnit.SECONDS.toNanos(300);
+		assertNull(this.cache.get("vel"));
+		assertEquals(0, this.cache.size());
+	}
+
+	/**
+	 * Tests evict, clear and that entries larger than the budget are not
+	 * cached.
+	 */
+	@Test
+	public void testEvictAndOversizedEntries() {
+		this.cache.put("vel", 17L);
+		this.cache.put("sed", 16L);
+		this.cache.evict("vel");
+		assertNull(this.cache.get("vel"));
+		assertEquals(Long.valueOf(16), this.cache.get("sed", Long.class));
+		this.cache.clear();
+		assertEquals(0, this.cache.weightedSize());
+
+		this.cache.put("huge", new String(new char[16 * 1024]));
+		assertNull(this.cache.get("huge"));
+	}
+}